@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Random;
+
+import jp.fourthline.mmlTools.MMLEventList;
+import jp.fourthline.mmlTools.MMLNoteEvent;
+import jp.fourthline.mmlTools.MMLScore;
+import jp.fourthline.mmlTools.MMLScoreSerializer;
+import jp.fourthline.mmlTools.MMLTempoEvent;
+import jp.fourthline.mmlTools.MMLTrack;
+import jp.fourthline.mmlTools.core.MMLTickTable;
+
+/**
+ * ベンチマーク用の入力データ.
+ *   "format0.mmi" などは test/ 以下のファイル, "synthetic" は乱数で作成した大きなスコア.
+ */
+public final class BenchData {
+	public static final String SYNTHETIC = "synthetic";
+
+	/** fixtureのディレクトリ (-Dbench.fixtures で変更可) */
+	private static final String FIXTURE_DIR = System.getProperty("bench.fixtures", "test/jp/fourthline/mmlTools");
+
+	private BenchData() {}
+
+	public static MMLScore loadScore(String name) throws Exception {
+		if (SYNTHETIC.equals(name)) {
+			return syntheticScore(8, 1000, 1);
+		}
+		MMLScore score = new MMLScore();
+		try (InputStream in = new FileInputStream(new File(FIXTURE_DIR, name))) {
+			new MMLScoreSerializer(score).parse(in);
+		}
+		return score;
+	}
+
+	public static byte[] loadBytes(String name) throws Exception {
+		if (SYNTHETIC.equals(name)) {
+			return loadScore(name).getObjectState();
+		}
+		try (InputStream in = new FileInputStream(new File(FIXTURE_DIR, name))) {
+			return in.readAllBytes();
+		}
+	}
+
+	/**
+	 * 乱数で大きなスコアを作成する. 同じseedであれば同じ内容になる.
+	 * @param trackCount  トラック数
+	 * @param noteCount   1パートあたりのノート数
+	 * @param seed        乱数のseed
+	 */
+	public static MMLScore syntheticScore(int trackCount, int noteCount, long seed) {
+		Random random = new Random(seed);
+		MMLScore score = new MMLScore();
+		int[] lengths = { 64, 32, 16, 8, 4, 2 };
+		int maxTick = 0;
+		for (int i = 0; i < trackCount; i++) {
+			MMLTrack track = new MMLTrack().setMML("", "", "", "");
+			for (int part = 0; part < 3; part++) {
+				MMLEventList eventList = track.getMMLEventAtIndex(part);
+				int tickOffset = 0;
+				int velocity = MMLNoteEvent.INIT_VOL;
+				for (int j = 0; j < noteCount; j++) {
+					int tick = MMLTickTable.TPQN * 4 / lengths[random.nextInt(lengths.length)];
+					if ((tick >= MMLTickTable.TPQN / 8) && (random.nextInt(4) == 0)) {
+						tick += tick / 2;
+					}
+					if (random.nextInt(8) != 0) {
+						if (random.nextInt(16) == 0) {
+							velocity = random.nextInt(MMLNoteEvent.MAX_VOL + 1);
+						}
+						int note = 36 + random.nextInt(48);
+						eventList.addMMLNoteEvent(new MMLNoteEvent(note, tick, tickOffset, velocity));
+					}
+					tickOffset += tick;
+				}
+				maxTick = Math.max(maxTick, tickOffset);
+			}
+			score.addTrack(track);
+		}
+		for (int tick = 0; tick < maxTick; tick += MMLTickTable.TPQN * 64) {
+			new MMLTempoEvent(90 + random.nextInt(90), tick).appendToListElement(score.getTempoEventList());
+		}
+		return score;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jp.fourthline.mmlTools.MMLExceptionList;
+import jp.fourthline.mmlTools.MMLScore;
+import jp.fourthline.mmlTools.MMLTrack;
+import jp.fourthline.mmlTools.MMLVerifyException;
+import jp.fourthline.mmlTools.optimizer.MMLStringOptimizer;
+
+/**
+ * MMLTrack.generate, MMLScore.generateAll のベンチマーク.
+ *   毎回未生成のスコアを用意し, 最適化のキャッシュもクリアする.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GenerateBenchmark {
+	@Param({ "format0.mmi", "format1.mmi", "format1_ex.mmi", BenchData.SYNTHETIC })
+	public String fixture;
+
+	@Param({ "1", "2", "3" })
+	public int optLevel;
+
+	private byte[] objState;
+	private MMLScore score;
+
+	@Setup(Level.Trial)
+	public void setupTrial() throws Exception {
+		objState = BenchData.loadScore(fixture).getObjectState();
+		MMLStringOptimizer.setOptimizeLevel(optLevel);
+	}
+
+	@Setup(Level.Iteration)
+	public void setupIteration() {
+		MMLStringOptimizer.clearAllCache();
+		score = new MMLScore();
+		score.putObjectState(objState);
+	}
+
+	@Benchmark
+	public MMLTrack generateTrack() throws MMLExceptionList, MMLVerifyException {
+		return score.getTrack(0).generate();
+	}
+
+	@Benchmark
+	public MMLScore generateAll() throws MMLExceptionList, MMLVerifyException {
+		return score.generateAll();
+	}
+}
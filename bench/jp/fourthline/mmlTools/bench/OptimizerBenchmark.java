@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jp.fourthline.mmlTools.MMLBuilder;
+import jp.fourthline.mmlTools.MMLEventList;
+import jp.fourthline.mmlTools.MMLScore;
+import jp.fourthline.mmlTools.MMLTrack;
+import jp.fourthline.mmlTools.optimizer.MMLStringOptimizer;
+
+/**
+ * MMLStringOptimizer の各世代のベンチマーク. キャッシュは経由しない.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OptimizerBenchmark {
+	@Param({ "format0.mmi", "format1.mmi", "format1_ex.mmi", BenchData.SYNTHETIC })
+	public String fixture;
+
+	/** 最適化前のMML (MMLBuilderで出力したもの) */
+	private List<String> mmlList;
+
+	@Setup
+	public void setup() throws Exception {
+		MMLScore score = BenchData.loadScore(fixture);
+		mmlList = new ArrayList<>();
+		for (MMLTrack track : score.getTrackList()) {
+			for (MMLEventList list : track.getMMLEventList()) {
+				mmlList.add(MMLBuilder.create(list).toMMLString(true, true));
+			}
+		}
+	}
+
+	@Benchmark
+	public void normal(Blackhole bh) {
+		for (String mml : mmlList) {
+			bh.consume(new MMLStringOptimizer(mml).optimize(false));
+		}
+	}
+
+	@Benchmark
+	public void gen2(Blackhole bh) {
+		for (String mml : mmlList) {
+			bh.consume(new MMLStringOptimizer(mml).optimizeGen2());
+		}
+	}
+
+	@Benchmark
+	public void gen3(Blackhole bh) {
+		for (String mml : mmlList) {
+			bh.consume(new MMLStringOptimizer(mml).optimizeGen3());
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jp.fourthline.mmlTools.MMLBuilder;
+import jp.fourthline.mmlTools.MMLEvent;
+import jp.fourthline.mmlTools.MMLEventList;
+import jp.fourthline.mmlTools.MMLExceptionList;
+import jp.fourthline.mmlTools.MMLNoteEvent;
+import jp.fourthline.mmlTools.MMLScore;
+import jp.fourthline.mmlTools.MMLTrack;
+import jp.fourthline.mmlTools.parser.MMLEventParser;
+
+/**
+ * MMLEventParser, MMLEventList.addMMLNoteEvent, MMLBuilder.toMMLString のベンチマーク.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+	@Param({ "format0.mmi", "format1.mmi", "format1_ex.mmi", BenchData.SYNTHETIC })
+	public String fixture;
+
+	/** 全パートのMML (生成前のもの) */
+	private List<String> mmlList;
+	/** 全パートのノート */
+	private List<List<MMLNoteEvent>> noteList;
+	private List<MMLEventList> eventList;
+
+	@Setup
+	public void setup() throws Exception {
+		MMLScore score = BenchData.loadScore(fixture);
+		mmlList = new ArrayList<>();
+		noteList = new ArrayList<>();
+		eventList = new ArrayList<>();
+		for (MMLTrack track : score.getTrackList()) {
+			for (MMLEventList list : track.getMMLEventList()) {
+				mmlList.add(MMLBuilder.create(list).toMMLString());
+				noteList.add(list.getMMLNoteEventList());
+				eventList.add(list);
+			}
+		}
+	}
+
+	@Benchmark
+	public void parser(Blackhole bh) {
+		for (String mml : mmlList) {
+			var parser = new MMLEventParser(mml);
+			while (parser.hasNext()) {
+				MMLEvent event = parser.next();
+				bh.consume(event);
+			}
+		}
+	}
+
+	@Benchmark
+	public void addMMLNoteEvent(Blackhole bh) {
+		for (List<MMLNoteEvent> list : noteList) {
+			MMLEventList target = new MMLEventList("");
+			for (MMLNoteEvent noteEvent : list) {
+				target.addMMLNoteEvent(noteEvent.clone());
+			}
+			bh.consume(target);
+		}
+	}
+
+	@Benchmark
+	public void toMMLString(Blackhole bh) throws MMLExceptionList {
+		for (MMLEventList list : eventList) {
+			bh.consume(MMLBuilder.create(list).toMMLString(true, true));
+		}
+	}
+}
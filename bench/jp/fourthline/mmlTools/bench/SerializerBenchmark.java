@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jp.fourthline.mmlTools.MMLScore;
+import jp.fourthline.mmlTools.MMLScoreSerializer;
+import jp.fourthline.mmlTools.parser.MMLParseException;
+
+/**
+ * MMLScoreSerializer の読み込み/書き出しのベンチマーク.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+	@Param({ "format0.mmi", "format1.mmi", "format1_ex.mmi", BenchData.SYNTHETIC })
+	public String fixture;
+
+	private byte[] data;
+	private MMLScore score;
+
+	@Setup
+	public void setup() throws Exception {
+		data = BenchData.loadBytes(fixture);
+		score = parse(data);
+	}
+
+	private static MMLScore parse(byte[] b) throws MMLParseException {
+		MMLScore score = new MMLScore();
+		new MMLScoreSerializer(score).parse(new ByteArrayInputStream(b));
+		return score;
+	}
+
+	@Benchmark
+	public MMLScore read() throws MMLParseException {
+		return parse(data);
+	}
+
+	@Benchmark
+	public byte[] write() {
+		var out = new ByteArrayOutputStream();
+		new MMLScoreSerializer(score).writeToOutputStream(out);
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public MMLScore roundTrip() throws MMLParseException {
+		var out = new ByteArrayOutputStream();
+		new MMLScoreSerializer(score).writeToOutputStream(out);
+		return parse(out.toByteArray());
+	}
+}
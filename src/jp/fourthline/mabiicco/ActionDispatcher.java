@@ -465,6 +465,7 @@ public final class ActionDispatcher implements ActionListener, IFileStateObserve
 	 */
 	private boolean saveMMLFile(File file) {
 		try {
+			mmlSeqView.flushGenerate();
 			FileOutputStream outputStream = new FileOutputStream(file);
 			new MMLScoreSerializer(mmlSeqView.getMMLScore()).writeToOutputStream(outputStream);
 			mainFrame.setTitleAndFileName(file.getName());
@@ -591,6 +592,7 @@ public final class ActionDispatcher implements ActionListener, IFileStateObserve
 	 * export MML
 	 */
 	private void otherMmlExportAction() {
+		mmlSeqView.flushGenerate();
 		var export = new MMLExportPanel(mainFrame, mmlSeqView.getMMLScore(), () -> showSaveDialog(txtFileChooser, "txt"));
 		export.showDialog();
 	}
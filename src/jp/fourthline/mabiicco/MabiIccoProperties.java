@@ -127,6 +127,15 @@ public final class MabiIccoProperties {
 	/** fix64 Tempo */
 	public final Property<Boolean> mmlFix64Tempo = new BooleanProperty("function.mml_fix64_tempo", false, t -> MMLScore.setMMLFix64(t.booleanValue()));
 
+	/** MML生成後の検査を, Mabinogi用MMLの生成と並列に行う */
+	public final Property<Boolean> mmlAsyncVerify = new BooleanProperty("function.mml_async_verify", false, t -> MMLTrack.setAsyncVerify(t.booleanValue()));
+
+	/** MML生成を専用スレッドで行い, 連続した編集の生成要求をまとめる */
+	public final Property<Boolean> backgroundGenerate = new BooleanProperty("function.background_generate", false);
+
+	/** Wav出力をリアルタイム再生せずに行う */
+	public final Property<Boolean> offlineWavout = new BooleanProperty("function.offline_wavout", false);
+
 	/** LAF */
 	public final EnumProperty<Laf> laf = new EnumProperty<>("ui.laf", Laf.values(), Laf.LIGHT, t -> ColorSet.update(t.isLight()));
 
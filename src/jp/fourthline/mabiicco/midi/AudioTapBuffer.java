@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.midi;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * オーディオスレッドの出力PCMを, メーター等の複数の読み出し側へ渡すリングバッファ.
+ *   書き込み側 (1スレッドのみ) はコピーするだけで, ロックも待ちもしない.
+ *   読み出し側はそれぞれ Reader を持ち, 自分のタイミングで読み出す. 追いつけなかった分は読み飛ばす.
+ */
+public final class AudioTapBuffer {
+	private final byte[] buffer;
+	private final int mask;
+
+	/** 書き込み開始前に進める位置. これより capacity 以上前のデータは上書きされている可能性がある. */
+	private final AtomicLong claimPosition = new AtomicLong(0);
+	/** 書き込み完了した位置. */
+	private final AtomicLong writePosition = new AtomicLong(0);
+
+	/**
+	 * @param capacity  バッファサイズ (2のべき乗, フレームサイズの倍数であること)
+	 */
+	public AudioTapBuffer(int capacity) {
+		if ( (capacity <= 0) || (Integer.bitCount(capacity) != 1) ) {
+			throw new IllegalArgumentException("capacity: " + capacity);
+		}
+		this.buffer = new byte[capacity];
+		this.mask = capacity - 1;
+	}
+
+	public int capacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * データを書き込む. 書き込み側のスレッドからのみ呼び出すこと.
+	 *   capacity を超える場合は, 末尾の capacity 分のみ保持する.
+	 * @param b
+	 * @param off
+	 * @param len
+	 */
+	public void write(byte[] b, int off, int len) {
+		if (len > buffer.length) {
+			off += len - buffer.length;
+			len = buffer.length;
+		}
+		long pos = writePosition.get();
+		long end = pos + len;
+		claimPosition.set(end);
+		VarHandle.releaseFence();
+		int index = (int) (pos & mask);
+		int n = Math.min(len, buffer.length - index);
+		System.arraycopy(b, off, buffer, index, n);
+		System.arraycopy(b, off + n, buffer, 0, len - n);
+		writePosition.lazySet(end);
+	}
+
+	/**
+	 * 読み出し側を作成する. 作成後に書き込まれたデータから読み出す.
+	 * @return
+	 */
+	public Reader newReader() {
+		return new Reader(writePosition.get());
+	}
+
+	/**
+	 * 読み出し側. 1つの Reader は1スレッドから使用すること.
+	 */
+	public final class Reader {
+		private long position;
+
+		private Reader(long position) {
+			this.position = position;
+		}
+
+		/**
+		 * 読み出し可能なデータを読み出す.
+		 * @param dst
+		 * @param off
+		 * @param len  最大読み出しサイズ
+		 * @return 読み出したサイズ
+		 */
+		public int read(byte[] dst, int off, int len) {
+			long end = writePosition.get();
+			long start = Math.max(position, end - buffer.length);
+			int n = (int) Math.min(len, end - start);
+			int index = (int) (start & mask);
+			int n1 = Math.min(n, buffer.length - index);
+			System.arraycopy(buffer, index, dst, off, n1);
+			System.arraycopy(buffer, 0, dst, off + n1, n - n1);
+
+			// 読み出し中に上書きされた先頭部分は捨てる.
+			VarHandle.acquireFence();
+			long valid = claimPosition.get() - buffer.length;
+			if (start < valid) {
+				int lost = (int) Math.min(n, valid - start);
+				System.arraycopy(dst, off + lost, dst, off, n - lost);
+				n -= lost;
+				start += lost;
+			}
+			position = start + n;
+			return n;
+		}
+
+		/**
+		 * 読み出していないデータのサイズ. 読み飛ばす分は含まない.
+		 * @return
+		 */
+		public int available() {
+			return (int) Math.min(buffer.length, writePosition.get() - position);
+		}
+	}
+}
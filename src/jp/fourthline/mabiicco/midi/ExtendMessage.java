@@ -7,9 +7,6 @@ package jp.fourthline.mabiicco.midi;
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiMessage;
 import javax.sound.midi.ShortMessage;
-
-import jp.fourthline.mabiicco.ui.PolyphonyMonitor;
-
 import javax.sound.midi.Receiver;
 
 
@@ -32,15 +29,30 @@ public final class ExtendMessage extends ShortMessage {
 		return this.channel;
 	}
 
+	/**
+	 * 拡張チャネルを保持したまま複製する.
+	 *   時刻付きで送信したメッセージは, シンセサイザ内で複製して保持される.
+	 */
+	@Override
+	public Object clone() {
+		try {
+			return new ExtendMessage(getCommand(), channel, getData1(), getData2());
+		} catch (InvalidMidiDataException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	/**
 	 * ExtendMessage以外を使わないようにするレシーバのラッパ.
 	 */
 	public static final class ExtendReceiver implements Receiver {
 		private final Receiver target;
 		private final boolean[][] cache;
+		private final VoiceStatistics statistics;
 
-		public ExtendReceiver(Receiver target, int maxChannel) {
+		public ExtendReceiver(Receiver target, int maxChannel, VoiceStatistics statistics) {
 			this.target = target;
+			this.statistics = statistics;
 			cache = new boolean[maxChannel][];
 			for (int i = 0; i < cache.length; i++) {
 				cache[i] = new boolean[128];
@@ -67,6 +79,7 @@ public final class ExtendMessage extends ShortMessage {
 					}
 				}
 			}
+			statistics.allNotesOff();
 			MabiDLS.getInstance().allNoteOff();
 		}
 
@@ -99,7 +112,15 @@ public final class ExtendMessage extends ShortMessage {
 				if ( (cmd == ShortMessage.NOTE_ON) || (cmd == ShortMessage.NOTE_OFF) ) {
 					int ch = e.getChannel();
 					int note = e.getData1();
-					cache[ch][note] = (cmd == ShortMessage.NOTE_ON);
+					boolean on = (cmd == ShortMessage.NOTE_ON) && (e.getData2() > 0);
+					if (cache[ch][note] != on) {
+						cache[ch][note] = on;
+						if (on) {
+							statistics.noteOn(ch);
+						} else {
+							statistics.noteOff(ch);
+						}
+					}
 					target.send(message, timeStamp);
 					if (debug) System.out.println(messageString(message, timeStamp));
 				}
@@ -112,8 +133,6 @@ public final class ExtendMessage extends ShortMessage {
 					allStop(ch);
 				}
 			}
-
-			PolyphonyMonitor.getInstance().update();
 		}
 
 		@Override
@@ -1,9 +0,0 @@
-/*
- * Copyright (C) 2023 たんらる
- */
-
-package jp.fourthline.mabiicco.midi;
-
-public interface ISoundDataLine {
-	void write(byte data[]);
-}
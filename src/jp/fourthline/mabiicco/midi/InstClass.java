@@ -39,19 +39,22 @@ public final class InstClass {
 	private final Instrument inst;
 	private final Options options;
 
-	private static ResourceBundle instResource = null;
-	static {
-		try {
-			String instName = MabiIccoProperties.getInstance().soundEnv.get().getInstrumentName();
-			if (instName != null) {
-				instResource = ResourceBundle.getBundle(instName, new ResourceLoader());
-			}
-		} catch (Exception e) {}
+	/** 楽器名のリソース. 音源設定の読み込みは使用時まで遅延する. */
+	private static final class InstResource {
+		private static ResourceBundle instResource = null;
+		static {
+			try {
+				String instName = MabiIccoProperties.getInstance().soundEnv.get().getInstrumentName();
+				if (instName != null) {
+					instResource = ResourceBundle.getBundle(instName, new ResourceLoader());
+				}
+			} catch (Exception e) {}
+		}
 	}
 
 	public static boolean debug = false;
 
-	public static int DRUM = 0x100;
+	public static final int DRUM = 0x100;
 	private static int logicalProgramNum(Instrument inst) {
 		if (inst == null) {
 			throw new IllegalArgumentException("inst is null");
@@ -348,7 +351,7 @@ public final class InstClass {
 
 	public void dlsInfoWriteToOutputStream(OutputStream outputStream) {
 		PrintStream out = new PrintStream(outputStream);
-		String name = instName(inst, instResource);
+		String name = instName(inst, InstResource.instResource);
 		String originalName = inst.getName();
 		int bank = inst.getPatch().getBank();
 		int program = inst.getPatch().getProgram();
@@ -401,7 +404,7 @@ public final class InstClass {
 		ArrayList<InstClass> instArray = new ArrayList<>();
 		for (Instrument inst : sb.getInstruments()) {
 			String originalName = inst.getName();
-			String name = nameConvert ? instName(inst, instResource) : originalName.trim();
+			String name = nameConvert ? instName(inst, InstResource.instResource) : originalName.trim();
 			int bank = inst.getPatch().getBank();
 			int program = inst.getPatch().getProgram();
 			int lProgram = logicalProgramNum(inst);
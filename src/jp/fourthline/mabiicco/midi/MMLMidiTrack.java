@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2014-2023 たんらる
+ * Copyright (C) 2014-2024 たんらる
  */
 
 package jp.fourthline.mabiicco.midi;
@@ -16,16 +16,23 @@ import jp.fourthline.mmlTools.MMLNoteEvent;
 /**
  * 複数のMMLNoteEventリストから, MIDIトラック用リストに変換する.
  *   マビノギ内の演奏とは若干ちがうけど！（気にしない
+ *   追加するリストごとに, 既存のリストと先頭から順にマージする.
+ *   重複の修正は, 1ノートずつ順に挿入した場合と同じ結果になる.
  *   TODO: 再生方式の完全な変更が必要.
  */
 public final class MMLMidiTrack {
 	private final InstClass inst;
-	private final ArrayList<MMLNoteEvent> noteEventList;
+	private ArrayList<MMLNoteEvent> noteEventList;
 	private int attackDelayCorrect = 0;
-	private final OverlapMode overlapMode = MabiIccoProperties.getInstance().overlapMode.get();
+	private final OverlapMode overlapMode;
 
 	public MMLMidiTrack(InstClass inst) {
+		this(inst, MabiIccoProperties.getInstance().overlapMode.get());
+	}
+
+	MMLMidiTrack(InstClass inst, OverlapMode overlapMode) {
 		this.inst = inst;
+		this.overlapMode = overlapMode;
 		noteEventList = new ArrayList<>();
 	}
 
@@ -42,43 +49,94 @@ public final class MMLMidiTrack {
 	}
 
 	public void add(List<MMLNoteEvent> list) {
+		ArrayList<MMLNoteEvent> baseList = noteEventList;
+		noteEventList = new ArrayList<>(baseList.size() + list.size());
+		int baseIndex = 0;
 		for (MMLNoteEvent noteEvent : list) {
-			addItem(noteEvent.clone());
+			MMLNoteEvent addEvent = applyAttackDelay(noteEvent.clone());
+			if (addEvent == null) {
+				continue;
+			}
+
+			// 挿入位置以前になる既存のノートを移す. 残りは挿入位置より後になる.
+			int targetTick = addEvent.getTickOffset();
+			while ( (baseIndex < baseList.size()) && (baseList.get(baseIndex).getTickOffset() <= targetTick) ) {
+				noteEventList.add(baseList.get(baseIndex++));
+			}
+			MMLNoteEvent nextBaseEvent = (baseIndex < baseList.size()) ? baseList.get(baseIndex) : null;
+			addItem(addEvent, nextBaseEvent);
+		}
+		while (baseIndex < baseList.size()) {
+			noteEventList.add(baseList.get(baseIndex++));
 		}
 	}
 
-	private void addItem(MMLNoteEvent addEvent) {
-		int targetTick = addEvent.getTickOffset();
-		int targetIndex = 0;
-
-		// アタック遅延補正分
+	/**
+	 * アタック遅延補正分を反映する.
+	 * @return 補正により長さがなくなった場合は null
+	 */
+	private MMLNoteEvent applyAttackDelay(MMLNoteEvent addEvent) {
 		if (attackDelayCorrect != 0) {
-			targetTick += attackDelayCorrect;
+			int targetTick = addEvent.getTickOffset() + attackDelayCorrect;
 			if (targetTick < 0) {
 				int tick = addEvent.getTick() + targetTick;
-				if (tick <= 0) return;
+				if (tick <= 0) return null;
 				targetTick = 0;
 				addEvent.setTick(tick);
 			}
 			addEvent.setTickOffset(targetTick);
 		}
+		return addEvent;
+	}
 
-		for (MMLNoteEvent noteEvent : noteEventList) {
-			if (noteEvent.getTickOffset() > targetTick) {
-				break;
-			}
-			targetIndex++;
-			if ( (noteEvent.getTickOffset() == targetTick) && (noteEvent.getNote() == addEvent.getNote())) {
+	/**
+	 * ノートを挿入する.
+	 *   同じ位置のノートのうち, 同じ音があればその直後, なければ最後に挿入する.
+	 * @param addEvent
+	 * @param nextBaseEvent  noteEventList の末尾の次になる既存のノート (ない場合は null)
+	 */
+	private void addItem(MMLNoteEvent addEvent, MMLNoteEvent nextBaseEvent) {
+		int targetTick = addEvent.getTickOffset();
+		int endIndex = upperIndex(targetTick);
+		int startIndex = endIndex;
+		while ( (startIndex > 0) && (noteEventList.get(startIndex - 1).getTickOffset() == targetTick) ) {
+			startIndex--;
+		}
+		int targetIndex = endIndex;
+		for (int i = startIndex; i < endIndex; i++) {
+			if (noteEventList.get(i).getNote() == addEvent.getNote()) {
+				targetIndex = i + 1;
 				break;
 			}
 		}
 
-		addEvent = overlapNote(targetIndex, addEvent);
+		MMLNoteEvent nextEvent = (targetIndex < noteEventList.size()) ? noteEventList.get(targetIndex) : nextBaseEvent;
+		addEvent = overlapNote(targetIndex, addEvent, nextEvent);
 		if (addEvent != null) {
 			noteEventList.add(targetIndex, addEvent);
 		}
 	}
 
+	/**
+	 * 開始位置が tick より後になる最初のIndex.
+	 */
+	private int upperIndex(int tick) {
+		int low = 0;
+		int high = noteEventList.size();
+		if ( (high == 0) || (noteEventList.get(high - 1).getTickOffset() <= tick) ) {
+			return high;
+		}
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (noteEventList.get(mid).getTickOffset() <= tick) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
 	public enum OverlapMode implements SettingButtonGroupItem {
 		NONE {
 			@Override
@@ -112,7 +170,7 @@ public final class MMLMidiTrack {
 		public abstract boolean isOverlap(InstClass inst, int note);
 	}
 
-	private MMLNoteEvent overlapNote(int targetIndex, MMLNoteEvent addEvent) {
+	private MMLNoteEvent overlapNote(int targetIndex, MMLNoteEvent addEvent, MMLNoteEvent nextEvent) {
 		if (overlapMode.isOverlap(inst, addEvent.getNote())) {
 			return addEvent;
 		}
@@ -153,8 +211,7 @@ public final class MMLMidiTrack {
 		}
 
 		// 後ろの音との重複修正
-		if ( targetIndex < noteEventList.size() ) {
-			MMLNoteEvent nextEvent = noteEventList.get( targetIndex );
+		if ( nextEvent != null ) {
 			trimOverlapNote(addEvent, nextEvent);
 		}
 
@@ -11,18 +11,25 @@ import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import javax.sound.midi.*;
+import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.LineUnavailableException;
 
+import com.sun.media.sound.AudioSynthesizer;
 import com.sun.media.sound.SoftSynthesizer;
 
 import jp.fourthline.mabiicco.AppErrorHandler;
 import jp.fourthline.mabiicco.MabiIccoProperties;
+import jp.fourthline.mabiicco.midi.MMLMidiTrack.OverlapMode;
 import jp.fourthline.mmlTools.MMLEventList;
 import jp.fourthline.mmlTools.MMLNoteEvent;
 import jp.fourthline.mmlTools.MMLScore;
@@ -59,6 +66,9 @@ public final class MabiDLS {
 	private final ArrayList<Runnable> notifier = new ArrayList<>();
 	private final boolean[] muteState = new boolean[ MMLScore.MAX_TRACK ];
 	private WavoutDataLine wavout;
+	private volatile WavoutRenderer offlineWavout = null;
+	private final VoiceStatistics voiceStatistics = new VoiceStatistics(MAX_MIDI_PART);
+	private final MidiPartCache partCache = new MidiPartCache();
 	private boolean allLoaded = false;
 
 	public static MabiDLS getInstance() {
@@ -75,12 +85,7 @@ public final class MabiDLS {
 	 */
 	public void initializeMIDI() throws MidiUnavailableException, InvalidMidiDataException, IOException, LineUnavailableException {
 		this.synthesizer = MidiSystem.getSynthesizer();
-		HashMap<String, Object> info = new HashMap<>();
-		info.put("midi channels", MAX_MIDI_PART);
-		info.put("large mode", "true");
-		//		info.put("load default soundbank", "false");
-		info.put("max polyphony", "256");
-		((SoftSynthesizer)this.synthesizer).open(wavout = new WavoutDataLine(), info);
+		((SoftSynthesizer)this.synthesizer).open(wavout = new WavoutDataLine(), createSynthesizerInfo());
 		addTrackEndNotifier(() -> wavout.stopRec());
 
 		long latency = this.synthesizer.getLatency();
@@ -109,7 +114,16 @@ public final class MabiDLS {
 		// シーケンサとシンセサイザの初期化
 		initializeSynthesizer();
 		Transmitter transmitter = this.sequencer.getTransmitter();
-		transmitter.setReceiver(new ExtendMessage.ExtendReceiver(this.synthesizer.getReceiver(), MAX_MIDI_PART));
+		transmitter.setReceiver(new ExtendMessage.ExtendReceiver(this.synthesizer.getReceiver(), MAX_MIDI_PART, voiceStatistics));
+	}
+
+	private static Map<String, Object> createSynthesizerInfo() {
+		HashMap<String, Object> info = new HashMap<>();
+		info.put("midi channels", MAX_MIDI_PART);
+		info.put("large mode", "true");
+		//		info.put("load default soundbank", "false");
+		info.put("max polyphony", "256");
+		return info;
 	}
 
 	// ループ再生時にも使用するパラメータ.
@@ -155,20 +169,75 @@ public final class MabiDLS {
 	}
 
 	public IWavoutState getWavout() {
-		return wavout;
+		WavoutRenderer renderer = offlineWavout;
+		return (renderer != null) ? renderer : wavout;
 	}
 
 	public void startWavout(MMLScore mmlScore, File outFile, Runnable endNotify) throws IOException {
+		if (MabiIccoProperties.getInstance().offlineWavout.get()) {
+			startOfflineWavout(mmlScore, outFile, endNotify);
+			return;
+		}
+		offlineWavout = null;
 		createSequenceAndStandby(mmlScore, 0);
 		wavout.startRec(outFile, endNotify);
 		sequenceStart();
 	}
 
 	public void stopWavout() {
+		WavoutRenderer renderer = offlineWavout;
+		if (renderer != null) {
+			renderer.cancel();
+			return;
+		}
 		wavout.stopRec();
 		sequencer.stop();
 	}
 
+	/**
+	 * リアルタイム再生せずにWav出力する.
+	 *   再生用とは別のシンセサイザを AudioSynthesizer.openStream で開き, 出力を別スレッドで行う.
+	 *   完了または中止後に endNotify を呼ぶ.
+	 */
+	private void startOfflineWavout(MMLScore mmlScore, File outFile, Runnable endNotify) throws IOException {
+		AudioSynthesizer offlineSynthesizer;
+		try {
+			offlineSynthesizer = (AudioSynthesizer) MidiSystem.getSynthesizer();
+		} catch (MidiUnavailableException e) {
+			throw new IOException(e);
+		}
+		WavoutRenderer renderer;
+		Sequence sequence;
+		try {
+			AudioInputStream stream = offlineSynthesizer.openStream(WavoutRenderer.FORMAT, createSynthesizerInfo());
+			for (InstClass inst : allLoaded ? insts : getRequiredInsts(mmlScore)) {
+				offlineSynthesizer.loadInstrument(inst.getInstrument());
+			}
+			MidiChannel[] offlineChannel = offlineSynthesizer.getChannels();
+			initializeChannel(offlineSynthesizer, offlineChannel);
+			updateMidiControl(offlineChannel, mmlScore);
+			setMuteState(offlineChannel);
+			sequence = createSequenceOnSepChannel(mmlScore);
+			renderer = new WavoutRenderer(stream, offlineSynthesizer.getReceiver());
+		} catch (MidiUnavailableException | InvalidMidiDataException e) {
+			offlineSynthesizer.close();
+			throw new IOException(e);
+		}
+
+		offlineWavout = renderer;
+		new Thread(() -> {
+			try {
+				renderer.render(sequence, outFile);
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				offlineSynthesizer.close();
+				offlineWavout = null;
+				endNotify.run();
+			}
+		}, "OfflineWavout").start();
+	}
+
 	public void allNoteOff() {
 		for (MidiChannel ch : this.channel) {
 			ch.allNotesOff();
@@ -249,6 +318,10 @@ public final class MabiDLS {
 			return;
 		}
 
+		loadRequiredInstruments(getRequiredInsts(score));
+	}
+
+	private List<InstClass> getRequiredInsts(MMLScore score) {
 		ArrayList<InstClass> requiredInsts = new ArrayList<>();
 		ArrayList<MMLTrack> trackList = new ArrayList<>(score.getTrackList());
 		for (MMLTrack track : trackList) {
@@ -261,8 +334,7 @@ public final class MabiDLS {
 				requiredInsts.add(inst2);
 			}
 		}
-
-		loadRequiredInstruments(requiredInsts);
+		return requiredInsts;
 	}
 
 	public synchronized void loadRequiredInstruments(List<InstClass> requiredInsts) {
@@ -289,13 +361,26 @@ public final class MabiDLS {
 		return synthesizer;
 	}
 
+	/**
+	 * シーケンス再生時の発音数の統計.
+	 * @return
+	 */
+	public VoiceStatistics getVoiceStatistics() {
+		return voiceStatistics;
+	}
+
 	private void initializeSynthesizer() throws InvalidMidiDataException, IOException, MidiUnavailableException {
 		this.channel = this.synthesizer.getChannels();
 		for (int i = 0; i < this.channel.length; i++) {
 			this.playNoteList.add(new MMLNoteEvent[MAX_CHANNEL_PLAY_NOTE]);
 		}
 
-		for (MidiChannel ch : this.channel) {
+		initializeChannel(this.synthesizer, this.channel);
+		all();
+	}
+
+	private static void initializeChannel(Synthesizer synthesizer, MidiChannel[] channel) {
+		for (MidiChannel ch : channel) {
 			ch.programChange(DLS_BANK, 0);
 
 			/* ctrl 91 汎用エフェクト 1(リバーブ) */
@@ -306,7 +391,7 @@ public final class MabiDLS {
 		}
 
 		// デフォルトSoundBankのドラム以外をアンロードする.
-		var sb = this.synthesizer.getDefaultSoundbank();
+		var sb = synthesizer.getDefaultSoundbank();
 		var list = new ArrayList<Patch>();
 		for (var inst : sb.getInstruments()) {
 			var p = inst.getPatch();
@@ -316,9 +401,7 @@ public final class MabiDLS {
 				}
 			}
 		}
-		this.synthesizer.unloadInstruments(sb, list.toArray(Patch[]::new));
-
-		all();
+		synthesizer.unloadInstruments(sb, list.toArray(Patch[]::new));
 	}
 
 	public List<InstClass> getAllInst() {
@@ -442,7 +525,7 @@ public final class MabiDLS {
 		return ret;
 	}
 
-	private void changeProgram(int trackIndex, int program, int songProgram) {
+	private void changeProgram(MidiChannel[] channel, int trackIndex, int program, int songProgram) {
 		int bank = DLS_BANK;
 
 		if ((program & InstClass.DRUM) != 0) {
@@ -463,13 +546,7 @@ public final class MabiDLS {
 	 * @param panpot
 	 */
 	public void setTrackPanpot(int trackIndex, int panpot) {
-		if ( (trackIndex < 0) || (trackIndex >= MMLScore.MAX_TRACK) ) {
-			throw new IllegalArgumentException("trackIndex: " + trackIndex);
-		}
-
-		for (int i = getChannel(trackIndex, 0); i < getChannel(trackIndex+1, 0); i++) {
-			channel[i].controlChange(10, panpot);
-		}
+		setTrackControl(this.channel, trackIndex, 10, panpot);
 	}
 
 	/**
@@ -478,12 +555,16 @@ public final class MabiDLS {
 	 * @param volume
 	 */
 	public void setTrackVolume(int trackIndex, int volume) {
+		setTrackControl(this.channel, trackIndex, 7, volume);
+	}
+
+	private void setTrackControl(MidiChannel[] channel, int trackIndex, int control, int value) {
 		if ( (trackIndex < 0) || (trackIndex >= MMLScore.MAX_TRACK) ) {
 			throw new IllegalArgumentException("trackIndex: " + trackIndex);
 		}
 
 		for (int i = getChannel(trackIndex, 0); i < getChannel(trackIndex+1, 0); i++) {
-			channel[i].controlChange(7, volume);
+			channel[i].controlChange(control, value);
 		}
 	}
 
@@ -532,6 +613,10 @@ public final class MabiDLS {
 
 	/** MIDIにMuteStateを反映する. */
 	private void midiSetMuteState() {
+		setMuteState(this.channel);
+	}
+
+	private void setMuteState(MidiChannel[] channel) {
 		for (int i = 0; i < muteState.length; i++) {
 			for (int chIndex = getChannel(i, 0); chIndex < getChannel(i+1, 0); chIndex++) {
 				channel[chIndex].setMute(muteState[i]);
@@ -540,11 +625,15 @@ public final class MabiDLS {
 	}
 
 	public void updateMidiControl(MMLScore score) {
+		updateMidiControl(this.channel, score);
+	}
+
+	private void updateMidiControl(MidiChannel[] channel, MMLScore score) {
 		int trackCount = 0;
 		for (MMLTrack mmlTrack : score.getTrackList()) {
-			this.setTrackPanpot(trackCount, mmlTrack.getPanpot());
-			this.setTrackVolume(trackCount, mmlTrack.getVolume());
-			this.changeProgram(trackCount, mmlTrack.getProgram(), mmlTrack.getSongProgram());
+			setTrackControl(channel, trackCount, 10, mmlTrack.getPanpot());
+			setTrackControl(channel, trackCount, 7, mmlTrack.getVolume());
+			changeProgram(channel, trackCount, mmlTrack.getProgram(), mmlTrack.getSongProgram());
 			trackCount++;
 		}
 	}
@@ -636,6 +725,10 @@ public final class MabiDLS {
 			track.add(new MidiEvent(new MetaMessage(MMLTempoEvent.META, tempo, tempo.length), tickOffset));
 		}
 
+		// パートごとのイベント列. キャッシュにないパートは並列に作成する.
+		OverlapMode overlapMode = MabiIccoProperties.getInstance().overlapMode.get();
+		List<Integer> channels = new ArrayList<>();
+		List<CompletableFuture<List<MidiEvent>>> partEvents = new ArrayList<>();
 		int trackIndex = 0;
 		for (MMLTrack mmlTrack : score.getTrackList()) {
 			for (int i = 0; i < NUM_CHANNEL_ON_TRACK; i++) {
@@ -649,15 +742,42 @@ public final class MabiDLS {
 					if (eventList.size() > 0) {
 						int channel = getChannel(trackIndex, i);
 						var instClass = getInstByProgram(program);
-						MMLMidiTrack midiTrack = new MMLMidiTrack(instClass);
-						midiTrack.setAttackDelayCorrect(mmlTrack.getAttackDelayCorrect(i));
-						midiTrack.add(eventList);
-						convertMidiPart(sequence.createTrack(), midiTrack.getNoteEventList(), channel, instClass, 1, true);
+						int attackDelayCorrect = mmlTrack.getAttackDelayCorrect(i);
+						channels.add(channel);
+						var events = partCache.get(channel, eventList, instClass, attackDelayCorrect, overlapMode);
+						if (events != null) {
+							partEvents.add(CompletableFuture.completedFuture(events));
+						} else {
+							partEvents.add(CompletableFuture.supplyAsync(() -> {
+								MMLMidiTrack midiTrack = new MMLMidiTrack(instClass);
+								midiTrack.setAttackDelayCorrect(attackDelayCorrect);
+								midiTrack.add(eventList);
+								try {
+									var newEvents = convertMidiPart(midiTrack.getNoteEventList(), channel, instClass, 1, true);
+									partCache.put(channel, eventList, instClass, attackDelayCorrect, overlapMode, newEvents);
+									return newEvents;
+								} catch (InvalidMidiDataException e) {
+									throw new CompletionException(e);
+								}
+							}));
+						}
 					}
 				}
 			}
 			trackIndex++;
 		}
+		partCache.retainAll(channels);
+
+		for (var future : partEvents) {
+			try {
+				addEvents(sequence.createTrack(), future.join());
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof InvalidMidiDataException cause) {
+					throw cause;
+				}
+				throw e;
+			}
+		}
 
 		return sequence;
 	}
@@ -688,21 +808,45 @@ public final class MabiDLS {
 				midiTrack.add(eventList.getMMLNoteEventList());
 			}
 		}
-		convertMidiPart(track, midiTrack.getNoteEventList(), channel, instClass, startOffset, withMute);
+		addEvents(track, convertMidiPart(midiTrack.getNoteEventList(), channel, instClass, startOffset, withMute));
+	}
+
+	/**
+	 * 時刻順に並んだイベント列をトラックに追加します. 各イベントは末尾への追加になります.
+	 * @param track
+	 * @param events
+	 */
+	private void addEvents(Track track, List<MidiEvent> events) {
+		for (MidiEvent event : events) {
+			track.add(event);
+		}
 	}
 
-	private void convertMidiPart(Track track, List<MMLNoteEvent> eventList, int channel, InstClass inst, int startOffset, boolean withMute) throws InvalidMidiDataException {
+	private record NoteOff(long tick, int order, MidiEvent event) {}
+
+	/**
+	 * パートのノートを, 時刻順に並んだMIDIイベント列に変換します.
+	 *   NoteOn はノートの順 (開始位置順) に出力し, NoteOff はその時刻までのものをキューから時刻順に出力します.
+	 *   同時刻のイベントは, ノートごとに NoteOn, NoteOff の順でトラックに追加した場合と同じ順になります.
+	 * @param eventList  開始位置順のノート
+	 * @return
+	 * @throws InvalidMidiDataException
+	 */
+	List<MidiEvent> convertMidiPart(List<MMLNoteEvent> eventList, int channel, InstClass inst, int startOffset, boolean withMute) throws InvalidMidiDataException {
 		int velocity = MMLNoteEvent.INIT_VOL;
 		int targetProgram = inst.getProgram();
+		ArrayList<MidiEvent> events = new ArrayList<>(eventList.size() * 2 + 1);
+		PriorityQueue<NoteOff> offQueue = new PriorityQueue<>(Comparator.comparingLong(NoteOff::tick).thenComparingInt(NoteOff::order));
 
 		// Program Change
 		ShortMessage pcMessage = new ExtendMessage(ShortMessage.PROGRAM_CHANGE, 
 				channel,
 				targetProgram & 0xff,
 				0);
-		track.add(new MidiEvent(pcMessage, 0));
+		events.add(new MidiEvent(pcMessage, 0));
 
 		// Noteイベントの変換
+		int order = 0;
 		for ( MMLNoteEvent noteEvent : eventList ) {
 			if (withMute && noteEvent.isMute()) {
 				continue;
@@ -717,24 +861,33 @@ public final class MabiDLS {
 				velocity = convertVelocityOnAtt(inst, note, noteEvent.getVelocity());
 			}
 
+			// この NoteOn より前の NoteOff
+			while ( !offQueue.isEmpty() && (offQueue.peek().tick() <= tickOffset) ) {
+				events.add(offQueue.poll().event());
+			}
+
 			try {
 				// ON イベント作成
 				MidiMessage message1 = new ExtendMessage(ShortMessage.NOTE_ON, 
 						channel,
 						convertNoteMML2Midi(note), 
 						velocity);
-				track.add(new MidiEvent(message1, tickOffset));
+				events.add(new MidiEvent(message1, tickOffset));
 
 				// Off イベント作成
 				MidiMessage message2 = new ExtendMessage(ShortMessage.NOTE_OFF,
 						channel, 
 						convertNoteMML2Midi(note),
 						0);
-				track.add(new MidiEvent(message2, endTickOffset));
+				offQueue.add(new NoteOff(endTickOffset, order++, new MidiEvent(message2, endTickOffset)));
 			} catch (InvalidMidiDataException e) {
 				e.printStackTrace();
 			}
 		}
+		while (!offQueue.isEmpty()) {
+			events.add(offQueue.poll().event());
+		}
+		return events;
 	}
 
 	private int convertNoteMML2Midi(int mml_note) {
@@ -776,8 +929,12 @@ public final class MabiDLS {
 		return midiDeviceList;
 	}
 
-	public void setSoundDataLine(ISoundDataLine soundDataLine) {
-		wavout.setSoundDataLine(soundDataLine);
+	/**
+	 * 再生中の出力データを読み出すためのバッファ.
+	 * @return
+	 */
+	public AudioTapBuffer getAudioTap() {
+		return wavout.getTap();
 	}
 
 	public static void main(String[] args) {
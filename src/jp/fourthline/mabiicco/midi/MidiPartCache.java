@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.midi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sound.midi.MidiEvent;
+
+import jp.fourthline.mabiicco.midi.MMLMidiTrack.OverlapMode;
+import jp.fourthline.mmlTools.MMLNoteEvent;
+
+/**
+ * 再生用シーケンスのパートごとのMIDIイベント列のキャッシュ.
+ *   ノートと変換条件が前回作成時と同じパートは, 前回のイベント列を再利用する.
+ *   ノートは複製して保持する.
+ *   イベント列は複数のシーケンスで共有するので, 変更しないこと.
+ */
+final class MidiPartCache {
+	private record Entry(List<MMLNoteEvent> notes, InstClass inst, int attackDelayCorrect, OverlapMode overlapMode, List<MidiEvent> events) {
+		private boolean matches(List<MMLNoteEvent> noteList, InstClass inst, int attackDelayCorrect, OverlapMode overlapMode) {
+			if ( (this.inst != inst) || (this.attackDelayCorrect != attackDelayCorrect) || (this.overlapMode != overlapMode) ) {
+				return false;
+			}
+			if (!notes.equals(noteList)) {
+				return false;
+			}
+			for (int i = 0; i < notes.size(); i++) {
+				if (notes.get(i).isMute() != noteList.get(i).isMute()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private final Map<Integer, Entry> map = new ConcurrentHashMap<>();
+
+	/**
+	 * 変換条件が一致する場合に, キャッシュしたイベント列を取得する.
+	 * @param channel
+	 * @param noteList  変換前のノート
+	 * @param inst
+	 * @param attackDelayCorrect
+	 * @param overlapMode
+	 * @return 一致しない場合は null
+	 */
+	List<MidiEvent> get(int channel, List<MMLNoteEvent> noteList, InstClass inst, int attackDelayCorrect, OverlapMode overlapMode) {
+		Entry entry = map.get(channel);
+		if ( (entry != null) && entry.matches(noteList, inst, attackDelayCorrect, overlapMode) ) {
+			return entry.events;
+		}
+		return null;
+	}
+
+	void put(int channel, List<MMLNoteEvent> noteList, InstClass inst, int attackDelayCorrect, OverlapMode overlapMode, List<MidiEvent> events) {
+		List<MMLNoteEvent> notes = new ArrayList<>(noteList.size());
+		noteList.forEach(t -> notes.add(t.clone()));
+		map.put(channel, new Entry(notes, inst, attackDelayCorrect, overlapMode, Collections.unmodifiableList(events)));
+	}
+
+	/**
+	 * 指定したチャンネル以外のキャッシュを削除する.
+	 * @param channels
+	 */
+	void retainAll(Collection<Integer> channels) {
+		map.keySet().retainAll(channels);
+	}
+}
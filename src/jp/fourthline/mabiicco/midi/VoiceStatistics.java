@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.midi;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * シーケンス再生時の発音数の統計.
+ *   ExtendReceiver を通る NoteOn/Off から更新し, シンセサイザへの問い合わせはしない.
+ *   変更時にリスナーへ通知する. リスナーは更新スレッド (シーケンサ) で呼ばれるので, 重い処理はしないこと.
+ */
+public final class VoiceStatistics {
+	private final AtomicIntegerArray active;
+	private final AtomicInteger total = new AtomicInteger(0);
+	private final AtomicInteger peak = new AtomicInteger(0);
+	private final AtomicLong noteOnCount = new AtomicLong(0);
+	private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+	public VoiceStatistics(int maxChannel) {
+		active = new AtomicIntegerArray(maxChannel);
+	}
+
+	void noteOn(int channel) {
+		active.incrementAndGet(channel);
+		int value = total.incrementAndGet();
+		peak.accumulateAndGet(value, Math::max);
+		noteOnCount.incrementAndGet();
+		notifyListeners();
+	}
+
+	void noteOff(int channel) {
+		active.decrementAndGet(channel);
+		total.decrementAndGet();
+		notifyListeners();
+	}
+
+	/**
+	 * すべてのチャンネルの発音数を0にする.
+	 */
+	void allNotesOff() {
+		for (int i = 0; i < active.length(); i++) {
+			int count = active.getAndSet(i, 0);
+			total.addAndGet(-count);
+		}
+		notifyListeners();
+	}
+
+	private void notifyListeners() {
+		for (Runnable listener : listeners) {
+			listener.run();
+		}
+	}
+
+	public void addListener(Runnable listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Runnable listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * 全チャンネルの発音数.
+	 */
+	public int getActiveCount() {
+		return total.get();
+	}
+
+	/**
+	 * 指定チャンネルの発音数.
+	 */
+	public int getActiveCount(int channel) {
+		return active.get(channel);
+	}
+
+	/**
+	 * 最大発音数.
+	 */
+	public int getPeak() {
+		return peak.get();
+	}
+
+	/**
+	 * 最大発音数を現在の発音数に戻す.
+	 */
+	public void resetPeak() {
+		peak.set(total.get());
+	}
+
+	/**
+	 * これまでの NoteOn の回数. 差分を取ることで NoteOn のレートを求める.
+	 */
+	public long getNoteOnCount() {
+		return noteOnCount.get();
+	}
+}
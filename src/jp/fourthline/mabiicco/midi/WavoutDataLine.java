@@ -35,7 +35,8 @@ public final class WavoutDataLine implements SourceDataLine, IWavoutState {
 	private File tempFile = null;
 	private OutputStream tempOutputStream = null;
 	private Runnable endNotify;
-	private ISoundDataLine soundDataLine = null;
+	/** レベルメーター等へ渡す出力データ. 約0.75秒分. */
+	private final AudioTapBuffer tap = new AudioTapBuffer(1 << 17);
 
 	private final AtomicInteger lineStallCounter = new AtomicInteger(0);
 
@@ -275,15 +276,13 @@ public final class WavoutDataLine implements SourceDataLine, IWavoutState {
 			this.time += time.ms();
 		}
 
-		if (soundDataLine != null) {
-			soundDataLine.write(b);
-		}
+		tap.write(b, off, len);
 		var ret = parent.write(b, off, len);
 		lineStallCounter.set(0);
 		return ret;
 	}
 
-	public void setSoundDataLine(ISoundDataLine soundDataLine) {
-		this.soundDataLine = soundDataLine;
+	public AudioTapBuffer getTap() {
+		return tap;
 	}
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.midi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import jp.fourthline.mmlTools.MMLTempoEvent;
+import jp.fourthline.mmlTools.core.NanoTime;
+
+/**
+ * シーケンスをリアルタイム再生せずにWAVファイルへ出力する.
+ *   AudioSynthesizer.openStream で開いたシンセサイザへ全イベントを時刻付きで送り,
+ *   生成された音声を読めるだけ読んでファイルへ直接書き込む. データサイズは終了時にヘッダへ書き戻す.
+ *   プログラム等のチャンネル設定はあらかじめシンセサイザへ反映しておくこと (ExtendReceiverと同じく, NoteOn/Offのみ送る).
+ */
+final class WavoutRenderer implements IWavoutState {
+	static final AudioFormat FORMAT = new AudioFormat(44100, 16, 2, true, false);
+	static final int HEADER_SIZE = 44;
+	private static final int BUFFER_SIZE = 65536;
+	/** シーケンス終了後, 無音にならない場合に出力する最大時間 (ms) */
+	private static final long MAX_TAIL_TIME = 10000;
+
+	private final AudioInputStream stream;
+	private final Receiver receiver;
+	private volatile boolean cancel = false;
+	private volatile long time;
+	private volatile long curLen;
+
+	/**
+	 * @param stream    シンセサイザの出力 (FORMATであること)
+	 * @param receiver  同じシンセサイザのレシーバ
+	 */
+	WavoutRenderer(AudioInputStream stream, Receiver receiver) {
+		this.stream = stream;
+		this.receiver = receiver;
+	}
+
+	@Override
+	public long getTime() { return time; }
+
+	@Override
+	public long getLen() { return curLen; }
+
+	/**
+	 * 出力を中止する. 出力済みの部分はWAVファイルとして残る.
+	 */
+	void cancel() {
+		cancel = true;
+	}
+
+	/**
+	 * 出力する. 完了または中止するまで戻らない.
+	 * @param sequence
+	 * @param outFile
+	 * @throws IOException
+	 */
+	void render(Sequence sequence, File outFile) throws IOException {
+		NanoTime nanoTime = NanoTime.start();
+		curLen = 0;
+		long endMicros = sendSequence(sequence);
+		long endFrame = (long) (endMicros * (double) FORMAT.getFrameRate() / 1000000.0);
+		long maxFrame = endFrame + (long) (MAX_TAIL_TIME * FORMAT.getFrameRate() / 1000);
+		int frameSize = FORMAT.getFrameSize();
+		byte[] buf = new byte[BUFFER_SIZE];
+		long frame = 0;
+		try (RandomAccessFile out = new RandomAccessFile(outFile, "rw")) {
+			out.setLength(0);
+			out.write(createHeader(FORMAT, 0));
+			while (!cancel && (frame < maxFrame)) {
+				int len = readFully(buf);
+				if (len <= 0) {
+					break;
+				}
+				if ((frame >= endFrame) && isSilent(buf, len)) {
+					// シーケンス終了後, 残響がなくなったら終了.
+					break;
+				}
+				out.write(buf, 0, len);
+				frame += len / frameSize;
+				curLen += len;
+			}
+			out.seek(0);
+			out.write(createHeader(FORMAT, curLen));
+		} finally {
+			time = nanoTime.ms();
+		}
+	}
+
+	/**
+	 * シーケンスの NoteOn/Off をすべて, 先頭からの時刻 (us) 付きで送る.
+	 *   テンポイベントと NoteOn/Off をTick順に並べ, 先頭から1回の走査で時刻を求める.
+	 * @return シーケンス終了位置の時刻 (us)
+	 */
+	private long sendSequence(Sequence sequence) {
+		var events = new ArrayList<MidiEvent>();
+		for (Track track : sequence.getTracks()) {
+			for (int i = 0; i < track.size(); i++) {
+				MidiEvent event = track.get(i);
+				if ( (tempoMPQ(event.getMessage()) > 0) || isNoteOnOff(event.getMessage()) ) {
+					events.add(event);
+				}
+			}
+		}
+		events.sort(Comparator.comparingLong(MidiEvent::getTick));
+
+		int resolution = sequence.getResolution();
+		int mpq = 60000000 / MMLTempoEvent.INITIAL_TEMPO;
+		// 最後のテンポ変更位置と, その時刻 (us)
+		long baseTick = 0;
+		double baseMicros = 0.0;
+		for (MidiEvent event : events) {
+			long tick = event.getTick();
+			double micros = baseMicros + (double) (tick - baseTick) * mpq / resolution;
+			int newMPQ = tempoMPQ(event.getMessage());
+			if (newMPQ > 0) {
+				baseTick = tick;
+				baseMicros = micros;
+				mpq = newMPQ;
+			} else {
+				receiver.send(event.getMessage(), Math.round(micros));
+			}
+		}
+		return Math.round(baseMicros + (double) (sequence.getTickLength() - baseTick) * mpq / resolution);
+	}
+
+	private static boolean isNoteOnOff(MidiMessage message) {
+		if (message instanceof ShortMessage shortMessage) {
+			int cmd = shortMessage.getCommand();
+			return (cmd == ShortMessage.NOTE_ON) || (cmd == ShortMessage.NOTE_OFF);
+		}
+		return false;
+	}
+
+	/**
+	 * @return テンポイベントのテンポ (MPQ). テンポイベントでない場合は 0.
+	 */
+	private static int tempoMPQ(MidiMessage message) {
+		if ((message instanceof MetaMessage meta) && (meta.getType() == MMLTempoEvent.META)) {
+			byte[] data = meta.getData();
+			return ((data[0] & 0xff) << 16) | ((data[1] & 0xff) << 8) | (data[2] & 0xff);
+		}
+		return 0;
+	}
+
+	private int readFully(byte[] buf) throws IOException {
+		int len = 0;
+		while (len < buf.length) {
+			int n = stream.read(buf, len, buf.length - len);
+			if (n < 0) {
+				break;
+			}
+			len += n;
+		}
+		return len;
+	}
+
+	private static boolean isSilent(byte[] b, int len) {
+		for (int i = 0; i < len; i++) {
+			if (b[i] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * WAVファイル (PCM) のヘッダを作成する.
+	 * @param format
+	 * @param dataSize  データ部のバイト数
+	 * @return
+	 */
+	static byte[] createHeader(AudioFormat format, long dataSize) {
+		int frameSize = format.getFrameSize();
+		int sampleRate = (int) format.getSampleRate();
+		ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		buf.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+		buf.putInt((int) (HEADER_SIZE - 8 + dataSize));
+		buf.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+		buf.put("fmt ".getBytes(StandardCharsets.US_ASCII));
+		buf.putInt(16);
+		buf.putShort((short) 1);
+		buf.putShort((short) format.getChannels());
+		buf.putInt(sampleRate);
+		buf.putInt(sampleRate * frameSize);
+		buf.putShort((short) frameSize);
+		buf.putShort((short) format.getSampleSizeInBits());
+		buf.put("data".getBytes(StandardCharsets.US_ASCII));
+		buf.putInt((int) dataSize);
+		return buf.array();
+	}
+}
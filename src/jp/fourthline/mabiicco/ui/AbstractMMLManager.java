@@ -20,6 +20,9 @@ public abstract class AbstractMMLManager implements IMMLManager {
 		return mmlScore.getTrack(getActiveTrackIndex());
 	}
 
+	@Override
+	public void flushGenerate() {}
+
 	@Override
 	public int getActiveMMLPartStartOffset() {
 		var track = getActiveTrack();
@@ -185,35 +185,24 @@ public final class ColumnPanel extends JPanel implements MouseListener, MouseMot
 	 * ルーラを表示します。
 	 */
 	private void paintRuler(Graphics2D g) {
-		MMLScore score = mmlManager.getMMLScore();
-		var timeSignatureIterator = score.getTimeSignatureList().iterator();
-		int measureTick = score.getTimeCountOnly() * score.getBeatTick();
-		int m = 0;
-		int md = 0;
+		var measureIndex = mmlManager.getMMLScore().getMeasureIndex();
+		var clip = g.getClipBounds();
+		int startX = (clip != null) ? clip.x : 0;
+		int endX = (clip != null) ? clip.x + clip.width : getWidth();
+		int m = measureIndex.tickToMeasure((int) pianoRollView.convertXtoTick(startX));
+		int md = measureIndex.measureToTick(m);
 		int y2 = getHeight();
-		long length = pianoRollView.convertXtoTick( getWidth() );
+		long length = pianoRollView.convertXtoTick(endX);
 		g.setColor(BEAT_BORDER_COLOR.get());
 
-		int nextMeasureOffset = 0;
-		TimeSignature timeSignature = timeSignatureIterator.hasNext() ? timeSignatureIterator.next() : null;
-		if (timeSignature != null) {
-			nextMeasureOffset = timeSignature.getMeasureOffset();
-		}
 		while (md < length) {
 			int x = pianoRollView.convertTicktoX(md);
 			int y1 = 0;
 			g.drawLine(x, y1, x, y2);
 			g.drawString(Integer.toString(m), x+2, y1+10);
 
-			if ( (timeSignature != null) && (m >= nextMeasureOffset) ) {
-				measureTick = timeSignature.getNumTime() * timeSignature.getBaseTick();
-				timeSignature = timeSignatureIterator.hasNext() ? timeSignatureIterator.next() : null;
-				if (timeSignature != null) {
-					nextMeasureOffset = timeSignature.getMeasureOffset();
-				}
-			}
+			md += measureIndex.getMeasureTickOnMeasure(m);
 			m++;
-			md += measureTick;
 		}
 	}
 
@@ -308,9 +297,13 @@ public final class ColumnPanel extends JPanel implements MouseListener, MouseMot
 		if (!sequencer.isRunning()) {
 			long tick = pianoRollView.convertXtoTick(x);
 			tick -= tick % editAlign.getEditAlign();
+			int oldX = pianoRollView.getPaintedSequenceX();
 			pianoRollView.setSequenceTick(tick);
-			repaint();
-			pianoRollView.repaint();
+			// 移動前後のシーケンスバーの範囲のみを再描画する.
+			for (int barX : new int[] { oldX, pianoRollView.getSequenceX() }) {
+				repaint(PianoRollView.sequenceLineBounds(barX, getHeight()));
+				pianoRollView.repaint(PianoRollView.sequenceLineBounds(barX, pianoRollView.getHeight()));
+			}
 		} else {
 			long tick = pianoRollView.convertXtoTick(x);
 			// 移動先のテンポに設定する.
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.ui;
+
+import java.awt.EventQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import jp.fourthline.mmlTools.MMLExceptionList;
+import jp.fourthline.mmlTools.MMLScore;
+import jp.fourthline.mmlTools.MMLVerifyException;
+
+/**
+ * MMLの生成を専用スレッドで行う.
+ *   生成はスナップショットに対して行い, スナップショットの作成と結果の反映はEDTで行う.
+ *   生成中に来た要求はまとめて, 生成完了後に1回だけ再生成する.
+ *   生成結果 (検査を含む) は完了時のコールバックでEDTへ渡すので, EDTで待つのは flush の場合のみ.
+ *   request, flush はEDTから呼び出すこと.
+ */
+final class GenerateWorker {
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "MMLGenerate");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Supplier<MMLScore> scoreSupplier;
+	private final Runnable onComplete;
+	private final BiConsumer<MMLScore, Exception> onError;
+
+	private record Task(MMLScore score, MMLScore snapshot, CompletableFuture<Exception> future) {}
+
+	private Task task = null;
+	private boolean pending = false;
+
+	/**
+	 * @param scoreSupplier  生成対象のMMLScore
+	 * @param onComplete     生成結果を反映したあとに実行する
+	 * @param onError        生成に失敗したときに, 失敗したスナップショットと例外を受け取る
+	 */
+	GenerateWorker(Supplier<MMLScore> scoreSupplier, Runnable onComplete, BiConsumer<MMLScore, Exception> onError) {
+		this.scoreSupplier = scoreSupplier;
+		this.onComplete = onComplete;
+		this.onError = onError;
+	}
+
+	/**
+	 * 生成を要求する. 生成中の場合は完了後に再生成する.
+	 */
+	void request() {
+		if (task != null) {
+			pending = true;
+		} else {
+			start();
+		}
+	}
+
+	/**
+	 * 生成中かどうか.
+	 */
+	boolean isBusy() {
+		return task != null;
+	}
+
+	/**
+	 * 生成中および要求済みの生成が完了するまで待ち, 結果を反映する.
+	 */
+	void flush() {
+		while (task != null) {
+			finish(task, task.future.join());
+		}
+	}
+
+	private void start() {
+		pending = false;
+		MMLScore score = scoreSupplier.get();
+		MMLScore snapshot = score.generateSnapshot();
+		var future = CompletableFuture.supplyAsync(() -> generate(snapshot), executor);
+		var newTask = new Task(score, snapshot, future);
+		task = newTask;
+		future.thenAccept(e -> EventQueue.invokeLater(() -> finish(newTask, e)));
+	}
+
+	private static Exception generate(MMLScore snapshot) {
+		try {
+			snapshot.generateAll();
+			return null;
+		} catch (MMLExceptionList | MMLVerifyException e) {
+			return e;
+		}
+	}
+
+	/**
+	 * 生成結果を反映する. EDTで実行する.
+	 * @param e  生成に失敗した場合の例外 (検査NGを含む). 成功した場合は null
+	 */
+	private void finish(Task t, Exception e) {
+		if (task != t) {
+			// flushで反映済み.
+			return;
+		}
+		task = null;
+		if (t.score != scoreSupplier.get()) {
+			// 生成中にMMLScoreが置き換えられた.
+			if (pending) {
+				start();
+			}
+			return;
+		}
+
+		boolean applied = (e == null) && t.score.applyGenerated(t.snapshot);
+		if (pending || ((e == null) && !applied)) {
+			// 生成中に変更があったので, 最新の状態で再生成する.
+			start();
+		} else if (e != null) {
+			onError.accept(t.snapshot, e);
+		} else {
+			onComplete.run();
+		}
+	}
+}
@@ -20,6 +20,8 @@ public interface IMMLManager {
 	int getActiveMMLPartStartOffset();
 	MMLEventList getActiveMMLPart();
 	void updateActivePart(boolean generate);
+	/** 別スレッドで実行中のMML生成があれば, 完了を待って結果を反映する. */
+	void flushGenerate();
 	void generateActiveTrack();
 	void updateActiveTrackProgram(int trackIndex, int program, int songProgram);
 	int getActivePartProgram();
@@ -11,15 +11,18 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 import javax.swing.JComponent;
+import javax.swing.Timer;
 
-import jp.fourthline.mabiicco.midi.ISoundDataLine;
+import jp.fourthline.mabiicco.midi.AudioTapBuffer;
 import jp.fourthline.mabiicco.midi.MabiDLS;
 import jp.fourthline.mabiicco.ui.color.ColorSet;
 
-public final class LevelMonitor extends JComponent implements ISoundDataLine {
+public final class LevelMonitor extends JComponent {
 	private static final long serialVersionUID = -3910689963056146451L;
 	private static final int PIR = 600;
 	private static final int R_PIR = 20;
+	/** 出力データを読み出す周期 (ms) */
+	private static final int READ_PERIOD = 20;
 	private int counter = 0;
 	private int reduceCounter = 0;
 
@@ -113,15 +116,26 @@ public final class LevelMonitor extends JComponent implements ISoundDataLine {
 		setPreferredSize(new Dimension(46, 20));
 		this.dlsChain = dlsChain;
 		if (dlsChain) {
-			MabiDLS.getInstance().setSoundDataLine(this);
+			// オーディオスレッドでは処理せず, EDTで出力データを読み出す.
+			AudioTapBuffer.Reader reader = MabiDLS.getInstance().getAudioTap().newReader();
+			byte[] data = new byte[MabiDLS.getInstance().getAudioTap().capacity()];
+			new Timer(READ_PERIOD, t -> {
+				int len = reader.read(data, 0, data.length);
+				if (len > 0) {
+					write(data, len);
+				}
+			}).start();
 		}
 	}
 
-	@Override
 	public void write(byte data[]) {
+		write(data, data.length);
+	}
+
+	private void write(byte data[], int len) {
 		boolean isRun = dlsChain ? MabiDLS.getInstance().getSequencer().isRunning() : true;
-		var b = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
-		int c = b.capacity() / 2;
+		var b = ByteBuffer.wrap(data, 0, len).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+		int c = b.remaining() / 2;
 		for (int i = 0; i < c; i++) {
 			if (isRun) {
 				left.update(b.get());
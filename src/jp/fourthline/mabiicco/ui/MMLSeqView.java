@@ -46,14 +46,17 @@ import jp.fourthline.mmlTools.core.NanoTime;
 
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.DisplayMode;
 import java.awt.EventQueue;
 import java.awt.Frame;
+import java.awt.GraphicsEnvironment;
 import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.LinkedList;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.IntConsumer;
 
 /**
@@ -95,9 +98,17 @@ public final class MMLSeqView extends AbstractMMLManager implements ChangeListen
 
 	private final JPanel panel;
 	private final ScheduledThreadPoolExecutor scheduledExecutor = new ScheduledThreadPoolExecutor(4);
+	private final GenerateWorker generateWorker = new GenerateWorker(this::getMMLScore, this::updateAllMMLPart, (score, e) -> {
+		generateError(score, e);
+		updateAllMMLPart();
+	});
 
 	private final Frame parentFrame;
 
+	/** シーケンスバーの最短の更新間隔 (ms) */
+	private static final long SEQUENCE_UPDATE_PERIOD = 25;
+	private final AtomicBoolean sequenceUpdateQueued = new AtomicBoolean(false);
+
 	/**
 	 * Create the panel.
 	 * @param parentFrame 関連付けるFrame
@@ -110,6 +121,7 @@ public final class MMLSeqView extends AbstractMMLManager implements ChangeListen
 		// Scroll View (KeyboardView, PianoRollView) - CENTER
 		mainPanel = new JPanel(new BorderLayout());
 		pianoRollView = new PianoRollView();
+		undoEdit.setStateChangeListener(pianoRollView::updateContent);
 		keyboardView = new KeyboardView(this, pianoRollView);
 		scrollPane = new JScrollPane(pianoRollView, ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_ALWAYS);
 		scrollPane.getVerticalScrollBar().setUnitIncrement(pianoRollView.getNoteHeight());
@@ -582,6 +594,7 @@ public final class MMLSeqView extends AbstractMMLManager implements ChangeListen
 	public void undo() {
 		if (undoEdit.canUndo()) {
 			var time = NanoTime.start();
+			generateWorker.flush();
 			undoEdit.undo();
 			mmlScore = mmlScore.toGeneratedScore(false);
 			resetTrackView();
@@ -594,6 +607,7 @@ public final class MMLSeqView extends AbstractMMLManager implements ChangeListen
 	public void redo() {
 		if (undoEdit.canRedo()) {
 			var time = NanoTime.start();
+			generateWorker.flush();
 			undoEdit.redo();
 			mmlScore = mmlScore.toGeneratedScore(false);
 			resetTrackView();
@@ -640,7 +654,7 @@ public final class MMLSeqView extends AbstractMMLManager implements ChangeListen
 
 	@Override
 	public void generateActiveTrack() {
-		// 単一のTrackだけを更新したいところであるが, 整合性を保つために全体をGenerateする. 
+		// 全体をGenerateするが, 変更のないTrackは前回の生成結果を使う.
 		updateActivePart(true);
 	}
 
@@ -648,21 +662,43 @@ public final class MMLSeqView extends AbstractMMLManager implements ChangeListen
 	public void updateActivePart(boolean generate) {
 		NanoTime time = NanoTime.start();
 		if (generate) {
+			if (MabiIccoProperties.getInstance().backgroundGenerate.get()) {
+				// 生成結果とMMLテキストの表示は, 生成完了時に反映する.
+				generateWorker.request();
+				panel.repaint();
+				ActionDispatcher.getInstance().showTime("update", time);
+				return;
+			}
+			generateWorker.flush();
 			try {
 				mmlScore.generateAll();
 			} catch (MMLExceptionList | MMLVerifyException e) {
-				showErrMessage(mmlScore, e);
-				System.err.println("REVERT: " + e.getMessage());
-				undoEdit.revertState();
-				editor.reset();
+				generateError(mmlScore, e);
 			}
 			panel.repaint();
+		} else {
+			generateWorker.flush();
 		}
 
 		updateAllMMLPart();
 		ActionDispatcher.getInstance().showTime("update", time);
 	}
 
+	@Override
+	public void flushGenerate() {
+		generateWorker.flush();
+	}
+
+	/**
+	 * 生成に失敗したときは, 最後に保存した状態へ戻す.
+	 */
+	private void generateError(MMLScore score, Exception e) {
+		showErrMessage(score, e);
+		System.err.println("REVERT: " + e.getMessage());
+		undoEdit.revertState();
+		editor.reset();
+	}
+
 	private void updateAllMMLPart() {
 		if (tabbedPane.getTabCount() != mmlScore.getTrackCount()) {
 			resetTrackView();
@@ -770,12 +806,28 @@ public final class MMLSeqView extends AbstractMMLManager implements ChangeListen
 	// PianoRoll, Sequence系の描画を行うスレッドを開始します.
 	private void startSequenceThread() {
 		scheduledExecutor.scheduleWithFixedDelay(() -> {
-			if (MabiDLS.getInstance().getSequencer().isRunning()) {
+			// 前回の更新がまだ実行されていなければ, 更新要求を積まない.
+			if (MabiDLS.getInstance().getSequencer().isRunning() && sequenceUpdateQueued.compareAndSet(false, true)) {
 				EventQueue.invokeLater(() -> {
+					sequenceUpdateQueued.set(false);
 					updatePianoRollView(true);
 				});
 			}
-		}, 500, 25, TimeUnit.MILLISECONDS);
+		}, 500, sequenceUpdatePeriod(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * シーケンスバーの更新間隔 (ms). ディスプレイのリフレッシュレートより短くしない.
+	 */
+	private static long sequenceUpdatePeriod() {
+		int refreshRate = DisplayMode.REFRESH_RATE_UNKNOWN;
+		if (!GraphicsEnvironment.isHeadless()) {
+			refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+		}
+		if (refreshRate > 0) {
+			return Math.max(SEQUENCE_UPDATE_PERIOD, (1000 + refreshRate - 1) / refreshRate);
+		}
+		return SEQUENCE_UPDATE_PERIOD;
 	}
 
 	@Override
@@ -827,15 +879,25 @@ public final class MMLSeqView extends AbstractMMLManager implements ChangeListen
 		} else {
 			positionY = point.y;
 		}
+		boolean scroll = (point.x != positionX) || (point.y != positionY);
 		point.setLocation(positionX, positionY);
 		viewport.setViewPosition(point);
 		UIUtils.viewportSetPositionWorkaround(viewport, point);
 
-		if (updateSequenceBar) {
-			// シーケンスバー更新のときは必要なコンポーネントだけをrepaintする
+		if (!updateSequenceBar) {
+			mainPanel.repaint();
+		} else if (scroll) {
+			// スクロールしたときはピアノロールの表示範囲全体をrepaintする
 			scrollPane.repaint();
 		} else {
-			mainPanel.repaint();
+			// シーケンスバー更新のときは移動前後のシーケンスバーの範囲だけをrepaintする
+			int oldX = pianoRollView.getPaintedSequenceX();
+			if (oldX != curPositionX) {
+				for (int x : new int[] { oldX, curPositionX }) {
+					pianoRollView.repaint(PianoRollView.sequenceLineBounds(x, pianoRollView.getHeight()));
+					columnView.repaint(PianoRollView.sequenceLineBounds(x, columnView.getHeight()));
+				}
+			}
 		}
 	}
 
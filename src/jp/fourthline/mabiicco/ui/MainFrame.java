@@ -389,12 +389,15 @@ public final class MainFrame extends JFrame implements ComponentListener, Action
 		createCheckMenu(settingMenu, "mml.tempo_allow_chord_part", appProperties.mmlTempoAllowChordPart, ActionDispatcher.MML_GENERATE);
 		createCheckMenu(settingMenu, "mml.vzero_tempo", appProperties.mmlVZeroTempo, ActionDispatcher.MML_GENERATE);
 		createCheckMenu(settingMenu, "mml.fix64_tempo", appProperties.mmlFix64Tempo, ActionDispatcher.MML_GENERATE);
+		createCheckMenu(settingMenu, "mml.async_verify", appProperties.mmlAsyncVerify);
 		createMenuItem(settingMenu, "mml.emptyCorrection", ActionDispatcher.INPUT_EMPTY_CORRECTION, true);
 		createCheckMenu(settingMenu, "mml.regenerate_with_open", appProperties.reGenerateWithOpen);
+		createCheckMenu(settingMenu, "mml.background_generate", appProperties.backgroundGenerate);
 		settingMenu.add(new JSeparator());
 		// DLSに関わる設定
 		//		createGroupMenu(settingMenu, "menu.overlap_mode", appProperties.overlapMode);  // 2023/04/19 のアップデートにより、重複音が問題なくできるようになったので固定値へ変更
 		UIUtils.createGroupMenu(settingMenu, "menu.sound_env", appProperties.soundEnv);
+		createCheckMenu(settingMenu, "wavout.offline", appProperties.offlineWavout);
 		createCheckMenu(settingMenu, "menu.useDefaultSoundbank", appProperties.useDefaultSoundBank, ActionDispatcher.USE_DEFAULT_SOUNDBANK, true);
 		createMenuItem(settingMenu, "menu.select_dls", ActionDispatcher.SELECT_DLS, true);
 
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.ui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * ピアノロールの背景レイヤー (グリッド, 小節線, 非アクティブパートのノート) を描画済みタイルとして保持する.
+ *   レイヤーの内容を表すキーが変わるまでは, タイルを再描画せずに転送する.
+ *   アクティブパート, 選択範囲, シーケンスバーはこの上に毎回描画する.
+ */
+final class PianoRollLayerCache {
+	static final int TILE_SIZE = 256;
+	private static final int MAX_TILES = 64;
+
+	/** タイル描画処理. 描画先はパネル座標に変換済みで, 矩形はタイルの範囲. */
+	private final BiConsumer<Graphics2D, Rectangle> painter;
+
+	private Object key = null;
+	private double scale = 1.0;
+	private final Map<Long, BufferedImage> tiles = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 5043398204315706423L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+			return size() > MAX_TILES;
+		}
+	};
+
+	PianoRollLayerCache(BiConsumer<Graphics2D, Rectangle> painter) {
+		this.painter = painter;
+	}
+
+	/**
+	 * レイヤーを描画する. キーが前回と異なる場合はすべてのタイルを破棄する.
+	 * @param g           描画先
+	 * @param clip        描画範囲 (パネル座標)
+	 * @param key         レイヤーの内容を表すキー (equalsで比較する)
+	 * @param background  タイルの背景色
+	 */
+	void paint(Graphics2D g, Rectangle clip, Object key, Color background) {
+		double currentScale = g.getTransform().getScaleX();
+		if ( !key.equals(this.key) || (currentScale != scale) ) {
+			tiles.clear();
+			this.key = key;
+			this.scale = currentScale;
+		}
+
+		int x1 = Math.floorDiv(clip.x, TILE_SIZE);
+		int y1 = Math.floorDiv(clip.y, TILE_SIZE);
+		int x2 = Math.floorDiv(clip.x + clip.width - 1, TILE_SIZE);
+		int y2 = Math.floorDiv(clip.y + clip.height - 1, TILE_SIZE);
+		for (int ty = y1; ty <= y2; ty++) {
+			for (int tx = x1; tx <= x2; tx++) {
+				long tileKey = ((long) tx << 32) | (ty & 0xffffffffL);
+				BufferedImage image = tiles.get(tileKey);
+				if (image == null) {
+					image = createTile(tx * TILE_SIZE, ty * TILE_SIZE, background);
+					tiles.put(tileKey, image);
+				}
+				g.drawImage(image, tx * TILE_SIZE, ty * TILE_SIZE, TILE_SIZE, TILE_SIZE, null);
+			}
+		}
+	}
+
+	/**
+	 * 保持しているタイルの数.
+	 */
+	int getTileCount() {
+		return tiles.size();
+	}
+
+	private BufferedImage createTile(int x, int y, Color background) {
+		int size = (int) Math.ceil(TILE_SIZE * scale);
+		BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.scale(scale, scale);
+		g.setColor(background);
+		g.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+		g.translate(-x, -y);
+		Rectangle rect = new Rectangle(x, y, TILE_SIZE, TILE_SIZE);
+		g.clip(rect);
+		painter.accept(g, rect);
+		g.dispose();
+		return image;
+	}
+}
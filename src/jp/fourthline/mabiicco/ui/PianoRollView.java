@@ -30,6 +30,7 @@ import jp.fourthline.mmlTools.MMLNoteEvent;
 import jp.fourthline.mmlTools.MMLScore;
 import jp.fourthline.mmlTools.MMLTrack;
 import jp.fourthline.mmlTools.Measure;
+import jp.fourthline.mmlTools.MeasureIndex;
 import jp.fourthline.mmlTools.TimeSignature;
 import jp.fourthline.mmlTools.core.MMLTicks;
 import jp.fourthline.mmlTools.core.MMLException;
@@ -78,6 +79,7 @@ public final class PianoRollView extends JPanel {
 
 	private long sequencePosition = 0;
 	private long runningSequencePosition = 0;
+	private int paintedSequenceX = 0;
 
 	// 描画位置判定用 (tick base)
 	private long startViewTick;
@@ -136,6 +138,27 @@ public final class PianoRollView extends JPanel {
 	}
 	private PaintMode paintMode = PaintMode.ALL_TRACK;
 
+	/** グリッドと非アクティブパートを描画したレイヤー */
+	private final PianoRollLayerCache layerCache = new PianoRollLayerCache(this::paintLayer);
+
+	/**
+	 * レイヤーの内容を決める状態. 一致している間は描画済みのタイルを使う.
+	 */
+	private record LayerKey(MMLScore score, MeasureIndex measureIndex, double wideScale, NoteHeight noteHeight,
+			PaintMode paintMode, int activeTrackIndex, int activePartIndex, ScaleColor scaleColor, InstClass relativeInst,
+			boolean enableEdit, boolean viewRange, boolean instAttr, Color colorMode,
+			int startOffsetX, int width, long contentVersion, long trackContent) {}
+
+	/** スコアのノート内容の版数. スコアの状態が変わるたびに {@link #updateContent()} で更新する. */
+	private long contentVersion = 0;
+
+	/**
+	 * スコアのノート内容が変わったことを通知する. 次の描画でレイヤーを描き直す.
+	 */
+	public void updateContent() {
+		contentVersion++;
+	}
+
 	public PaintMode getPaintMode() {
 		return paintMode;
 	}
@@ -360,15 +383,13 @@ public final class PianoRollView extends JPanel {
 
 		Graphics2D g2 = (Graphics2D)g.create();
 		UIUtils.setRenderingHint(g2);
-		for (int i = 0; i <= OCTNUM; i++) {
-			paintOctPianoLine(g2, i, startOffsetX);
+		Rectangle clip = g2.getClipBounds();
+		if (clip == null) {
+			clip = getVisibleRect();
 		}
+		layerCache.paint(g2, clip.intersection(new Rectangle(0, 0, getWidth(), height)), layerKey(startOffsetX), getBackground());
 
-		paintMeasure(g2);
-		paintPitchRangeBorder(g2);
-
-		paintOtherTrack(g2);
-		paintActiveTrack(g2);
+		paintActivePart(g2);
 		paintSelectedNote(g2);
 		paintNoteInfo(g2);
 		paintSelectingArea(g2);
@@ -383,6 +404,55 @@ public final class PianoRollView extends JPanel {
 		g2.dispose();
 	}
 
+	/**
+	 * レイヤーの1タイル分を描画する. 描画範囲に合わせて描画対象のtick範囲を切り替える.
+	 * @param g
+	 * @param rect  タイルの範囲
+	 */
+	private void paintLayer(Graphics2D g, Rectangle rect) {
+		startViewTick = convertXtoTick(rect.x);
+		endViewTick = convertXtoTick(rect.x + rect.width);
+		UIUtils.setRenderingHint(g);
+		int startOffsetX = convertTicktoX(mmlManager.getActiveMMLPartStartOffset());
+		for (int i = 0; i <= OCTNUM; i++) {
+			paintOctPianoLine(g, i, startOffsetX);
+		}
+
+		paintMeasure(g);
+		paintPitchRangeBorder(g);
+
+		paintOtherTrack(g);
+		paintActiveTrack(g);
+		updateViewTick();
+	}
+
+	private LayerKey layerKey(int startOffsetX) {
+		MMLScore score = mmlManager.getMMLScore();
+		return new LayerKey(score, score.getMeasureIndex(), wideScale, noteHeight,
+				paintMode, mmlManager.getActiveTrackIndex(), mmlManager.getActiveMMLPartIndex(), scaleColor, relativeInst,
+				properties.enableEdit.get(), properties.viewRange.get(), properties.instAttr.get(), noSoundColor.get(),
+				startOffsetX, getWidth(), contentVersion, trackContent(score));
+	}
+
+	/**
+	 * レイヤーに描画するトラックの表示設定と色のハッシュ値. ノートの内容は contentVersion で判定する.
+	 */
+	private long trackContent(MMLScore score) {
+		long hash = 1;
+		for (int i = 0; i < score.getTrackCount(); i++) {
+			MMLTrack track = score.getTrack(i);
+			hash = 31 * hash + (track.isVisible() ? 1 : 0);
+			hash = 31 * hash + track.getProgram();
+			hash = 31 * hash + track.getSongProgram();
+			for (int partIndex = 0; partIndex < track.getMMLEventList().size(); partIndex++) {
+				hash = 31 * hash + ColorManager.defaultColor().getPartRectColor(i, partIndex).getRGB();
+				hash = 31 * hash + ColorManager.defaultColor().getPartFillColor(i, partIndex).getRGB();
+			}
+		}
+		hash = 31 * hash + ColorManager.defaultColor().getUnusedFillColor().getRGB();
+		return hash;
+	}
+
 	private void paintOctPianoLine(Graphics2D g, int pos, int startOffsetX) {
 		int startY = 12 * noteHeight.h * pos;
 		int octave = OCTNUM - pos - 1;
@@ -435,6 +505,26 @@ public final class PianoRollView extends JPanel {
 		int x = convertTicktoX(position);
 		g.setColor(seqBarColor.get());
 		g.drawLine(x, 0, x, height);
+		if (g.hitClip(x, 0, 1, height)) {
+			paintedSequenceX = x;
+		}
+	}
+
+	/**
+	 * 最後に描画したシーケンスバーのx座標.
+	 */
+	int getPaintedSequenceX() {
+		return paintedSequenceX;
+	}
+
+	/**
+	 * シーケンスバーの描画範囲. 移動時はこの範囲だけをrepaintする.
+	 * @param x       シーケンスバーのx座標
+	 * @param height  描画する高さ
+	 * @return
+	 */
+	static Rectangle sequenceLineBounds(int x, int height) {
+		return new Rectangle(x - 1, 0, 3, height);
 	}
 
 	/**
@@ -604,6 +694,10 @@ public final class PianoRollView extends JPanel {
 		if (paintMode != PaintMode.ACTIVE_PART) {
 			paintMMLTrack(g, trackIndex, mmlManager.getMMLScore().getTrack(trackIndex));
 		}
+	}
+
+	private void paintActivePart(Graphics2D g) {
+		int trackIndex = mmlManager.getActiveTrackIndex();
 		MMLEventList activePart = mmlManager.getActiveMMLPart();
 		if (activePart != null) {
 			Color rectColor = ColorManager.defaultColor().getActiveRectColor(trackIndex);
@@ -6,20 +6,32 @@ package jp.fourthline.mabiicco.ui;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.EventQueue;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.HierarchyEvent;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.Timer;
 
 import jp.fourthline.mabiicco.ActionDispatcher;
 import jp.fourthline.mabiicco.AppResource;
 import jp.fourthline.mabiicco.midi.MabiDLS;
+import jp.fourthline.mabiicco.midi.VoiceStatistics;
 
-public final class PolyphonyMonitor implements Runnable {
+/**
+ * 発音数モニター.
+ *   VoiceStatistics の変更通知で更新する. 表示中のみ通知を受けるので, 非表示時は処理しない.
+ */
+public final class PolyphonyMonitor {
 	private static final int BAR_W = 3;
 	private static final int MAX_V = 256;
 	private static final int M_HEIGHT = 80;
@@ -28,14 +40,28 @@ public final class PolyphonyMonitor implements Runnable {
 	private int max = 0;
 	private final JDialog dialog;
 	private final JTextField textField = new JTextField(9);
+	private final JLabel rateLabel = new JLabel();
 	private final JPanel mainPanel;
 
+	private final VoiceStatistics statistics = MabiDLS.getInstance().getVoiceStatistics();
+	private final AtomicBoolean updateQueued = new AtomicBoolean(false);
+	private final Runnable listener = () -> {
+		// 通知はシーケンサのスレッドから来るので, EDTでまとめて更新する.
+		if (updateQueued.compareAndSet(false, true)) {
+			EventQueue.invokeLater(this::update);
+		}
+	};
+	private boolean subscribed = false;
+
+	/** NoteOnレートの更新 (ダイアログ表示中のみ) */
+	private final Timer rateTimer = new Timer(1000, t -> updateRate());
+	private long lastNoteOnCount = 0;
+
 	private static PolyphonyMonitor instance = null;
 	public static PolyphonyMonitor getInstance() {
 		if (instance == null) {
 			instance = new PolyphonyMonitor();
 			ActionDispatcher.getInstance().addUpdateUIComponent(instance.dialog);
-			new Thread(instance, "PolyphonyMonitor").start();
 		}
 		return instance;
 	}
@@ -54,6 +80,7 @@ public final class PolyphonyMonitor implements Runnable {
 		closeButton.addActionListener(t -> hide());
 
 		JPanel buttonPanel = new JPanel();
+		buttonPanel.add(rateLabel);
 		buttonPanel.add(clearButton);
 		buttonPanel.add(closeButton);
 
@@ -68,6 +95,47 @@ public final class PolyphonyMonitor implements Runnable {
 		textField.setFocusable(false);
 		textField.setFont(AppResource.MONO_FONT);
 		setValue(0);
+		updateRate();
+
+		textField.addHierarchyListener(e -> {
+			if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+				updateSubscription();
+			}
+		});
+		dialog.addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentShown(ComponentEvent e) {
+				updateSubscription();
+			}
+
+			@Override
+			public void componentHidden(ComponentEvent e) {
+				updateSubscription();
+			}
+		});
+	}
+
+	/**
+	 * 表示中の場合のみ, 統計の変更通知を受ける.
+	 */
+	private void updateSubscription() {
+		boolean visible = textField.isShowing() || dialog.isVisible();
+		if (visible != subscribed) {
+			subscribed = visible;
+			if (visible) {
+				statistics.addListener(listener);
+				update();
+			} else {
+				statistics.removeListener(listener);
+			}
+		}
+
+		if (dialog.isVisible()) {
+			lastNoteOnCount = statistics.getNoteOnCount();
+			rateTimer.start();
+		} else {
+			rateTimer.stop();
+		}
 	}
 
 	public JPanel createMainPanel() {
@@ -116,7 +184,7 @@ public final class PolyphonyMonitor implements Runnable {
 
 	private void setValue(int v) {
 		this.value = v;
-		max = Math.max(max, v);
+		max = statistics.getPeak();
 		StringBuilder sb = new StringBuilder();
 		sb.append("Poly:");
 		if (v < 10) {
@@ -133,13 +201,15 @@ public final class PolyphonyMonitor implements Runnable {
 		}
 	}
 
-	public void update() {
-		var status = MabiDLS.getInstance().getSynthesizer().getVoiceStatus();
-		int count = 0;
-		for (var i : status) {
-			if ((i.active) && (i.volume > 0)) count++;
-		}
-		setValue(count);
+	private void update() {
+		updateQueued.set(false);
+		setValue(statistics.getActiveCount());
+	}
+
+	private void updateRate() {
+		long count = statistics.getNoteOnCount();
+		rateLabel.setText("NoteOn: " + (count - lastNoteOnCount) + "/s");
+		lastNoteOnCount = count;
 	}
 
 	public void show(JFrame parent) {
@@ -154,17 +224,8 @@ public final class PolyphonyMonitor implements Runnable {
 	}
 
 	private void reset() {
-		max = 0;
+		statistics.resetPeak();
+		max = statistics.getPeak();
 		mainPanel.repaint();
 	}
-
-	@Override
-	public void run() {
-		while (true) {
-			try {
-				update();
-				Thread.sleep(100);
-			} catch (Exception e) {}
-		}
-	}
 }
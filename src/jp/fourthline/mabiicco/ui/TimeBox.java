@@ -12,8 +12,7 @@ import javax.swing.JComboBox;
 
 import jp.fourthline.mabiicco.midi.MabiDLS;
 import jp.fourthline.mmlTools.MMLScore;
-import jp.fourthline.mmlTools.MMLTempoConverter;
-import jp.fourthline.mmlTools.MMLTempoEvent;
+import jp.fourthline.mmlTools.TempoMap;
 
 
 /**
@@ -51,11 +50,11 @@ public final class TimeBox extends JComboBox<StringBuffer> implements Runnable {
 	 */
 	private void update(long position) {
 		MMLScore score = mmlManager.getMMLScore();
-		List<MMLTempoEvent> tempoList = score.getTempoEventList();
-		long time = Math.round(MMLTempoConverter.getTimeOnTickOffset(tempoList, (int)position));
+		TempoMap tempoMap = score.getTempoMap();
+		long time = Math.round(tempoMap.getTimeOnTickOffset((int)position));
 		int totalTick = score.getTotalTickLength();
-		long totalTime = Math.round(MMLTempoConverter.getTimeOnTickOffset(tempoList, totalTick));
-		int tempo = MMLTempoEvent.searchOnTick(tempoList, (int)position);
+		long totalTime = Math.round(tempoMap.getTimeOnTickOffset(totalTick));
+		int tempo = tempoMap.getTempoOnTick(position);
 
 		String str1 = String.format("time %d:%02d.%d/%d:%02d.%d (t%d)", 
 				(time/60/1000), (time/1000%60), (time/100%10),
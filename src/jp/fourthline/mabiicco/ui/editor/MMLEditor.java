@@ -782,6 +782,8 @@ public final class MMLEditor implements MouseInputListener, IEditState, IEditCon
 		for (MMLNoteEvent noteEvent : selectedNote) {
 			noteEvent.setMute(mute);
 		}
+		// ミュートはUndoの状態に含まれないので, 描画キャッシュをここで更新する.
+		pianoRollView.updateContent();
 		pianoRollView.repaint();
 	}
 
@@ -794,6 +796,7 @@ public final class MMLEditor implements MouseInputListener, IEditState, IEditCon
 				}
 			}
 		}
+		pianoRollView.updateContent();
 		pianoRollView.repaint();
 	}
 
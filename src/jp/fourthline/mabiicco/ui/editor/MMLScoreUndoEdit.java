@@ -11,8 +11,6 @@ import java.io.PrintStream;
 import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.Base64;
-import java.util.Stack;
 
 import javax.swing.undo.AbstractUndoableEdit;
 import javax.swing.undo.CannotRedoException;
@@ -25,13 +23,17 @@ import jp.fourthline.mabiicco.ui.IMMLManager;
 import jp.fourthline.mmlTools.MMLScore;
 
 public final class MMLScoreUndoEdit extends AbstractUndoableEdit implements IFileState {
-	private static final long serialVersionUID = 4093930608712571204L;
+	private static final long serialVersionUID = 4093930608712571205L;
 
 	private IFileStateObserver fileStateObserver = null;
+	/** スコアの内容が変わったとき (保存, 復元, undo, redo) に呼ぶ処理 */
+	private Runnable stateChangeListener = () -> {};
 
-	private static final int MAX_UNDO = 20;
-	private final Stack<byte[]> undoState = new Stack<>();
-	private final Stack<byte[]> redoState = new Stack<>();
+	private static final int MAX_UNDO = 200;
+	/** 差分の合計サイズの上限 */
+	private static final long MAX_UNDO_BYTES = 32L << 20;
+	private final UndoStateStack undoState = new UndoStateStack(MAX_UNDO, MAX_UNDO_BYTES);
+	private final UndoStateStack redoState = new UndoStateStack(MAX_UNDO, MAX_UNDO_BYTES);
 
 	private final IMMLManager mmlManager;
 	private int originalIndex = 0; /** オリジナル位置. undo/redo範囲外になった場合は 負値. 0~size-1 */
@@ -48,21 +50,23 @@ public final class MMLScoreUndoEdit extends AbstractUndoableEdit implements IFil
 		saveState();
 	}
 
+	/**
+	 * 現在のスコアの状態を保存する. 別スレッドで実行中のMML生成があれば, その結果を反映してから保存する.
+	 */
 	@Override
 	public void saveState() {
+		mmlManager.flushGenerate();
 		MMLScore score = mmlManager.getMMLScore();
 		byte[] state = score.getObjectState();
 		if ( !undoState.empty() && Arrays.equals(state, undoState.lastElement()) ) {
 			return;
 		}
 
-		undoState.push(state);
-		redoState.clear();
-
-		if (undoState.size() > MAX_UNDO) {
-			undoState.remove(0);
+		if (undoState.push(state)) {
 			originalIndex = -1;
 		}
+		redoState.clear();
+		stateChangeListener.run();
 
 		if (fileStateObserver != null)
 			fileStateObserver.notifyUpdateFileState();
@@ -74,6 +78,7 @@ public final class MMLScoreUndoEdit extends AbstractUndoableEdit implements IFil
 	public void revertState() {
 		MMLScore score = mmlManager.getMMLScore();
 		score.putObjectState(undoState.lastElement());
+		stateChangeListener.run();
 	}
 
 	@Override
@@ -85,7 +90,7 @@ public final class MMLScoreUndoEdit extends AbstractUndoableEdit implements IFil
 			byte[] nextState = undoState.pop();
 			score.putObjectState(undoState.lastElement());
 			redoState.push(nextState);
-			makeBackup();
+			stateChangeListener.run();
 			if (fileStateObserver != null)
 				fileStateObserver.notifyUpdateFileState();
 		}
@@ -99,8 +104,10 @@ public final class MMLScoreUndoEdit extends AbstractUndoableEdit implements IFil
 		if (canRedo()) {
 			byte[] state = redoState.pop();
 			score.putObjectState(state);
-			undoState.push(state);
-			makeBackup();
+			if (undoState.push(state)) {
+				originalIndex = -1;
+			}
+			stateChangeListener.run();
 			if (fileStateObserver != null)
 				fileStateObserver.notifyUpdateFileState();
 		}
@@ -131,6 +138,10 @@ public final class MMLScoreUndoEdit extends AbstractUndoableEdit implements IFil
 		this.fileStateObserver = observer;
 	}
 
+	public void setStateChangeListener(Runnable listener) {
+		this.stateChangeListener = (listener != null) ? listener : () -> {};
+	}
+
 	private String makeBackup() {
 		String str = null;
 		try {
@@ -141,31 +152,16 @@ public final class MMLScoreUndoEdit extends AbstractUndoableEdit implements IFil
 		return str;
 	}
 
-	private void writeStack(PrintStream out, Stack<byte[]> data) throws IOException {
-		out.println(data.size());
-		for (byte[] datum : data) {
-			out.println(Base64.getEncoder().encodeToString(datum));
-		}
-	}
-
-	private void readStack(BufferedReader in, Stack<byte[]> data) throws IOException {
-		data.clear();
-		int count = Integer.parseInt(in.readLine());
-		for (int i = 0; i < count; i++) {
-			data.add( Base64.getDecoder().decode( in.readLine() ));
-		}
-	}
-
 	private String makeBackupString() throws IOException {
 		ByteArrayOutputStream bstream = new ByteArrayOutputStream();
 		PrintStream pstream = new PrintStream(bstream, false, StandardCharsets.UTF_8);
 		pstream.println(serialVersionUID);
 
-		// undoState@Stack<byte[]>
-		writeStack(pstream, undoState);
+		// undoState@UndoStateStack
+		undoState.writeTo(pstream);
 
-		// redoState@Stack<byte[]>
-		writeStack(pstream, redoState);
+		// redoState@UndoStateStack
+		redoState.writeTo(pstream);
 
 		// originalIndex@int
 		pstream.println(originalIndex);
@@ -181,11 +177,11 @@ public final class MMLScoreUndoEdit extends AbstractUndoableEdit implements IFil
 			return false;
 		}
 
-		// undoState@Stack<byte[]>
-		readStack(breader, undoState);
+		// undoState@UndoStateStack
+		undoState.readFrom(breader);
 
-		// redoState@Stack<byte[]>
-		readStack(breader, redoState);
+		// redoState@UndoStateStack
+		redoState.readFrom(breader);
 
 		// originalIndex@int
 		originalIndex = Integer.parseInt( breader.readLine() );
@@ -199,9 +195,7 @@ public final class MMLScoreUndoEdit extends AbstractUndoableEdit implements IFil
 			if (data == null) {
 				return false;
 			}
-			boolean result = parseBackupString(new String(data));
-			makeBackup();
-			return result;
+			return parseBackupString(new String(data));
 		} catch (NumberFormatException | IOException e) {
 			System.out.println(e.getMessage());
 		}
@@ -7,14 +7,16 @@ package jp.fourthline.mabiicco.ui.editor;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.EventQueue;
 import java.awt.Frame;
 import java.awt.Window;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -23,6 +25,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JTextPane;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.AncestorEvent;
 import javax.swing.event.AncestorListener;
 import javax.swing.event.CaretEvent;
@@ -77,8 +80,20 @@ public final class MMLTextEditor implements DocumentListener, CaretListener {
 		return attr;
 	}
 
-	// コメント文解析用
-	private final List<Pattern> commentPatterns = List.of(Pattern.compile("/\\*/?([^/]|[^*]/)*\\*/"), Pattern.compile("//.*\n"));
+	private final MMLTextHighlighter highlighter = new MMLTextHighlighter(doc, emptyStyle, normalStyle, tokenStyle, commentStyle);
+	private boolean restyleQueued = false;
+
+	/** 入力が止まってからMMLを解析するまでの時間 (ms) */
+	private static final int PARSE_DELAY = 150;
+	private static final ExecutorService parseExecutor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "MMLTextParse");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Timer parseTimer = new Timer(PARSE_DELAY, t -> startParse());
+	/** 解析要求ごとに進める. 古い解析結果を反映しないために使う. */
+	private int parseGeneration = 0;
+	private boolean parsing = false;
 
 	// もとのMMLイベントリスト: キャンセル時に使う
 	private final MMLEventList originalList;
@@ -120,7 +135,9 @@ public final class MMLTextEditor implements DocumentListener, CaretListener {
 		// テンポありの汎用出力.
 		String text = new MMLStringOptimizer(mmlBuilder.toMMLString(true, false)).optimizeForTextEditor();
 		textPane.setText(text);
-		applyStyle();
+		highlighter.restyleAll();
+		setMML(text);
+		parseTimer.setRepeats(false);
 
 		this.parentFrame = parentFrame;
 		this.dialog = new JDialog(parentFrame, AppResource.appText("mml.text_edit"), true);
@@ -138,8 +155,13 @@ public final class MMLTextEditor implements DocumentListener, CaretListener {
 		this.panel = new JPanel(new BorderLayout());
 		panel.add(scrollPane, BorderLayout.CENTER);
 
-		okButton.addActionListener(t -> applyAction());
-		okButton.addActionListener(t -> dialog.setVisible(false));
+		okButton.addActionListener(t -> {
+			flushMML();
+			if (okButton.isEnabled()) {
+				applyAction();
+				dialog.setVisible(false);
+			}
+		});
 		cancelButton.addActionListener(t -> cancelAction());
 		cancelButton.addActionListener(t -> dialog.setVisible(false));
 
@@ -154,56 +176,103 @@ public final class MMLTextEditor implements DocumentListener, CaretListener {
 		initialPosition = (pianoRollView != null) ? pianoRollView.getSequencePosition() : 0;
 	}
 
-	private void applyStyle() {
+	/**
+	 * ドキュメントの変更を受けて, 変更された行のスタイル設定と, MMLの解析を予約する.
+	 */
+	private void documentChanged(DocumentEvent e) {
+		highlighter.update(e);
+		if (!restyleQueued) {
+			// 通知中はスタイルを変更できないので, あとで行う.
+			restyleQueued = true;
+			SwingUtilities.invokeLater(() -> {
+				restyleQueued = false;
+				highlighter.restyle();
+			});
+		}
+		parseTimer.restart();
+	}
+
+	/**
+	 * 入力が止まったら, 別スレッドでMMLを解析する.
+	 */
+	private void startParse() {
+		String text;
 		try {
-			String text = doc.getText(0, doc.getLength());
-			doc.setCharacterAttributes(0, text.length(), emptyStyle, true);
-			MMLTokenizer tokenizer = new MMLTokenizer(text);
-			while (tokenizer.hasNext()) {
-				String s = tokenizer.next();
-				int i[] = tokenizer.getIndex();
-				var style = MMLTokenizer.isNote(s.charAt(0)) ? normalStyle : tokenStyle;
-				doc.setCharacterAttributes(i[0], 1, style, true);
+			text = doc.getText(0, doc.getLength());
+		} catch (BadLocationException e) {
+			return;
+		}
+		int generation = ++parseGeneration;
+		int startOffset = getStartOffset();
+		parsing = true;
+		CompletableFuture.supplyAsync(() -> parseMML(text, startOffset), parseExecutor)
+		.thenAccept(result -> EventQueue.invokeLater(() -> {
+			if (generation == parseGeneration) {
+				parsing = false;
+				setParseResult(result);
+				if (parentFrame != null) {
+					parentFrame.repaint();
+				}
 			}
+		}));
+	}
 
-			// コメントのスタイル設定
-			commentPatterns.forEach(ptn -> {
-				Matcher m = ptn.matcher(text + '\n');
-				for (int i = 0; m.find(i); i = m.end()) {
-					int start = m.start();
-					int end = m.end();
-					doc.setCharacterAttributes(start, end-start, commentStyle, true);
-				}
-			});
+	/**
+	 * 解析待ち, 解析中のMMLがあれば, 現在のテキストで解析して反映する.
+	 */
+	private void flushMML() {
+		if (parseTimer.isRunning() || parsing) {
+			parseTimer.stop();
+			parseGeneration++;
+			parsing = false;
+			try {
+				setMML(doc.getText(0, doc.getLength()));
+			} catch (BadLocationException e) {}
+		}
+	}
 
-			setMML(text);
-			if (parentFrame != null) {
-				parentFrame.repaint();
-			}
-		} catch (BadLocationException e) {}
+	private int getStartOffset() {
+		int index = mmlManager.getActiveMMLPartIndex();
+		return mmlManager.getActiveTrack().getStartOffset(index);
 	}
 
-	public void setMML(String text) {
+	private record ParseResult(MMLEventList eventList, boolean allow) {}
+
+	/**
+	 * MMLを解析する. 編集中のデータにアクセスしないので, 別スレッドで実行できる.
+	 */
+	private static ParseResult parseMML(String text, int startOffset) {
 		text = MMLFile.toMMLText(text);
 		boolean allow = true;
-		int index = mmlManager.getActiveMMLPartIndex();
-		int startOffset = mmlManager.getActiveTrack().getStartOffset(index);
 		var eventList = new MMLEventList(text, null, startOffset); // グローバルテンポリストから切り離す
 		try {
 			eventList.getInternalMMLString();
 		} catch (MMLExceptionList e) {
 			allow = false;
 		}
+		return new ParseResult(eventList, allow);
+	}
+
+	public void setMML(String text) {
+		setParseResult(parseMML(text, getStartOffset()));
+	}
+
+	private void setParseResult(ParseResult result) {
+		var eventList = result.eventList;
+		int index = mmlManager.getActiveMMLPartIndex();
 		mmlManager.getActiveTrack().getMMLEventList().set(index, eventList);
 		var tempoList = mmlManager.getMMLScore().getTempoEventList();
 		tempoList.clear();
 		MMLTempoEvent.mergeTempoList(originalTempoList, tempoList);
 		MMLTempoEvent.mergeTempoList(eventList.getGlobalTempoList(), tempoList);
 
-		okButton.setEnabled(allow);
+		okButton.setEnabled(result.allow);
 	}
 
 	public void cancelAction() {
+		parseTimer.stop();
+		parseGeneration++;
+		parsing = false;
 		int index = mmlManager.getActiveMMLPartIndex();
 		mmlManager.getActiveTrack().getMMLEventList().set(index, originalList);
 		var tempoList = mmlManager.getMMLScore().getTempoEventList();
@@ -218,6 +287,7 @@ public final class MMLTextEditor implements DocumentListener, CaretListener {
 	}
 
 	public void applyAction() {
+		flushMML();
 		int index = mmlManager.getActiveMMLPartIndex();
 		// グローバルテンポリストに設定する
 		mmlManager.getActiveTrack().getMMLEventList().get(index).setGlobalTempoList(originalList.getGlobalTempoList());
@@ -237,12 +307,12 @@ public final class MMLTextEditor implements DocumentListener, CaretListener {
 
 	@Override
 	public void insertUpdate(DocumentEvent e) {
-		SwingUtilities.invokeLater(() -> applyStyle());
+		documentChanged(e);
 	}
 
 	@Override
 	public void removeUpdate(DocumentEvent e) {
-		SwingUtilities.invokeLater(() -> applyStyle());
+		documentChanged(e);
 	}
 
 	@Override
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.ui.editor;
+
+import java.util.ArrayList;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.StyledDocument;
+
+import jp.fourthline.mmlTools.core.MMLTokenizer;
+
+/**
+ * MMLテキストのスタイル設定.
+ *   行ごとに行頭がブロックコメント中かどうかを保持し, 変更のあった行から再設定する.
+ *   変更範囲より後の行は, 行頭の状態が保持しているものと一致した時点で打ち切る.
+ *   コメントの扱いは MMLFile.toMMLText と同じく, 行コメントをブロックコメントより優先する.
+ */
+final class MMLTextHighlighter {
+	private final StyledDocument doc;
+	private final AttributeSet emptyStyle;
+	private final AttributeSet normalStyle;
+	private final AttributeSet tokenStyle;
+	private final AttributeSet commentStyle;
+
+	/** 各行の行頭がブロックコメント中かどうか */
+	private final ArrayList<Boolean> lineState = new ArrayList<>();
+	/** 再設定が必要な行の範囲 (なしの場合は -1) */
+	private int dirtyFrom = -1;
+	private int dirtyTo = -1;
+
+	MMLTextHighlighter(StyledDocument doc, AttributeSet emptyStyle, AttributeSet normalStyle, AttributeSet tokenStyle, AttributeSet commentStyle) {
+		this.doc = doc;
+		this.emptyStyle = emptyStyle;
+		this.normalStyle = normalStyle;
+		this.tokenStyle = tokenStyle;
+		this.commentStyle = commentStyle;
+	}
+
+	/**
+	 * すべての行を再設定する.
+	 */
+	void restyleAll() {
+		lineState.clear();
+		int count = doc.getDefaultRootElement().getElementCount();
+		for (int i = 0; i < count; i++) {
+			lineState.add(false);
+		}
+		markDirty(0, count - 1);
+		restyle();
+	}
+
+	/**
+	 * ドキュメントの変更を行の状態に反映し, 変更された行を再設定の対象にする.
+	 * DocumentListener の insertUpdate, removeUpdate から呼び出す.
+	 * @param e
+	 */
+	void update(DocumentEvent e) {
+		Element root = doc.getDefaultRootElement();
+		DocumentEvent.ElementChange change = e.getChange(root);
+		// 変更された行の範囲. 挿入の場合は挿入したテキストの最後の行まで.
+		int line = root.getElementIndex(e.getOffset());
+		int lastLine = (e.getType() == DocumentEvent.EventType.INSERT) ? root.getElementIndex(e.getOffset() + e.getLength()) : line;
+		if (change != null) {
+			// 行の追加・削除. 変更位置より前の行頭は変わらないので, その状態を引き継ぐ.
+			int index = change.getIndex();
+			int removed = change.getChildrenRemoved().length;
+			int added = change.getChildrenAdded().length;
+			boolean state = (index < lineState.size()) ? lineState.get(index) : false;
+			for (int i = 0; (i < removed) && (index < lineState.size()); i++) {
+				lineState.remove(index);
+			}
+			for (int i = 0; i < added; i++) {
+				lineState.add(Math.min(index, lineState.size()), state);
+			}
+			if ( (dirtyFrom >= 0) && (dirtyTo >= index) ) {
+				dirtyTo = Math.max(index, dirtyTo + added - removed);
+			}
+			markDirty(Math.min(line, index), Math.max(lastLine, index + added - 1));
+		} else {
+			markDirty(line, lastLine);
+		}
+	}
+
+	private void markDirty(int from, int to) {
+		dirtyFrom = (dirtyFrom < 0) ? from : Math.min(dirtyFrom, from);
+		dirtyTo = Math.max(dirtyTo, to);
+	}
+
+	/**
+	 * 再設定が必要な行のスタイルを設定する.
+	 * @return 再設定した行数
+	 */
+	int restyle() {
+		if (dirtyFrom < 0) {
+			return 0;
+		}
+		Element root = doc.getDefaultRootElement();
+		int count = root.getElementCount();
+		while (lineState.size() < count) {
+			lineState.add(false);
+		}
+		while (lineState.size() > count) {
+			lineState.remove(lineState.size() - 1);
+		}
+
+		int line = Math.min(dirtyFrom, count - 1);
+		boolean inComment = lineState.get(line);
+		int styledLines = 0;
+		for (; line < count; line++) {
+			if ( (line > dirtyTo) && (lineState.get(line) == inComment) ) {
+				break;
+			}
+			lineState.set(line, inComment);
+			Element elem = root.getElement(line);
+			int end = Math.min(elem.getEndOffset(), doc.getLength());
+			inComment = styleLine(elem.getStartOffset(), end, inComment);
+			styledLines++;
+		}
+		dirtyFrom = -1;
+		dirtyTo = -1;
+		return styledLines;
+	}
+
+	/**
+	 * 1行分のスタイルを設定する.
+	 * @param start      行の開始位置
+	 * @param end        行の終了位置 (改行を含む)
+	 * @param inComment  行頭がブロックコメント中かどうか
+	 * @return 行末がブロックコメント中かどうか
+	 */
+	private boolean styleLine(int start, int end, boolean inComment) {
+		String s;
+		try {
+			s = doc.getText(start, end - start);
+		} catch (BadLocationException e) {
+			return inComment;
+		}
+		int n = s.length();
+		AttributeSet[] styles = new AttributeSet[n];
+		int i = 0;
+		while (i < n) {
+			char ch = s.charAt(i);
+			char next = (i + 1 < n) ? s.charAt(i + 1) : 0;
+			if ( (ch == '/') && (next == '/') ) {
+				// 行コメント (ブロックコメント中でも行末までを除去する)
+				fill(styles, i, n, commentStyle);
+				break;
+			} else if (inComment) {
+				if ( (ch == '*') && (next == '/') ) {
+					fill(styles, i, i + 2, commentStyle);
+					i += 2;
+					inComment = false;
+				} else {
+					styles[i++] = commentStyle;
+				}
+			} else if ( (ch == '/') && (next == '*') ) {
+				fill(styles, i, i + 2, commentStyle);
+				i += 2;
+				inComment = true;
+			} else if (MMLTokenizer.isToken(ch)) {
+				styles[i++] = MMLTokenizer.isNote(ch) ? normalStyle : tokenStyle;
+			} else {
+				styles[i++] = emptyStyle;
+			}
+		}
+
+		// 同じスタイルが続く範囲ごとに設定する.
+		for (int runStart = 0; runStart < n; ) {
+			int runEnd = runStart + 1;
+			while ( (runEnd < n) && (styles[runEnd] == styles[runStart]) ) {
+				runEnd++;
+			}
+			doc.setCharacterAttributes(start + runStart, runEnd - runStart, styles[runStart], true);
+			runStart = runEnd;
+		}
+		return inComment;
+	}
+
+	private static void fill(AttributeSet[] styles, int from, int to, AttributeSet style) {
+		for (int i = from; i < to; i++) {
+			styles[i] = style;
+		}
+	}
+}
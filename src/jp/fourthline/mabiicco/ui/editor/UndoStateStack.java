@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.ui.editor;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Undo/Redo用の状態スタック.
+ *   先頭 (最新) の状態のみ全体を保持し, それより古い状態は1つ新しい状態からの差分として保持する.
+ *   差分は共通の前後を除いた中間部分のみで, 大きい場合は圧縮する.
+ */
+final class UndoStateStack {
+	private static final int COMPRESS_THRESHOLD = 256;
+
+	/**
+	 * 新しい状態から古い状態を復元するための差分.
+	 * @param prefix      先頭から共通のバイト数
+	 * @param suffix      末尾から共通のバイト数
+	 * @param length      中間部分の長さ
+	 * @param middle      中間部分 (compressed の場合は圧縮済み)
+	 * @param compressed  中間部分を圧縮しているかどうか
+	 */
+	record Delta(int prefix, int suffix, int length, byte[] middle, boolean compressed) {
+		static Delta create(byte[] newer, byte[] older) {
+			int max = Math.min(newer.length, older.length);
+			int prefix = 0;
+			while ((prefix < max) && (newer[prefix] == older[prefix])) {
+				prefix++;
+			}
+			int suffix = 0;
+			while ((suffix < max - prefix) && (newer[newer.length-1-suffix] == older[older.length-1-suffix])) {
+				suffix++;
+			}
+			int length = older.length - prefix - suffix;
+			byte[] middle = new byte[length];
+			System.arraycopy(older, prefix, middle, 0, length);
+			if (length >= COMPRESS_THRESHOLD) {
+				byte[] b = deflate(middle);
+				if (b.length < length) {
+					return new Delta(prefix, suffix, length, b, true);
+				}
+			}
+			return new Delta(prefix, suffix, length, middle, false);
+		}
+
+		byte[] apply(byte[] newer) {
+			byte[] older = new byte[prefix + length + suffix];
+			System.arraycopy(newer, 0, older, 0, prefix);
+			byte[] b = compressed ? inflate(middle, length) : middle;
+			System.arraycopy(b, 0, older, prefix, length);
+			System.arraycopy(newer, newer.length - suffix, older, prefix + length, suffix);
+			return older;
+		}
+
+		int byteSize() {
+			return middle.length;
+		}
+	}
+
+	private final int maxSize;
+	private final long maxBytes;
+
+	private byte[] top = null;
+	/** 古いものが先頭. */
+	private final Deque<Delta> deltaList = new ArrayDeque<>();
+	private long deltaBytes = 0;
+
+	/**
+	 * @param maxSize   保持する状態数の上限
+	 * @param maxBytes  差分のバイト数の上限
+	 */
+	UndoStateStack(int maxSize, long maxBytes) {
+		this.maxSize = maxSize;
+		this.maxBytes = maxBytes;
+	}
+
+	void clear() {
+		top = null;
+		deltaList.clear();
+		deltaBytes = 0;
+	}
+
+	boolean empty() {
+		return top == null;
+	}
+
+	int size() {
+		return (top == null) ? 0 : deltaList.size() + 1;
+	}
+
+	byte[] lastElement() {
+		return top;
+	}
+
+	/**
+	 * 状態を追加する. 上限を超えた場合は古いものから削除する.
+	 * @return 古い状態を削除した場合は true
+	 */
+	boolean push(byte[] state) {
+		if (top != null) {
+			Delta delta = Delta.create(state, top);
+			deltaList.addLast(delta);
+			deltaBytes += delta.byteSize();
+		}
+		top = state;
+
+		boolean removed = false;
+		while ((size() > maxSize) || ((deltaBytes > maxBytes) && (deltaList.size() > 1))) {
+			deltaBytes -= deltaList.removeFirst().byteSize();
+			removed = true;
+		}
+		return removed;
+	}
+
+	byte[] pop() {
+		byte[] state = top;
+		if (deltaList.isEmpty()) {
+			top = null;
+		} else {
+			Delta delta = deltaList.removeLast();
+			deltaBytes -= delta.byteSize();
+			top = delta.apply(state);
+		}
+		return state;
+	}
+
+	void writeTo(PrintStream out) {
+		var encoder = Base64.getEncoder();
+		out.println(size());
+		if (top != null) {
+			out.println(encoder.encodeToString(top));
+			for (Delta delta : deltaList) {
+				out.println(delta.prefix() + " " + delta.suffix() + " " + delta.length() + " " + delta.compressed() + " " + encoder.encodeToString(delta.middle()));
+			}
+		}
+	}
+
+	void readFrom(BufferedReader in) throws IOException {
+		clear();
+		var decoder = Base64.getDecoder();
+		int count = Integer.parseInt(in.readLine());
+		if (count > 0) {
+			top = decoder.decode(in.readLine());
+			for (int i = 1; i < count; i++) {
+				String[] s = in.readLine().split(" ", 5);
+				var delta = new Delta(Integer.parseInt(s[0]), Integer.parseInt(s[1]), Integer.parseInt(s[2]), decoder.decode(s[4]), Boolean.parseBoolean(s[3]));
+				deltaList.addLast(delta);
+				deltaBytes += delta.byteSize();
+			}
+		}
+	}
+
+	private static byte[] deflate(byte[] b) {
+		var deflater = new Deflater();
+		deflater.setInput(b);
+		deflater.finish();
+		var out = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		while (!deflater.finished()) {
+			int n = deflater.deflate(buf);
+			out.write(buf, 0, n);
+		}
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	private static byte[] inflate(byte[] b, int length) {
+		var inflater = new Inflater();
+		inflater.setInput(b);
+		byte[] out = new byte[length];
+		try {
+			int offset = 0;
+			while ((offset < length) && !inflater.finished()) {
+				offset += inflater.inflate(out, offset, length - offset);
+			}
+		} catch (DataFormatException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			inflater.end();
+		}
+		return out;
+	}
+}
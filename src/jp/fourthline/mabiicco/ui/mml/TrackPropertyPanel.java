@@ -26,7 +26,6 @@ import jp.fourthline.mabiicco.AppResource;
 import jp.fourthline.mabiicco.ui.IMMLManager;
 import jp.fourthline.mabiicco.ui.editor.NumberSpinner;
 import jp.fourthline.mmlTools.MMLExceptionList;
-import jp.fourthline.mmlTools.MMLTempoConverter;
 import jp.fourthline.mmlTools.MMLTrack;
 import jp.fourthline.mmlTools.MMLVerifyException;
 import jp.fourthline.mmlTools.core.MMLTicks;
@@ -290,9 +289,9 @@ public final class TrackPropertyPanel extends JPanel {
 		 */
 		private void updateLabelTickToMML(JLabel o, int tick, int partIndex) {
 			int startOffset = track.getStartOffset(partIndex);
-			var tempoList = track.getGlobalTempoList();
-			double d1 = MMLTempoConverter.getTimeOnTickOffset(tempoList, startOffset);
-			double d2 = MMLTempoConverter.getTimeOnTickOffset(tempoList, startOffset-tick);
+			var tempoMap = track.getTempoMap();
+			double d1 = tempoMap.getTimeOnTickOffset(startOffset);
+			double d2 = tempoMap.getTimeOnTickOffset(startOffset-tick);
 			long deltaTime = Math.round(d1 - d2);
 			String s = "";
 			if (tick != 0) {
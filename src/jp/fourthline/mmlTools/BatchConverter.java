@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+import jp.fourthline.mmlTools.core.MMLText;
+import jp.fourthline.mmlTools.core.MMLTickTable;
+import jp.fourthline.mmlTools.optimizer.MMLStringOptimizer;
+import jp.fourthline.mmlTools.parser.IMMLFileParser;
+import jp.fourthline.mmlTools.parser.MidiFile;
+
+/**
+ * ヘッドレスの一括変換ツール.
+ *   .mmi/.mmb/.mml/.mms/.mid を読み込み, generateAll() の結果を MML(テキスト), MIDI, .mmi, .mmb で出力する.
+ *   AWT/Swing のクラスは使用しない.
+ *   MML生成の設定は, アプリケーションの設定 (MabiIccoProperties) の初期値と同じものを既定値とする.
+ *
+ * <pre>
+ * usage: BatchConverter [-o outDir] [-j threads] [-mml] [-mid] [-mmi] [-mmb] [-cache file] [-opt level] [-no-tempo-chord] [-vzero-tempo] [-fix64] [-empty str] (file|dir)...
+ *   -opt level        MML最適化レベル (1-3, 既定値 2)
+ *   -no-tempo-chord   和音にテンポ出力を許可しない
+ *   -vzero-tempo      VZero Tempo を使用する
+ *   -fix64            fix64 Tempo を使用する
+ *   -empty str        メロディパートが空のときに入れる文字列 (既定値 "&lt;&gt;")
+ * </pre>
+ */
+public final class BatchConverter {
+	public enum Format {
+		MML(".txt"), MID(".mid"), MMI(".mmi"), MMB(".mmb");
+
+		private final String suffix;
+		private Format(String suffix) {
+			this.suffix = suffix;
+		}
+	}
+
+	private static final String[] INPUT_SUFFIX = { ".mmi", ".mmb", ".mml", ".mms", ".mid" };
+
+	/** 1ファイルの変換結果. */
+	public record Result(File file, long parseNanos, long generateNanos, long writeNanos, Exception error) {
+		public long totalNanos() {
+			return parseNanos + generateNanos + writeNanos;
+		}
+
+		public boolean isSuccess() {
+			return error == null;
+		}
+	}
+
+	private final File outDir;
+	private final EnumSet<Format> formats;
+	private final int threads;
+
+	public BatchConverter(File outDir, EnumSet<Format> formats, int threads) {
+		this.outDir = outDir;
+		this.formats = formats.isEmpty() ? EnumSet.of(Format.MML) : EnumSet.copyOf(formats);
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * 入力ファイル/ディレクトリから変換対象のファイルを列挙する.
+	 */
+	public static List<File> collectInputFiles(List<File> inputs) throws IOException {
+		List<File> list = new ArrayList<>();
+		for (File input : inputs) {
+			if (input.isDirectory()) {
+				try (Stream<Path> stream = Files.walk(input.toPath())) {
+					stream.map(Path::toFile).filter(t -> t.isFile() && isSupported(t)).sorted().forEach(list::add);
+				}
+			} else {
+				list.add(input);
+			}
+		}
+		return list;
+	}
+
+	private static boolean isSupported(File file) {
+		String name = file.getName().toLowerCase();
+		for (String suffix : INPUT_SUFFIX) {
+			if (name.endsWith(suffix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 固定サイズのワーカーで全ファイルを変換する. 結果は入力順に返す.
+	 */
+	public List<Result> convertAll(List<File> files) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Result>> futureList = new ArrayList<>();
+			for (File file : files) {
+				futureList.add(executor.submit(() -> convert(file)));
+			}
+			List<Result> resultList = new ArrayList<>();
+			for (var future : futureList) {
+				try {
+					resultList.add(future.get());
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return resultList;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * 1ファイルを変換する. 例外は Result に格納する.
+	 */
+	public Result convert(File file) {
+		long t0 = System.nanoTime();
+		long t1 = t0;
+		long t2 = t0;
+		try {
+			IMMLFileParser parser = IMMLFileParser.getParser(file);
+			MMLScore score;
+			try (InputStream in = new FileInputStream(file)) {
+				score = parser.parse(in);
+			}
+			t1 = System.nanoTime();
+			score.generateAll();
+			t2 = System.nanoTime();
+			write(file, score);
+			return new Result(file, t1 - t0, t2 - t1, System.nanoTime() - t2, null);
+		} catch (Exception e) {
+			long t3 = System.nanoTime();
+			return new Result(file, t1 - t0, Math.max(0, t2 - t1), t3 - Math.max(t1, t2), e);
+		}
+	}
+
+	private void write(File file, MMLScore score) throws IOException, InvalidMidiDataException {
+		String baseName = file.getName();
+		int index = baseName.lastIndexOf('.');
+		if (index > 0) {
+			baseName = baseName.substring(0, index);
+		}
+		File dir = (outDir != null) ? outDir : file.getAbsoluteFile().getParentFile();
+		for (Format format : formats) {
+			File outFile = new File(dir, baseName + format.suffix);
+			if (outFile.getAbsoluteFile().equals(file.getAbsoluteFile())) {
+				outFile = new File(dir, baseName + ".out" + format.suffix);
+			}
+			try (OutputStream out = new FileOutputStream(outFile)) {
+				switch (format) {
+				case MML -> out.write(toMabiMMLText(score).getBytes(StandardCharsets.UTF_8));
+				case MID -> MidiSystem.write(createSequence(score), 1, out);
+				case MMI -> new MMLScoreSerializer(score).writeToOutputStream(out);
+				case MMB -> new MMLScoreBinarySerializer(score).writeToOutputStream(out);
+				}
+			}
+		}
+	}
+
+	/**
+	 * トラック名とマビノギ用MMLを並べたテキスト.
+	 */
+	public static String toMabiMMLText(MMLScore score) {
+		StringBuilder sb = new StringBuilder();
+		for (MMLTrack track : score.getTrackList()) {
+			sb.append('[').append(track.getTrackName()).append("]\n");
+			sb.append(track.getMabiMML()).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 音源データを使わない MIDI シーケンスを作成する.
+	 *   Program はトラックの楽器番号, Velocity は音量を線形に変換したもの.
+	 */
+	public static Sequence createSequence(MMLScore score) throws InvalidMidiDataException {
+		Sequence sequence = new Sequence(Sequence.PPQ, MMLTickTable.TPQN);
+		Track tempoTrack = sequence.createTrack();
+		int totalTick = score.getTotalTickLength();
+		for (MMLTempoEvent tempoEvent : score.getTempoEventList()) {
+			if (tempoEvent.getTickOffset() >= totalTick) {
+				break;
+			}
+			byte[] tempo = tempoEvent.getMetaData();
+			tempoTrack.add(new MidiEvent(new MetaMessage(MMLTempoEvent.META, tempo, tempo.length), tempoEvent.getTickOffset()));
+		}
+
+		int channel = 0;
+		for (MMLTrack mmlTrack : score.getTrackList()) {
+			if (channel == 9) {
+				channel++;
+			}
+			if (channel > 15) {
+				break;
+			}
+			Track track = sequence.createTrack();
+			byte[] name = mmlTrack.getTrackName().getBytes(StandardCharsets.UTF_8);
+			track.add(new MidiEvent(new MetaMessage(3, name, name.length), 0));
+			track.add(new MidiEvent(new ShortMessage(ShortMessage.PROGRAM_CHANGE, channel, mmlTrack.getProgram() & 0x7f, 0), 0));
+			for (MMLEventList eventList : mmlTrack.getMMLEventList()) {
+				int velocity = MMLNoteEvent.INIT_VOL;
+				for (MMLNoteEvent noteEvent : eventList.getMMLNoteEventList()) {
+					if (noteEvent.getVelocity() >= 0) {
+						velocity = noteEvent.getVelocity();
+					}
+					int note = noteEvent.getNote() + 12;
+					if ((note < 0) || (note > 127)) {
+						continue;
+					}
+					int midiVelocity = Math.min(127, velocity * 127 / MMLNoteEvent.MAX_VOL);
+					track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, channel, note, midiVelocity), noteEvent.getTickOffset()));
+					track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, channel, note, 0), noteEvent.getEndTick()));
+				}
+			}
+			channel++;
+		}
+		return sequence;
+	}
+
+	private static void usage() {
+		System.err.println("usage: BatchConverter [-o outDir] [-j threads] [-mml] [-mid] [-mmi] [-mmb] [-cache file] [-opt level] [-no-tempo-chord] [-vzero-tempo] [-fix64] [-empty str] (file|dir)...");
+	}
+
+	public static void main(String[] args) throws Exception {
+		File outDir = null;
+		File cacheFile = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		EnumSet<Format> formats = EnumSet.noneOf(Format.class);
+		List<File> inputs = new ArrayList<>();
+		int optLevel = MMLStringOptimizer.GEN2;
+		boolean tempoAllowChordPart = true;
+		boolean vZeroTempo = false;
+		boolean fix64 = false;
+		String emptyStr = "<>";
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-o" -> outDir = new File(args[++i]);
+				case "-j" -> threads = Integer.parseInt(args[++i]);
+				case "-cache" -> cacheFile = new File(args[++i]);
+				case "-mml" -> formats.add(Format.MML);
+				case "-mid" -> formats.add(Format.MID);
+				case "-mmi" -> formats.add(Format.MMI);
+				case "-mmb" -> formats.add(Format.MMB);
+				case "-opt" -> optLevel = Integer.parseInt(args[++i]);
+				case "-no-tempo-chord" -> tempoAllowChordPart = false;
+				case "-vzero-tempo" -> vZeroTempo = true;
+				case "-fix64" -> fix64 = true;
+				case "-empty" -> emptyStr = args[++i];
+				default -> inputs.add(new File(args[i]));
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			usage();
+			System.exit(2);
+		}
+		if (inputs.isEmpty() || (optLevel < MMLStringOptimizer.GEN1) || (optLevel > MMLStringOptimizer.GEN3)) {
+			usage();
+			System.exit(2);
+		}
+		if ((outDir != null) && !outDir.isDirectory() && !outDir.mkdirs()) {
+			System.err.println("cannot create " + outDir);
+			System.exit(2);
+		}
+
+		// 音源設定の読み込み (AWT) を行わない.
+		MidiFile.setUseDLSDrumFunction(() -> false);
+
+		// アプリケーションの設定と同じMML生成設定を適用する.
+		MMLStringOptimizer.setOptimizeLevel(optLevel);
+		MMLTrack.setTempoAllowChordPart(tempoAllowChordPart);
+		MMLBuilder.setMMLVZeroTempo(vZeroTempo);
+		MMLScore.setMMLFix64(fix64);
+		MMLText.setMelodyEmptyStr(emptyStr);
+
+		var cache = MMLStringOptimizer.getCache();
+		if ((cacheFile != null) && cacheFile.exists()) {
+			try {
+				System.err.println("cache loaded: " + cache.load(cacheFile));
+			} catch (IOException e) {
+				// 壊れたキャッシュは使用しない (終了時に上書きする).
+				System.err.println("cache discarded: " + e.getMessage());
+			}
+		}
+
+		List<File> files = collectInputFiles(inputs);
+		long start = System.nanoTime();
+		List<Result> resultList = new BatchConverter(outDir, formats, threads).convertAll(files);
+		long elapsed = System.nanoTime() - start;
+
+		int errCount = 0;
+		for (Result result : resultList) {
+			if (result.isSuccess()) {
+				System.out.printf("OK    %8.1fms (parse %.1f, generate %.1f, write %.1f) %s%n",
+						result.totalNanos() / 1e6, result.parseNanos() / 1e6, result.generateNanos() / 1e6, result.writeNanos() / 1e6, result.file());
+			} else {
+				errCount++;
+				System.out.printf("ERROR %8.1fms %s: %s%n", result.totalNanos() / 1e6, result.file(), result.error());
+			}
+		}
+		double sec = elapsed / 1e9;
+		System.out.printf("%d files, %d errors, %.2fs, %.1f files/s, threads=%d%n",
+				resultList.size(), errCount, sec, (sec > 0) ? resultList.size() / sec : 0.0, threads);
+		System.out.println(cache);
+
+		if (cacheFile != null) {
+			cache.save(cacheFile);
+		}
+		System.exit(errCount == 0 ? 0 : 1);
+	}
+}
@@ -20,6 +20,10 @@ public final class MMLBuilder {
 		mmlVZeroTempo = b;
 	}
 
+	public static boolean getMMLVZeroTempo() {
+		return mmlVZeroTempo;
+	}
+
 	private final MMLEventList eventList;
 	private final int startOffset;
 	private final int initOct;
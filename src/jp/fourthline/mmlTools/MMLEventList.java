@@ -5,9 +5,11 @@
 package jp.fourthline.mmlTools;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.RandomAccess;
 
 import jp.fourthline.mmlTools.core.MMLTicks;
 import jp.fourthline.mmlTools.parser.MMLEventParser;
@@ -15,13 +17,141 @@ import jp.fourthline.mmlTools.parser.MMLEventParser;
 
 /**
  * 1行のMMLデータを扱います.
+ *   ノート内容のハッシュ値を, ノートの追加, 削除, 変更のたびに更新して保持します (比較の前の不一致判定に使う).
  */
 public final class MMLEventList implements Serializable, Cloneable {
 	private static final long serialVersionUID = -1430758411579285535L;
 
-	private List<MMLNoteEvent>   noteList   = new ArrayList<>();
+	private List<MMLNoteEvent>   noteList   = new NoteList(this);
 	private List<MMLTempoEvent>  tempoList;
 
+	/** 各ノートの MMLNoteEvent.contentHash() の和 */
+	private transient int noteHash = 0;
+	/**
+	 * noteHash が保持しているノートの内容と一致しているかどうか.
+	 * 他のリストが保持しているノートを追加した場合など, 変更の通知を受けられないノートがある場合は false とし, 都度計算する.
+	 */
+	private transient boolean noteHashTracked = true;
+
+	/**
+	 * ノートの追加, 削除時にハッシュ値を更新するリスト.
+	 *   getMMLNoteEventList() で返すので, 外部からの変更もここを通る.
+	 */
+	private static final class NoteList extends AbstractList<MMLNoteEvent> implements RandomAccess, Serializable {
+		private static final long serialVersionUID = 1L;
+		private final ArrayList<MMLNoteEvent> list = new ArrayList<>();
+		private final MMLEventList owner;
+
+		private NoteList(MMLEventList owner) {
+			this.owner = owner;
+		}
+
+		@Override
+		public MMLNoteEvent get(int index) {
+			return list.get(index);
+		}
+
+		@Override
+		public int size() {
+			return list.size();
+		}
+
+		@Override
+		public MMLNoteEvent set(int index, MMLNoteEvent element) {
+			MMLNoteEvent old = list.set(index, element);
+			if (old != element) {
+				owner.releaseNote(old);
+				owner.acquireNote(element);
+			}
+			return old;
+		}
+
+		@Override
+		public void sort(Comparator<? super MMLNoteEvent> c) {
+			// 並べ替えでは保持しているノートは変わらない.
+			list.sort(c);
+			modCount++;
+		}
+
+		@Override
+		public void add(int index, MMLNoteEvent element) {
+			list.add(index, element);
+			owner.acquireNote(element);
+			modCount++;
+		}
+
+		@Override
+		public MMLNoteEvent remove(int index) {
+			MMLNoteEvent old = list.remove(index);
+			owner.releaseNote(old);
+			modCount++;
+			return old;
+		}
+
+		@Override
+		public void clear() {
+			list.forEach(owner::releaseNote);
+			list.clear();
+			owner.noteHash = 0;
+			owner.noteHashTracked = true;
+			modCount++;
+		}
+	}
+
+	private void acquireNote(MMLNoteEvent noteEvent) {
+		if (noteEvent.owner == null) {
+			noteEvent.owner = this;
+			noteHash += noteEvent.contentHash();
+		} else {
+			// 他のリストが保持しているノート, または同じノートの重複.
+			noteHashTracked = false;
+		}
+	}
+
+	private void releaseNote(MMLNoteEvent noteEvent) {
+		if (noteEvent.owner == this) {
+			noteEvent.owner = null;
+			noteHash -= noteEvent.contentHash();
+		}
+	}
+
+	/**
+	 * 保持しているノートの内容が変更された.
+	 */
+	void noteContentChanged(int oldHash, int newHash) {
+		noteHash += newHash - oldHash;
+	}
+
+	/**
+	 * ノート内容のハッシュ値. 比較する項目は MMLNoteEvent.equals と同じ.
+	 *   通常は保持している値を返すので, 計算は不要.
+	 * @return
+	 */
+	public int noteContentHash() {
+		if (noteHashTracked) {
+			return noteHash;
+		}
+		int hash = 0;
+		for (MMLNoteEvent note : noteList) {
+			hash += note.contentHash();
+		}
+		return hash;
+	}
+
+	/**
+	 * ノートとテンポの内容のハッシュ値. 比較する項目は equals と同じ.
+	 *   テンポリストは共有のグローバルテンポで数も少ないため, 都度計算する.
+	 * @return
+	 */
+	public int contentHash() {
+		int hash = noteContentHash();
+		for (MMLTempoEvent tempo : tempoList) {
+			hash = 31 * hash + tempo.getTickOffset();
+			hash = 31 * hash + tempo.getTempo();
+		}
+		return hash;
+	}
+
 	/**
 	 * 
 	 * @param mml
@@ -91,19 +221,54 @@ public final class MMLEventList implements Serializable, Cloneable {
 		return noteList;
 	}
 
+	/**
+	 * noteListはtickOffset順に並び, ノート同士は重ならないので endTick も昇順になる.
+	 * @param tick
+	 * @return endTick が tick より大きい最初のノートのIndex. 無い場合は size.
+	 */
+	private int indexOfEndTickAfter(long tick) {
+		int low = 0;
+		int high = noteList.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (noteList.get(mid).getEndTick() > tick) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param tick
+	 * @return tickOffset が tick 以上の最初のノートのIndex. 無い場合は size.
+	 */
+	private int indexOfTickOffsetFrom(long tick) {
+		int low = 0;
+		int high = noteList.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (noteList.get(mid).getTickOffset() >= tick) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
 	/**
 	 * 指定したtickOffset位置にあるNoteEventを検索します.
 	 * @param tickOffset
 	 * @return 見つからなかった場合は、nullを返します.
 	 */
 	public MMLNoteEvent searchOnTickOffset(long tickOffset) {
-		for (MMLNoteEvent noteEvent : noteList) {
+		int index = indexOfEndTickAfter(tickOffset);
+		if (index < noteList.size()) {
+			MMLNoteEvent noteEvent = noteList.get(index);
 			if (noteEvent.getTickOffset() <= tickOffset) {
-				if (tickOffset < noteEvent.getEndTick()) {
-					return noteEvent;
-				}
-			} else {
-				break;
+				return noteEvent;
 			}
 		}
 
@@ -116,14 +281,8 @@ public final class MMLEventList implements Serializable, Cloneable {
 	 * @return
 	 */
 	public MMLNoteEvent searchPrevNoteOnTickOffset(long tickOffset) {
-		MMLNoteEvent prevNote = null;
-		for (MMLNoteEvent noteEvent : noteList) {
-			if (noteEvent.getTickOffset() >= tickOffset) {
-				break;
-			}
-			prevNote = noteEvent;
-		}
-		return prevNote;
+		int index = indexOfTickOffsetFrom(tickOffset) - 1;
+		return (index >= 0) ? noteList.get(index) : null;
 	}
 
 	/**
@@ -132,17 +291,15 @@ public final class MMLEventList implements Serializable, Cloneable {
 	 * @return
 	 */
 	public int[] indexOfMMLString(long tickOffset) {
-		int start = 0;
-		for (MMLNoteEvent noteEvent : noteList) {
+		int i = indexOfEndTickAfter(tickOffset);
+		int start = (i > 0) ? noteList.get(i-1).getIndexOfMMLString()[1] : 0;
+		if (i < noteList.size()) {
+			MMLNoteEvent noteEvent = noteList.get(i);
 			int[] index = noteEvent.getIndexOfMMLString();
 			if (noteEvent.getTickOffset() <= tickOffset) {
-				if (tickOffset < noteEvent.getEndTick()) {
-					return index;
-				}
-			} else {
-				return new int[] { start, index[0] };
+				return index;
 			}
-			start = index[1];
+			return new int[] { start, index[0] };
 		}
 		return new int[] { start, start };
 	}
@@ -164,22 +321,18 @@ public final class MMLEventList implements Serializable, Cloneable {
 		}
 
 		// 追加したノートイベントに重なる前のノートを調節します.
-		for (i = 0; i < noteList.size(); i++) {
+		i = indexOfEndTickAfter(addNoteEvent.getTickOffset() - 1L);
+		if (i < noteList.size()) {
 			MMLNoteEvent noteEvent = noteList.get(i);
 			int tickOverlap = noteEvent.getEndTick() - addNoteEvent.getTickOffset();
-			if (addNoteEvent.getTickOffset() < noteEvent.getTickOffset()) {
-				break;
-			}
-			if (tickOverlap >= 0) {
+			if (addNoteEvent.getTickOffset() >= noteEvent.getTickOffset()) {
 				// 追加するノートに音が重なっている.
 				int tick = noteEvent.getTick() - tickOverlap;
 				if (tick == 0) {
 					noteList.remove(i);
-					break;
 				} else {
 					noteEvent.setTick(tick);
 					i++;
-					break;
 				}
 			}
 		}
@@ -206,24 +359,17 @@ public final class MMLEventList implements Serializable, Cloneable {
 	 * @return 重複している場合は trueを返します.
 	 */
 	public boolean isOverlapNote(MMLNoteEvent noteEvent) {
-		int i;
 		int size = noteList.size();
-		for (i = 0; i < size; i++) {
-			MMLNoteEvent e = noteList.get(i);
-			if (noteEvent.getTickOffset() < e.getEndTick()) {
-				if (noteEvent.getTickOffset() >= e.getTickOffset()) {
-					return true;
-				}
-				break;
+		int i = indexOfEndTickAfter(noteEvent.getTickOffset());
+		if (i < size) {
+			if (noteEvent.getTickOffset() >= noteList.get(i).getTickOffset()) {
+				return true;
 			}
 		}
-		for (; i < size; i++) {
-			MMLNoteEvent e = noteList.get(i);
-			if (noteEvent.getEndTick() <= e.getEndTick()) {
-				if (noteEvent.getEndTick()-1 >= e.getTickOffset()) {
-					return true;
-				}
-				break;
+		i = Math.max(i, indexOfEndTickAfter(noteEvent.getEndTick() - 1L));
+		if (i < size) {
+			if (noteEvent.getEndTick()-1 >= noteList.get(i).getTickOffset()) {
+				return true;
 			}
 		}
 		return false;
@@ -282,7 +428,9 @@ public final class MMLEventList implements Serializable, Cloneable {
 	public MMLEventList clone() {
 		try {
 			MMLEventList obj = (MMLEventList) super.clone();
-			obj.noteList = new ArrayList<>();
+			obj.noteList = new NoteList(obj);
+			obj.noteHash = 0;
+			obj.noteHashTracked = true;
 			for (MMLNoteEvent note : noteList) {
 				obj.noteList.add(note.clone());
 			}
@@ -400,8 +548,11 @@ public final class MMLEventList implements Serializable, Cloneable {
 		}
 
 		MMLEventList eventList = (MMLEventList) obj;
-		return Arrays.equals(this.noteList.toArray(), eventList.noteList.toArray()) &&
-				Arrays.equals(this.tempoList.toArray(), eventList.tempoList.toArray());
+		if (noteContentHash() != eventList.noteContentHash()) {
+			return false;
+		}
+		return this.noteList.equals(eventList.noteList) &&
+				this.tempoList.equals(eventList.tempoList);
 	}
 
 	public MMLNoteEvent getLastNote() {
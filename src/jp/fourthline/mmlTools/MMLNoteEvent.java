@@ -24,6 +24,9 @@ public final class MMLNoteEvent extends MMLEvent implements Cloneable {
 
 	private boolean mute = false; // 一時ミュート
 
+	/** このノートを保持している MMLEventList. 内容の変更を通知して, リストのハッシュ値を更新する. */
+	transient MMLEventList owner = null;
+
 	public MMLNoteEvent(int note, int tickLength, int tickOffset) {
 		this(note, tickLength, tickOffset, INIT_VOL);
 	}
@@ -47,7 +50,9 @@ public final class MMLNoteEvent extends MMLEvent implements Cloneable {
 	}
 
 	public void setNote(int note) {
+		int oldHash = contentHash();
 		this.note = note;
+		contentChanged(oldHash);
 	}
 
 	public int getTick() {
@@ -59,7 +64,9 @@ public final class MMLNoteEvent extends MMLEvent implements Cloneable {
 	}
 
 	public void setTick(int tick) {
+		int oldHash = contentHash();
 		this.tick = tick;
+		contentChanged(oldHash);
 	}
 
 	public boolean isTuningNote() {
@@ -71,7 +78,9 @@ public final class MMLNoteEvent extends MMLEvent implements Cloneable {
 	}
 
 	public void setTuningNote(TuningBase base) {
+		int oldHash = contentHash();
 		this.tuningBase = base;
+		contentChanged(oldHash);
 	}
 
 	public int getVelocity() {
@@ -84,7 +93,9 @@ public final class MMLNoteEvent extends MMLEvent implements Cloneable {
 		} else if (velocity > MAX_VOL) {
 			velocity = MAX_VOL;
 		}
+		int oldHash = contentHash();
 		this.velocity = velocity;
+		contentChanged(oldHash);
 	}
 
 	public void modifyVelocity(boolean inc) {
@@ -99,6 +110,32 @@ public final class MMLNoteEvent extends MMLEvent implements Cloneable {
 		this.indexOfMMLString = index;
 	}
 
+	@Override
+	public void setTickOffset(int tickOffset) {
+		int oldHash = contentHash();
+		super.setTickOffset(tickOffset);
+		contentChanged(oldHash);
+	}
+
+	/**
+	 * ノート内容のハッシュ値. 比較する項目は equals と同じ (ミュートは含まない).
+	 * @return
+	 */
+	public int contentHash() {
+		int hash = getTickOffset();
+		hash = 31 * hash + tick;
+		hash = 31 * hash + note;
+		hash = 31 * hash + velocity;
+		hash = 31 * hash + ((tuningBase != null) ? (tuningBase.ordinal() + 1) : 0);
+		return hash;
+	}
+
+	private void contentChanged(int oldHash) {
+		if (owner != null) {
+			owner.noteContentChanged(oldHash, contentHash());
+		}
+	}
+
 	public boolean isMute() {
 		return mute;
 	}
@@ -210,7 +247,9 @@ public final class MMLNoteEvent extends MMLEvent implements Cloneable {
 	@Override
 	public MMLNoteEvent clone() {
 		try {
-			return (MMLNoteEvent) super.clone();
+			var obj = (MMLNoteEvent) super.clone();
+			obj.owner = null;
+			return obj;
 		} catch (CloneNotSupportedException e) {
 			throw new AssertionError(e.getMessage());
 		}
@@ -7,6 +7,7 @@ package jp.fourthline.mmlTools;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -24,8 +25,23 @@ import jp.fourthline.mmlTools.parser.MMSFile;
 public final class MMLScore implements Cloneable {
 	private final LinkedList<MMLTrack> trackList = new LinkedList<>();
 	private final List<MMLTempoEvent> globalTempoList = new ArrayList<>();
+	/** globalTempoList の変換表のキャッシュ */
+	private volatile TempoMap tempoMap;
 	private final List<Marker> markerList = new ArrayList<>();
-	private final List<TimeSignature> timeSignatureList = new ArrayList<>();
+	private final TimeSignatureList timeSignatureList = new TimeSignatureList();
+	private MeasureIndex measureIndex = null;
+	private int measureIndexModCount;
+
+	/**
+	 * 直接の追加/削除を検出できるように, 構造変更の回数を公開する拍子記号リスト.
+	 */
+	private static final class TimeSignatureList extends ArrayList<TimeSignature> {
+		private static final long serialVersionUID = -3093745167297463620L;
+
+		private int getModCount() {
+			return modCount;
+		}
+	}
 
 	public static final int MAX_TRACK = 24;
 
@@ -138,6 +154,16 @@ public final class MMLScore implements Cloneable {
 		return globalTempoList;
 	}
 
+	/**
+	 * テンポリストの変換表を返す. テンポリストが変更されていなければ, 前回作成したものを返す.
+	 * @return
+	 */
+	public TempoMap getTempoMap() {
+		TempoMap map = TempoMap.of(tempoMap, globalTempoList);
+		tempoMap = map;
+		return map;
+	}
+
 	public List<Marker> getMarkerList() {
 		return markerList;
 	}
@@ -146,6 +172,27 @@ public final class MMLScore implements Cloneable {
 		return timeSignatureList;
 	}
 
+	/**
+	 * 拍子記号リストから作成したtickと小節の変換表を返します.
+	 *   拍子記号, 基本拍子を変更するまではキャッシュしたものを返します.
+	 * @return
+	 */
+	public synchronized MeasureIndex getMeasureIndex() {
+		int modCount = timeSignatureList.getModCount();
+		if ((measureIndex == null) || (measureIndexModCount != modCount)) {
+			measureIndex = new MeasureIndex(this);
+			measureIndexModCount = modCount;
+		}
+		return measureIndex;
+	}
+
+	/**
+	 * 拍子記号の小節位置や基本拍子を変更したときに, 変換表のキャッシュを破棄します.
+	 */
+	synchronized void invalidateMeasureIndex() {
+		measureIndex = null;
+	}
+
 	public void setTitle(String title) {
 		this.title = title;
 	}
@@ -298,7 +345,7 @@ public final class MMLScore implements Cloneable {
 	 */
 	public long getTotalTime() {
 		int totalTick = getTotalTickLength();
-		return Math.round(MMLTempoConverter.getTimeOnTickOffset(globalTempoList, totalTick));
+		return Math.round(getTempoMap().getTimeOnTickOffset(totalTick));
 	}
 
 	public byte[] getObjectState() {
@@ -309,6 +356,10 @@ public final class MMLScore implements Cloneable {
 
 	public void putObjectState(byte[] objState) {
 		try {
+			if (MMLScoreBinarySerializer.isBinary(objState)) {
+				new MMLScoreBinarySerializer(this).parse(ByteBuffer.wrap(objState));
+				return;
+			}
 			ByteArrayInputStream bis = new ByteArrayInputStream(objState);
 			new MMLScoreSerializer(this).parse(bis);
 		} catch (Exception e) {
@@ -347,6 +398,13 @@ public final class MMLScore implements Cloneable {
 		return this;
 	}
 
+	/**
+	 * 全トラックのMMLを生成する.
+	 * 前回の生成以降に変更のない (テンポ変更も含む) トラックは再生成しない.
+	 * @return
+	 * @throws MMLExceptionList
+	 * @throws MMLVerifyException
+	 */
 	public MMLScore generateAll() throws MMLExceptionList, MMLVerifyException {
 		verifyErrStack.clear();
 		mmlErrStack.clear();
@@ -369,6 +427,34 @@ public final class MMLScore implements Cloneable {
 		return this;
 	}
 
+	/**
+	 * 別スレッドで generateAll するためのスナップショットを作成する.
+	 *   トラックとテンポのみを複製し, 前回の生成結果を引き継ぐ.
+	 * @return
+	 */
+	public synchronized MMLScore generateSnapshot() {
+		MMLScore score = new MMLScore();
+		globalTempoList.forEach(t -> score.globalTempoList.add(t.clone()));
+		trackList.forEach(t -> score.trackList.add(t.generateSnapshot(score.globalTempoList)));
+		return score;
+	}
+
+	/**
+	 * スナップショットで generateAll した結果を反映する.
+	 * @param snapshot  generateSnapshot で作成したもの
+	 * @return すべてのトラックに反映できた場合は true. 作成後に変更されたトラックがある場合は false
+	 */
+	public synchronized boolean applyGenerated(MMLScore snapshot) {
+		if (snapshot.trackList.size() != trackList.size()) {
+			return false;
+		}
+		boolean result = true;
+		for (int i = 0; i < trackList.size(); i++) {
+			result &= trackList.get(i).applyGenerated(snapshot.trackList.get(i));
+		}
+		return result;
+	}
+
 	/**
 	 * 開始位置の設定を行う
 	 * 設定することによってOffsetがマイナスになる場合は反映しない
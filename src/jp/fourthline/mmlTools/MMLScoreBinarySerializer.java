@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import jp.fourthline.mmlTools.core.MMLException;
+import jp.fourthline.mmlTools.core.MMLTickTable;
+import jp.fourthline.mmlTools.core.TuningBase;
+import jp.fourthline.mmlTools.parser.AbstractMMLParser;
+import jp.fourthline.mmlTools.parser.MMLParseException;
+
+/**
+ * .mmi のバイナリ版 (.mmb).
+ *   ヘッダ, トラックのオフセットテーブル, スコア情報, トラックの順に配置する.
+ *   ノートは int 配列で保持し, トラックのパートは最初に参照されたときにデコードする.
+ *
+ * <pre>
+ * header:  magic "MMIB", version(short), flags(short), trackCount(int), trackOffset(int) * trackCount
+ * score:   title, author, time, startOffset, tempo[], marker[], timeSignature[]
+ * track:   properties, originalMML, partOffset(int) * 4 (トラック先頭からの相対値), part[4]
+ * part:    noteCount(int), { tickOffset, tick, note|velocity|tuning, indexStart, indexEnd } * noteCount
+ * </pre>
+ */
+public final class MMLScoreBinarySerializer extends AbstractMMLParser {
+	private static final int MAGIC = 0x4D4D4942; // "MMIB"
+	public static final int VERSION = 1;
+	private static final int PART_COUNT = 4;
+	private static final int NOTE_INTS = 5;
+
+	private static final int FLAG_VISIBLE = 0x01;
+	private static final int FLAG_DISABLE_NOPT = 0x02;
+
+	private final MMLScore score;
+	private int scoreStartOffset = 0;
+
+	public MMLScoreBinarySerializer(MMLScore score) {
+		this.score = score;
+	}
+
+	/**
+	 * バイナリ形式かどうかを判定する.
+	 */
+	public static boolean isBinary(byte[] data) {
+		return (data != null) && (data.length >= 4) && (ByteBuffer.wrap(data).getInt() == MAGIC);
+	}
+
+	@Override
+	public MMLScore parse(InputStream istream) throws MMLParseException {
+		try {
+			return parse(ByteBuffer.wrap(istream.readAllBytes()));
+		} catch (IOException e) {
+			throw new MMLParseException(e.getMessage());
+		}
+	}
+
+	/**
+	 * ファイルを読み込む.
+	 *   トラックの遅延デコードが参照するのは各トラックから複製したヒープ上のデータなので, 読み込み後にファイルを保持しない.
+	 */
+	public MMLScore parse(File file) throws MMLParseException {
+		try {
+			return parse(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+		} catch (IOException e) {
+			throw new MMLParseException(e.getMessage());
+		}
+	}
+
+	public MMLScore parse(ByteBuffer data) throws MMLParseException {
+		score.getTempoEventList().clear();
+		score.getTrackList().clear();
+		score.getMarkerList().clear();
+		score.getTimeSignatureList().clear();
+
+		try {
+			ByteBuffer buf = data.duplicate();
+			if (buf.getInt() != MAGIC) {
+				throw new MMLParseException("invalid magic");
+			}
+			int version = buf.getShort();
+			if (version > VERSION) {
+				throw new MMLParseException("unsupported version: " + version);
+			}
+			buf.getShort(); // flags
+			int trackCount = buf.getInt();
+			if ((trackCount < 0) || (trackCount > buf.remaining() / 4)) {
+				throw new MMLParseException("invalid track count: " + trackCount);
+			}
+			int[] trackOffset = new int[trackCount+1];
+			for (int i = 0; i < trackCount; i++) {
+				trackOffset[i] = buf.getInt();
+			}
+			trackOffset[trackCount] = data.limit();
+
+			parseScore(buf);
+			int prevEnd = buf.position();
+			for (int i = 0; i < trackCount; i++) {
+				if ((trackOffset[i] < prevEnd) || (trackOffset[i] > trackOffset[i+1])) {
+					throw new MMLParseException("invalid track offset: " + i);
+				}
+				parseTrack(data.duplicate().position(trackOffset[i]).limit(trackOffset[i+1]));
+				prevEnd = trackOffset[i+1];
+			}
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | MMLException e) {
+			throw new MMLParseException(e.toString());
+		}
+		return score;
+	}
+
+	private void parseScore(ByteBuffer buf) throws MMLException {
+		score.setTitle(getString(buf));
+		score.setAuthor(getString(buf));
+		score.setBaseTime(getString(buf));
+		int startOffset = buf.getInt();
+
+		int count = buf.getInt();
+		for (int i = 0; i < count; i++) {
+			int tickOffset = buf.getInt();
+			int tempo = buf.getInt();
+			new MMLTempoEvent(tempo, tickOffset).appendToListElement(score.getTempoEventList());
+		}
+		count = buf.getInt();
+		for (int i = 0; i < count; i++) {
+			int tickOffset = buf.getInt();
+			score.getMarkerList().add(new Marker(getString(buf), tickOffset));
+		}
+		count = buf.getInt();
+		for (int i = 0; i < count; i++) {
+			int tickOffset = buf.getInt();
+			int numTime = buf.getInt();
+			int baseTime = buf.getInt();
+			score.addTimeSignature(new TimeSignature(score, tickOffset, numTime, baseTime));
+		}
+		scoreStartOffset = startOffset;
+	}
+
+	/**
+	 * @param buf  トラック先頭から末尾までを position, limit としたもの
+	 */
+	private void parseTrack(ByteBuffer buf) throws MMLParseException {
+		int trackStart = buf.position();
+		int startDelta = buf.getInt();
+		int startSongDelta = buf.getInt();
+		MMLTrack track = new MMLTrack(scoreStartOffset, startDelta, startSongDelta);
+		track.setProgram(buf.getInt());
+		track.setSongProgram(buf.getInt());
+		track.setPanpot(buf.getInt());
+		track.setVolume(buf.getInt());
+		int flags = buf.getInt();
+		track.setVisible((flags & FLAG_VISIBLE) != 0);
+		track.setDisableNopt((flags & FLAG_DISABLE_NOPT) != 0);
+		track.setAttackDelayCorrect(buf.getInt());
+		track.setAttackSongDelayCorrect(buf.getInt());
+		track.setTrackName(getString(buf));
+		track.setImportedData(getString(buf));
+		String mml = getString(buf);
+		int[] partOffset = new int[PART_COUNT];
+		for (int i = 0; i < PART_COUNT; i++) {
+			partOffset[i] = buf.getInt();
+		}
+
+		// パートは遅延デコードするので, ここで範囲を検査してからパートの領域だけを複製する.
+		int partStart = buf.position() - trackStart;
+		int trackLength = buf.limit() - trackStart;
+		for (int i = 0; i < PART_COUNT; i++) {
+			checkPart(buf, trackStart, partStart, trackLength, partOffset[i], i);
+		}
+		byte[] partData = new byte[buf.remaining()];
+		buf.get(partData);
+		ByteBuffer source = ByteBuffer.wrap(partData);
+		track.setMMLWithLoader(mml, () -> {
+			List<MMLEventList> parts = new ArrayList<>(PART_COUNT);
+			for (int i = 0; i < PART_COUNT; i++) {
+				parts.add(decodePart(source.duplicate().position(partOffset[i] - partStart), track.getGlobalTempoList()));
+			}
+			return parts;
+		});
+		score.addTrack(track);
+	}
+
+	/**
+	 * パートのオフセット, ノート数がトラックの範囲内にあり, 各ノートをデコードできるかどうかを検査する.
+	 */
+	private static void checkPart(ByteBuffer buf, int trackStart, int partStart, int trackLength, int offset, int index) throws MMLParseException {
+		if ((offset < partStart) || (offset > trackLength - 4)) {
+			throw new MMLParseException("invalid part offset: " + index);
+		}
+		int count = buf.getInt(trackStart + offset);
+		if ((count < 0) || (count > (trackLength - offset - 4) / (4 * NOTE_INTS))) {
+			throw new MMLParseException("invalid note count: " + index);
+		}
+		int tuningCount = TuningBase.values().length;
+		for (int i = 0; i < count; i++) {
+			int base = trackStart + offset + 4 + i * NOTE_INTS * 4;
+			int tickOffset = buf.getInt(base);
+			long endTick = (long) tickOffset + buf.getInt(base+4);
+			int packed = buf.getInt(base+8);
+			if ( (tickOffset <= -MMLEvent.MAX_TICK) || (endTick >= MMLEvent.MAX_TICK) || (((packed >>> 16) & 0xff) > MMLNoteEvent.MAX_VOL) || ((packed >>> 24) > tuningCount) ) {
+				throw new MMLParseException("invalid note: " + index + "-" + i);
+			}
+		}
+	}
+
+	private static MMLEventList decodePart(ByteBuffer buf, List<MMLTempoEvent> tempoList) {
+		MMLEventList eventList = new MMLEventList("", tempoList);
+		int count = buf.getInt();
+		var ints = buf.asIntBuffer();
+		var noteList = eventList.getMMLNoteEventList();
+		TuningBase[] tuningBase = TuningBase.values();
+		for (int i = 0; i < count; i++) {
+			int base = i * NOTE_INTS;
+			int tickOffset = ints.get(base);
+			int tick = ints.get(base+1);
+			int packed = ints.get(base+2);
+			var noteEvent = new MMLNoteEvent((short) packed, tick, tickOffset, (packed >>> 16) & 0xff);
+			int tuning = packed >>> 24;
+			if (tuning > 0) {
+				noteEvent.setTuningNote(tuningBase[tuning-1]);
+			}
+			int start = ints.get(base+3);
+			if (start >= 0) {
+				noteEvent.setIndexOfMMLString(new int[] { start, ints.get(base+4) });
+			}
+			noteList.add(noteEvent);
+		}
+		return eventList;
+	}
+
+	public void writeToOutputStream(OutputStream outputStream) throws IOException {
+		var scoreData = new ByteArrayOutputStream();
+		writeScore(new DataOutputStream(scoreData));
+		List<byte[]> trackData = new ArrayList<>();
+		for (MMLTrack track : score.getTrackList()) {
+			var b = new ByteArrayOutputStream();
+			writeTrack(new DataOutputStream(b), track);
+			trackData.add(b.toByteArray());
+		}
+
+		var out = new DataOutputStream(outputStream);
+		int headerSize = 4 + 2 + 2 + 4 + 4 * trackData.size();
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeShort(0);
+		out.writeInt(trackData.size());
+		int offset = headerSize + scoreData.size();
+		for (byte[] b : trackData) {
+			out.writeInt(offset);
+			offset += b.length;
+		}
+		scoreData.writeTo(out);
+		for (byte[] b : trackData) {
+			out.write(b);
+		}
+		out.flush();
+	}
+
+	public byte[] toByteArray() {
+		var out = new ByteArrayOutputStream();
+		try {
+			writeToOutputStream(out);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+
+	private void writeScore(DataOutputStream out) throws IOException {
+		putString(out, score.getTitle());
+		putString(out, score.getAuthor());
+		putString(out, score.getBaseTime());
+		var trackList = score.getTrackList();
+		out.writeInt(trackList.isEmpty() ? 0 : trackList.get(0).getCommonStartOffset());
+
+		var tempoList = score.getTempoEventList();
+		out.writeInt(tempoList.size());
+		for (MMLTempoEvent tempo : tempoList) {
+			out.writeInt(tempo.getTickOffset());
+			out.writeInt(tempo.getTempo());
+		}
+		var markerList = score.getMarkerList();
+		out.writeInt(markerList.size());
+		for (Marker marker : markerList) {
+			out.writeInt(marker.getTickOffset());
+			putString(out, marker.getName());
+		}
+		var timeSignatureList = score.getTimeSignatureList();
+		out.writeInt(timeSignatureList.size());
+		for (TimeSignature ts : timeSignatureList) {
+			out.writeInt(ts.getTickOffset());
+			out.writeInt(ts.getNumTime());
+			out.writeInt(MMLTickTable.TPQN * 4 / ts.getBaseTick());
+		}
+	}
+
+	private void writeTrack(DataOutputStream out, MMLTrack track) throws IOException {
+		out.writeInt(track.getStartDelta());
+		out.writeInt(track.getStartSongDelta());
+		out.writeInt(track.getProgram());
+		out.writeInt(track.getSongProgram());
+		out.writeInt(track.getPanpot());
+		out.writeInt(track.getVolume());
+		out.writeInt((track.isVisible() ? FLAG_VISIBLE : 0) | (track.getDisableNopt() ? FLAG_DISABLE_NOPT : 0));
+		out.writeInt(track.getAttackDelayCorrect());
+		out.writeInt(track.getAttackSongDelayCorrect());
+		putString(out, track.getTrackName());
+		putString(out, track.getImportedData());
+		putString(out, track.getOriginalMML());
+
+		// パートのオフセットはトラック先頭からの相対値.
+		List<byte[]> partData = new ArrayList<>();
+		for (MMLEventList eventList : track.getMMLEventList()) {
+			partData.add(encodePart(eventList));
+		}
+		int offset = out.size() + 4 * PART_COUNT;
+		for (byte[] b : partData) {
+			out.writeInt(offset);
+			offset += b.length;
+		}
+		for (byte[] b : partData) {
+			out.write(b);
+		}
+	}
+
+	private static byte[] encodePart(MMLEventList eventList) throws IOException {
+		var noteList = eventList.getMMLNoteEventList();
+		var buf = ByteBuffer.allocate(4 + 4 * NOTE_INTS * noteList.size());
+		buf.putInt(noteList.size());
+		for (MMLNoteEvent noteEvent : noteList) {
+			buf.putInt(noteEvent.getTickOffset());
+			buf.putInt(noteEvent.getTick());
+			int tuning = noteEvent.isTuningNote() ? noteEvent.getTuningBase().ordinal() + 1 : 0;
+			buf.putInt((noteEvent.getNote() & 0xffff) | ((noteEvent.getVelocity() & 0xff) << 16) | (tuning << 24));
+			int[] index = noteEvent.getIndexOfMMLString();
+			buf.putInt((index != null) ? index[0] : -1);
+			buf.putInt((index != null) ? index[1] : -1);
+		}
+		return buf.array();
+	}
+
+	private static void putString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	private static String getString(ByteBuffer buf) {
+		int length = buf.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] b = new byte[length];
+		buf.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+}
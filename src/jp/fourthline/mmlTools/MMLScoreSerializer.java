@@ -9,15 +9,16 @@ import jp.fourthline.mmlTools.core.MMLException;
 import jp.fourthline.mmlTools.optimizer.CacheMap;
 import jp.fourthline.mmlTools.parser.AbstractMMLParser;
 import jp.fourthline.mmlTools.parser.MMLParseException;
-import jp.fourthline.mmlTools.parser.SectionContents;
 import jp.fourthline.mmlTools.parser.TextParser;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
@@ -63,6 +64,8 @@ public final class MMLScoreSerializer extends AbstractMMLParser {
 	private MMLTrack lastTrack = null;
 	private final TextParser parser;
 	private final ParseCache cache = new ParseCache();
+	/** 複数行にわたる MML@ 〜 ; の途中 (なしの場合は null) */
+	private StringBuilder pendingLine = null;
 
 	public MMLScoreSerializer(MMLScore score) {
 		this.score = score;
@@ -101,19 +104,35 @@ public final class MMLScoreSerializer extends AbstractMMLParser {
 		score.getTrackList().clear();
 		score.getMarkerList().clear();
 		score.getTimeSignatureList().clear();
+		pendingLine = null;
 
-		List<SectionContents> contentsList = SectionContents.makeSectionContentsByInputStream(istream, "UTF-8");
-		if (contentsList.isEmpty()) {
-			throw(new MMLParseException("empty"));
-		}
-		for (SectionContents section : contentsList) {
-			if (section.getName().equals(SCORE_SECTION)) {
-				parseMMLScore(section.getContents());
-			} else if (section.getName().equals(MARKER_SECTION)) {
-				parseMarker(section.getContents());
-			} else if (section.getName().equals(TIME_SIGNATURE_SECTION)) {
-				parseTimeSignature(section.getContents());
+		String section = null;
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(istream, StandardCharsets.UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("[")) {
+					flushScoreLine();
+					section = line;
+					if (section.equals(MARKER_SECTION)) {
+						score.getMarkerList().clear();
+					} else if (section.equals(TIME_SIGNATURE_SECTION)) {
+						score.getTimeSignatureList().clear();
+					}
+				} else if (SCORE_SECTION.equals(section)) {
+					parseScoreLine(line);
+				} else if (MARKER_SECTION.equals(section)) {
+					parseMarker(line);
+				} else if (TIME_SIGNATURE_SECTION.equals(section)) {
+					parseTimeSignature(line);
+				}
 			}
+			flushScoreLine();
+		} catch (IOException e) {
+			throw new MMLParseException(e.getMessage());
+		}
+		if (section == null) {
+			throw(new MMLParseException("empty"));
 		}
 		return score;
 	}
@@ -131,27 +150,6 @@ public final class MMLScoreSerializer extends AbstractMMLParser {
 		}
 	}
 
-	/**
-	 * MML@ - ; 内の空白文字を削除する.
-	 * @param text
-	 * @return
-	 */
-	private String fixMMLspace(String text) {
-		StringBuilder sb = new StringBuilder();
-		int index = 0;
-		int start = 0;
-
-		while ( (start = text.indexOf("MML@", index)) >= 0) {
-			int end = text.indexOf(';', start);
-			sb.append(text, index, start);
-			sb.append( text.substring(start, end+1).replaceAll("[ \t\f\r\n]", "") );
-			index = end + 1;
-		}
-
-		sb.append(text.substring(index));
-		return sb.toString();
-	}
-
 	private final static class ParseCache {
 		private int startOffset = 0;
 		private int startDelta = 0;
@@ -171,49 +169,112 @@ public final class MMLScoreSerializer extends AbstractMMLParser {
 	}
 
 	/**
-	 * parse [mml-score] contents
-	 * @param contents
+	 * parse [mml-score] line
+	 *   MML@ - ; 内の空白文字を削除し, 複数行にわたる場合は ; までを連結してから解析する.
+	 *   通常は空白を含まないので, 行をそのまま渡す.
+	 * @param line
+	 */
+	private void parseScoreLine(String line) {
+		if ( (pendingLine == null) && !hasSpaceInMML(line) ) {
+			parser.parseLine(line);
+			return;
+		}
+
+		boolean inMML = (pendingLine != null);
+		StringBuilder sb = inMML ? pendingLine : new StringBuilder(line.length());
+		int length = line.length();
+		for (int i = 0; i < length; i++) {
+			char ch = line.charAt(i);
+			if (inMML) {
+				if (!isSpace(ch)) {
+					sb.append(ch);
+				}
+				inMML = (ch != ';');
+			} else if (line.startsWith("MML@", i)) {
+				sb.append("MML@");
+				i += 3;
+				inMML = true;
+			} else {
+				sb.append(ch);
+			}
+		}
+
+		if (inMML) {
+			pendingLine = sb;
+		} else {
+			pendingLine = null;
+			parser.parseLine(sb.toString());
+		}
+	}
+
+	/**
+	 * ; で閉じていない MML@ があれば, そこまでで解析する.
 	 */
-	private void parseMMLScore(String contents) {
-		parser.parse(fixMMLspace(contents));
+	private void flushScoreLine() {
+		if (pendingLine != null) {
+			String line = pendingLine.toString();
+			pendingLine = null;
+			parser.parseLine(line);
+		}
 	}
 
 	/**
-	 * parse [marker] contents
-	 * @param contents
+	 * MML@ - ; 内に空白文字を含む, もしくは ; で閉じていない場合は true.
+	 * @param line
+	 * @return
 	 */
-	private void parseMarker(String contents) {
-		score.getMarkerList().clear();
-		for (String s : contents.split("\n")) {
-			// <tickOffset>=<name>
-			int index = s.indexOf('=');
-			if (index > 0) {
-				String tickString = s.substring(0, index);
-				String name = s.substring(index+1);
-				score.getMarkerList().add( new Marker(name, Integer.parseInt(tickString)) );
+	private static boolean hasSpaceInMML(String line) {
+		int index = 0;
+		int start;
+		while ( (start = line.indexOf("MML@", index)) >= 0) {
+			int end = line.indexOf(';', start);
+			if (end < 0) {
+				return true;
 			}
+			for (int i = start; i < end; i++) {
+				if (isSpace(line.charAt(i))) {
+					return true;
+				}
+			}
+			index = end + 1;
 		}
+		return false;
+	}
+
+	private static boolean isSpace(char ch) {
+		return (ch == ' ') || (ch == '\t') || (ch == '\f') || (ch == '\r');
 	}
 
 	/**
-	 * parse [time-signature] contents
-	 * @param contents
+	 * parse [marker] line
+	 * @param s
 	 */
-	private void parseTimeSignature(String contents) {
-		score.getTimeSignatureList().clear();
-		for (String s : contents.split("\n")) {
-			// <tickOffset>=<num>/<base>
-			int index = s.indexOf('=');
-			if (index > 0) {
-				String tickString = s.substring(0, index);
-				String sig[] = s.substring(index+1).split("/");
-				int numTime = Integer.parseInt(sig[0]);
-				int baseTime = Integer.parseInt(sig[1]);
-				try {
-					score.addTimeSignature(new TimeSignature(score, Integer.parseInt(tickString), numTime, baseTime));
-				} catch (NumberFormatException | MMLException e) {
-					e.printStackTrace();
-				}
+	private void parseMarker(String s) {
+		// <tickOffset>=<name>
+		int index = s.indexOf('=');
+		if (index > 0) {
+			String tickString = s.substring(0, index);
+			String name = s.substring(index+1);
+			score.getMarkerList().add( new Marker(name, Integer.parseInt(tickString)) );
+		}
+	}
+
+	/**
+	 * parse [time-signature] line
+	 * @param s
+	 */
+	private void parseTimeSignature(String s) {
+		// <tickOffset>=<num>/<base>
+		int index = s.indexOf('=');
+		if (index > 0) {
+			String tickString = s.substring(0, index);
+			String sig[] = s.substring(index+1).split("/");
+			int numTime = Integer.parseInt(sig[0]);
+			int baseTime = Integer.parseInt(sig[1]);
+			try {
+				score.addTimeSignature(new TimeSignature(score, Integer.parseInt(tickString), numTime, baseTime));
+			} catch (NumberFormatException | MMLException e) {
+				e.printStackTrace();
 			}
 		}
 	}
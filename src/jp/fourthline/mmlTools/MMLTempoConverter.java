@@ -8,24 +8,33 @@ import java.util.ArrayList;
 import java.util.List;
 
 import jp.fourthline.mmlTools.core.IllegalTickOffsetException;
-import jp.fourthline.mmlTools.core.MMLTickTable;
 
 public final class MMLTempoConverter {
 
-	private final List<MMLTempoEvent> oldTempoList;
+	private final TempoMap oldTempoMap;
 	private final List<MMLTempoEvent> newTempoList;
+	private final TempoMap newTempoMap;
 	private double convertD = 0.0;
 	private int convertDCount = 0;
 
 	MMLTempoConverter(List<MMLTempoEvent> oldTempoList, List<MMLTempoEvent> newTempoList) {
-		this.oldTempoList = oldTempoList;
+		this(new TempoMap(oldTempoList), newTempoList);
+	}
+
+	MMLTempoConverter(TempoMap oldTempoMap, List<MMLTempoEvent> newTempoList) {
+		this.oldTempoMap = oldTempoMap;
 		this.newTempoList =  new ArrayList<>();
-		newTempoList.forEach(t -> this.newTempoList.add(new MMLTempoEvent(t.getTempo(), convertEvent(t.getTickOffset(), false))));
+		// テンポイベントの位置は, それより前の変換済みテンポで決まるので, 変換しながら変換表へ追加する.
+		this.newTempoMap = TempoMap.empty(newTempoList.size());
+		for (var t : newTempoList) {
+			int tickOffset = convertEvent(t.getTickOffset(), false);
+			this.newTempoList.add(new MMLTempoEvent(t.getTempo(), tickOffset));
+			this.newTempoMap.add(tickOffset, t.getTempo());
+		}
 	}
 
 	int convertEvent(int value, boolean diff) {
-		double newTick = getTickOffsetOnTime(newTempoList,
-				getTimeOnTickOffset(oldTempoList, value));
+		double newTick = newTempoMap.getTickOffsetOnTime(oldTempoMap.getTimeOnTickOffset(value));
 		long r = (long) Math.round(newTick);
 		if (Math.abs(r) > MMLEvent.MAX_TICK) {
 			throw new IllegalTickOffsetException((int)r);
@@ -42,7 +51,7 @@ public final class MMLTempoConverter {
 
 	public static MMLTempoConverter convert(MMLScore score, List<MMLTempoEvent> newTempoList) {
 		List<MMLTempoEvent> tempoList = score.getTempoEventList();
-		var converter = new MMLTempoConverter(tempoList, newTempoList);
+		var converter = new MMLTempoConverter(score.getTempoMap(), newTempoList);
 
 		// 変換する
 		score.getTrackList().parallelStream().forEach(track -> {
@@ -72,55 +81,23 @@ public final class MMLTempoConverter {
 
 	/**
 	 * 指定したtickオフセット位置の先頭からの時間を返します.
+	 *   複数の位置を変換する場合は {@link TempoMap} を使用してください.
 	 * @param tempoList
 	 * @param tickOffset
 	 * @return 先頭からの時間（ms）
 	 */
 	public static double getTimeOnTickOffset(List<MMLTempoEvent> tempoList, int tickOffset) {
-		double totalTime = 0L;
-
-		int tempo = MMLTempoEvent.INITIAL_TEMPO;
-		int currentTick = 0;
-		for (MMLTempoEvent tempoEvent : tempoList) {
-			int currentTempoTick = tempoEvent.getTickOffset();
-			if (tickOffset < currentTempoTick) {
-				break;
-			}
-
-			int currentTempo = tempoEvent.getTempo();
-			if (tempo != currentTempo) {
-				totalTime += (currentTempoTick - currentTick) * 60000.0 / tempo;
-				currentTick = currentTempoTick;
-			}
-
-			tempo = currentTempo;
-		}
-
-		totalTime += (tickOffset - currentTick) * 60000.0 / tempo;
-		return totalTime / MMLTickTable.TPQN;
+		return new TempoMap(tempoList).getTimeOnTickOffset(tickOffset);
 	}
 
 	/**
 	 * 指定した時間からtickオフセットを返します.
+	 *   複数の時間を変換する場合は {@link TempoMap} を使用してください.
 	 * @param tempoList
 	 * @param time
 	 * @return tickオフセット
 	 */
 	public static double getTickOffsetOnTime(List<MMLTempoEvent> tempoList, double time) {
-		int tempo = MMLTempoEvent.INITIAL_TEMPO;
-		double pointTime = 0;
-		double tick = 0;
-		for (MMLTempoEvent tempoEvent : tempoList) {
-			double tempoTime = getTimeOnTickOffset(tempoList, tempoEvent.getTickOffset());
-			if (time <= tempoTime) {
-				break;
-			}
-			pointTime = tempoTime;
-			tempo = tempoEvent.getTempo();
-			tick = tempoEvent.getTickOffset();
-		}
-
-		tick += (time - pointTime) * MMLTickTable.TPQN * tempo / 60 / 1000;
-		return tick;
+		return new TempoMap(tempoList).getTickOffsetOnTime(time);
 	}
 }
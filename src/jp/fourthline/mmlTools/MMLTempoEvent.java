@@ -7,6 +7,7 @@ package jp.fourthline.mmlTools;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 
 public final class MMLTempoEvent extends MMLEvent implements Cloneable {
@@ -105,6 +106,21 @@ public final class MMLTempoEvent extends MMLEvent implements Cloneable {
 	}
 
 	public static int searchOnTick(List<MMLTempoEvent> tempoList, long tickOffset) {
+		if (tempoList instanceof RandomAccess) {
+			// tickOffset以前で最後のテンポイベントを二分探索する.
+			int low = 0;
+			int high = tempoList.size();
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (tempoList.get(mid).getTickOffset() <= tickOffset) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return (low > 0) ? tempoList.get(low-1).getTempo() : INITIAL_TEMPO;
+		}
+
 		int tempo = INITIAL_TEMPO;
 		for (MMLTempoEvent tempoEvent : tempoList) {
 			if (tickOffset < tempoEvent.getTickOffset()) {
@@ -6,11 +6,12 @@ package jp.fourthline.mmlTools;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 import jp.fourthline.mmlTools.core.MMLText;
 import jp.fourthline.mmlTools.core.MMLTicks;
@@ -42,10 +43,20 @@ public final class MMLTrack implements Serializable, Cloneable {
 		tempoAllowChordPartFunction = f;
 	}
 
+	/** generate後の再Parseによる検査を, Mabinogi用MMLの生成と並列に行うかどうかのオプション */
+	private static boolean optAsyncVerify = false;
+	public static void setAsyncVerify(boolean opt) {
+		MMLTrack.optAsyncVerify = opt;
+	}
+
 	private static final int PART_COUNT = 4;
 	private final List<MMLEventList> mmlParts = new ArrayList<>();
+	/** パートの遅延読み込み. 読み込み済みの場合は null. */
+	private transient volatile Supplier<List<MMLEventList>> partsLoader = null;
 	private List<MMLTempoEvent> globalTempoList = new ArrayList<>();
-	private boolean generated = false;
+	/** globalTempoList の変換表のキャッシュ */
+	private volatile TempoMap tempoMap;
+	private volatile boolean generated = false;
 
 	private int program = 0;
 	private String trackName = "";
@@ -78,6 +89,9 @@ public final class MMLTrack implements Serializable, Cloneable {
 	// インポートしたデータ: ドラム変換を多重実行したときに変換対象にするデータ.
 	private String importedData;
 
+	// 前回generateしたときの入力状態. 変更がなければgenerateを省略する.
+	private transient GenerateState generateState = null;
+
 	public MMLTrack() {
 		this(0, 0, 0);
 	}
@@ -144,8 +158,10 @@ public final class MMLTrack implements Serializable, Cloneable {
 	}
 
 	private void mmlParse(boolean delayOption) {
+		partsLoader = null;
 		mmlParts.clear();
 		generated = false;
+		generateState = null;
 
 		for (int i = 0; i < PART_COUNT; i++) {
 			String s = originalMML.getText(i);
@@ -157,6 +173,43 @@ public final class MMLTrack implements Serializable, Cloneable {
 		}
 	}
 
+	/**
+	 * MMLを設定し, パートはparseせずに最初に参照されたときに loader から読み込む.
+	 * @param mml     オリジナルMML
+	 * @param loader  パートのリストを返すもの. 読み込み時点のグローバルテンポリストを使用すること.
+	 */
+	void setMMLWithLoader(String mml, Supplier<List<MMLEventList>> loader) {
+		originalMML.setMMLText(mml);
+		mabiMML.setMMLText(mml);
+		mmlParts.clear();
+		generated = false;
+		generateState = null;
+		partsLoader = loader;
+	}
+
+	/**
+	 * パートのリスト. 遅延読み込みの場合はここで読み込む.
+	 */
+	private List<MMLEventList> parts() {
+		if (partsLoader != null) {
+			synchronized (mmlParts) {
+				if (partsLoader != null) {
+					mmlParts.clear();
+					mmlParts.addAll(partsLoader.get());
+					partsLoader = null;
+				}
+			}
+		}
+		return mmlParts;
+	}
+
+	/**
+	 * パートが読み込み済みかどうか.
+	 */
+	boolean isPartsLoaded() {
+		return partsLoader == null;
+	}
+
 	public boolean isEmpty() {
 		return originalMML.isEmpty();
 	}
@@ -188,15 +241,14 @@ public final class MMLTrack implements Serializable, Cloneable {
 	 * @return　各パートのMML文字列
 	 */
 	public String[] getMabiMMLArray() {
-		String[] mml = new String[ PART_COUNT ];
-		for (int i = 0; i < mml.length; i++) {
-			mml[i] = mabiMML.getText(i);
-		}
-		return mml;
+		return getMMLTextArray(mabiMML);
 	}
 
 	public void setGlobalTempoList(List<MMLTempoEvent> globalTempoList) {
 		this.globalTempoList = globalTempoList;
+		if (partsLoader != null) {
+			return;
+		}
 
 		for (MMLEventList eventList : mmlParts) {
 			eventList.setGlobalTempoList(globalTempoList);
@@ -207,6 +259,16 @@ public final class MMLTrack implements Serializable, Cloneable {
 		return this.globalTempoList;
 	}
 
+	/**
+	 * テンポリストの変換表を返す. テンポリストが変更されていなければ, 前回作成したものを返す.
+	 * @return
+	 */
+	public TempoMap getTempoMap() {
+		TempoMap map = TempoMap.of(tempoMap, globalTempoList);
+		tempoMap = map;
+		return map;
+	}
+
 	public MMLTrack setProgram(int program) {
 		this.program = program;
 		return this;
@@ -271,11 +333,11 @@ public final class MMLTrack implements Serializable, Cloneable {
 	}
 
 	public MMLEventList getMMLEventAtIndex(int index) {
-		return mmlParts.get(index);
+		return parts().get(index);
 	}
 
 	public List<MMLEventList> getMMLEventList() {
-		return mmlParts;
+		return parts();
 	}
 
 	public String getImportedData() {
@@ -284,7 +346,7 @@ public final class MMLTrack implements Serializable, Cloneable {
 
 	public long getMaxTickLength() {
 		long max = 0;
-		for (MMLEventList eventList : mmlParts) {
+		for (MMLEventList eventList : parts()) {
 			long tick = eventList.getTickLength();
 			if (max < tick) {
 				max = tick;
@@ -301,13 +363,14 @@ public final class MMLTrack implements Serializable, Cloneable {
 	 * @return
 	 */
 	private String[] fix64Tempo(String mml[]) {
+		TempoMap tempoMap = getTempoMap();
 		// 楽器パート処理.
-		int firstTempo = MMLTempoEvent.searchOnTick(globalTempoList, commonStartOffset + startDelta);
-		int tick = MMLEventList.maxEndTick(mmlParts.subList(0, 3));
-		int endTempo = MMLTempoEvent.searchOnTick(globalTempoList, tick - 1);
+		int firstTempo = tempoMap.getTempoOnTick( commonStartOffset + startDelta);
+		int tick = MMLEventList.maxEndTick(parts().subList(0, 3));
+		int endTempo = tempoMap.getTempoOnTick(tick - 1);
 		if (firstTempo != endTempo) {
 			for (int i = 0; i < 3; i++) {
-				var note = mmlParts.get(i).getLastNote();
+				var note = parts().get(i).getLastNote();
 				if ((note != null) && (note.getEndTick() == tick)) {
 					mml[i] += "t" + firstTempo;
 					break;
@@ -316,10 +379,10 @@ public final class MMLTrack implements Serializable, Cloneable {
 		}
 
 		// 歌パート処理.
-		int firstSongTempo = MMLTempoEvent.searchOnTick(globalTempoList, commonStartOffset + startSongDelta);
-		var songLastNote = mmlParts.get(3).getLastNote();
+		int firstSongTempo = tempoMap.getTempoOnTick(commonStartOffset + startSongDelta);
+		var songLastNote = parts().get(3).getLastNote();
 		if (songLastNote != null) {
-			int endSongTempo = MMLTempoEvent.searchOnTick(globalTempoList, songLastNote.getEndTick() - 1);
+			int endSongTempo = tempoMap.getTempoOnTick(songLastNote.getEndTick() - 1);
 			if (firstSongTempo != endSongTempo) {
 				mml[3] += "t" + firstSongTempo;
 			}
@@ -333,12 +396,12 @@ public final class MMLTrack implements Serializable, Cloneable {
 	 * @throws MMLExceptionList
 	 */
 	private String[] internalData() throws MMLExceptionList {
-		int size = mmlParts.size();
+		int size = parts().size();
 		String[] mml = new String[size];
 		var errList = new ArrayList<MMLExceptionList.Entry>();
 		for (int i = 0; i < size; i++) {
 			try {
-				var eventList = mmlParts.get(i);
+				var eventList = parts().get(i);
 				var str = MMLBuilder.create(eventList, getStartOffset(i)).toMMLString(false, false);
 				mml[i] = new MMLStringOptimizer(str).toString();
 			} catch (MMLExceptionList e) {
@@ -351,20 +414,131 @@ public final class MMLTrack implements Serializable, Cloneable {
 		return mml;
 	}
 
+	/**
+	 * generate結果に影響する入力状態.
+	 * ノート, テンポ, 開始位置, 各種出力オプションが前回generate時と同じであれば出力も同じになる.
+	 * ノートは複製して保持する. 比較は先にノート内容のハッシュ値 (MMLEventList.noteContentHash) で行い, 一致した場合のみ全体を比較する.
+	 */
+	private record GenerateState(int[] hashes, List<List<MMLNoteEvent>> notes, List<List<MMLTempoEvent>> tempos, GenerateOptions options) {
+		private static GenerateState of(MMLTrack track) {
+			List<MMLEventList> parts = track.parts();
+			int[] hashes = new int[parts.size()];
+			List<List<MMLNoteEvent>> notes = new ArrayList<>(parts.size());
+			List<List<MMLTempoEvent>> tempos = new ArrayList<>(parts.size());
+			for (var eventList : parts) {
+				hashes[notes.size()] = eventList.noteContentHash();
+				List<MMLNoteEvent> noteList = new ArrayList<>(eventList.getMMLNoteEventList().size());
+				eventList.getMMLNoteEventList().forEach(t -> noteList.add(t.clone()));
+				notes.add(noteList);
+				List<MMLTempoEvent> tempoList = new ArrayList<>();
+				eventList.getGlobalTempoList().forEach(t -> tempoList.add(t.clone()));
+				tempos.add(tempoList);
+			}
+			return new GenerateState(hashes, notes, tempos, GenerateOptions.of(track));
+		}
+
+		private boolean matchesNotes(int index, MMLEventList eventList) {
+			return (hashes[index] == eventList.noteContentHash()) &&
+					notes.get(index).equals(eventList.getMMLNoteEventList());
+		}
+
+		private boolean matches(MMLTrack track) {
+			if (!options.equals(GenerateOptions.of(track))) {
+				return false;
+			}
+			List<MMLEventList> parts = track.parts();
+			if (parts.size() != notes.size()) {
+				return false;
+			}
+			for (int i = 0; i < notes.size(); i++) {
+				var eventList = parts.get(i);
+				if ( !matchesNotes(i, eventList) ||
+						!tempos.get(i).equals(eventList.getGlobalTempoList()) ) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * 生成したMMLを再Parseしたトラックと比較する.
+		 *   ノートが一致すること. テンポは比較しない (グローバルテンポを使用するため).
+		 */
+		private boolean matchesParsed(MMLTrack track) {
+			List<MMLEventList> parts = track.parts();
+			if (parts.size() != notes.size()) {
+				return false;
+			}
+			for (int i = 0; i < notes.size(); i++) {
+				if (!matchesNotes(i, parts.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private record GenerateOptions(
+			int commonStartOffset, int startDelta, int startSongDelta,
+			int attackDelayCorrect, int attackSongDelayCorrect,
+			boolean disableNopt, boolean fix64Tempo,
+			boolean tempoAllowChordPart, boolean tempoAllowChordProgram,
+			boolean vZeroTempo, int optimizeLevel,
+			Function<MMLStringOptimizer, String> optimizeFunc) {
+
+		private static GenerateOptions of(MMLTrack track) {
+			return new GenerateOptions(
+					track.commonStartOffset, track.startDelta, track.startSongDelta,
+					track.attackDelayCorrect, track.attackSongDelayCorrect,
+					track.disableNopt, track.fix64Tempo,
+					optTempoAllowChordPart, tempoAllowChordPartFunction.apply(track.program),
+					MMLBuilder.getMMLVZeroTempo(), MMLStringOptimizer.getOptimizeLevel(),
+					mabiMMLOptimizeFunc);
+		}
+	}
+
+	/**
+	 * 前回のgenerate以降に, 出力に影響する変更があったかどうか.
+	 * @return 変更がある (generateが必要な) 場合は true
+	 */
+	public boolean isModified() {
+		return !generated || (generateState == null) || !generateState.matches(this);
+	}
+
+	/**
+	 * 変更があった場合のみMMLを生成する.
+	 * 変更がない場合は前回の生成結果を保持するため, 出力は常に再生成した場合と同じになる.
+	 * @return
+	 * @throws MMLExceptionList
+	 * @throws MMLVerifyException
+	 */
 	public MMLTrack generate() throws MMLExceptionList, MMLVerifyException {
+		if (!isModified()) {
+			return this;
+		}
+		generateState = null;
+		var state = GenerateState.of(this);
+		forceGenerate(state);
+		generateState = state;
+		return this;
+	}
+
+	private void forceGenerate(GenerateState state) throws MMLExceptionList, MMLVerifyException {
 		String mml1 = getOriginalMML();
 		try {
 			originalMML.setMMLText(getMMLStrings(false, false));
 		} catch (MMLExceptionList e) {
 			originalMML.setMMLText(internalData());
 		}
-		var t = new MMLTrack(commonStartOffset, startDelta, startSongDelta).setMML(getOriginalMML());
-		t.setGlobalTempoList(globalTempoList);
-		if (!this.equals(t)) {
-			System.err.println("Verify error.");
-			System.err.println(mml1);
-			System.err.println(getOriginalMML());
-			throw new MMLVerifyException(this);
+		// 検査は, オプションが有効な場合はMabinogi用MMLの生成と並列に行う. どちらの場合も完了してから生成結果を反映する.
+		String mml = getOriginalMML();
+		int offset = commonStartOffset;
+		int delta = startDelta;
+		int songDelta = startSongDelta;
+		Supplier<Boolean> verify = () -> state.matchesParsed(new MMLTrack(offset, delta, songDelta).setMML(mml));
+		CompletableFuture<Boolean> verifyTask = optAsyncVerify ? CompletableFuture.supplyAsync(verify) : null;
+		if ((verifyTask == null) && !verify.get()) {
+			throw verifyError(mml1);
 		}
 		/*
 		 * tailFixはMusicQアップデートで不要になりました. 2017/01/07
@@ -375,25 +549,91 @@ public final class MMLTrack implements Serializable, Cloneable {
 		if (fix64Tempo) {
 			mmlStrings = fix64Tempo(mmlStrings);
 		}
+		if ((verifyTask != null) && !verifyTask.join()) {
+			throw verifyError(mml1);
+		}
 		mabiMML.setMMLText(mmlStrings);
 		generated = true;
-		return this;
+	}
+
+	private MMLVerifyException verifyError(String prevMML) {
+		System.err.println("Verify error.");
+		System.err.println(prevMML);
+		System.err.println(getOriginalMML());
+		return new MMLVerifyException(this);
+	}
+
+	/**
+	 * 別スレッドでgenerateするためのスナップショットを作成する.
+	 *   ノートは複製し, 生成に影響する設定と前回の生成結果を引き継ぐ. 変更のないトラックは再生成されない.
+	 * @param tempoList  スナップショットが使用するグローバルテンポリスト (複製したもの)
+	 * @return
+	 */
+	MMLTrack generateSnapshot(List<MMLTempoEvent> tempoList) {
+		MMLTrack o = new MMLTrack(commonStartOffset, startDelta, startSongDelta);
+		o.globalTempoList = tempoList;
+		o.mmlParts.clear();
+		for (MMLEventList eventList : parts()) {
+			MMLEventList part = eventList.clone();
+			part.setGlobalTempoList(tempoList);
+			o.mmlParts.add(part);
+		}
+		o.program = program;
+		o.songProgram = songProgram;
+		o.trackName = trackName;
+		o.attackDelayCorrect = attackDelayCorrect;
+		o.attackSongDelayCorrect = attackSongDelayCorrect;
+		o.disableNopt = disableNopt;
+		o.fix64Tempo = fix64Tempo;
+		o.originalMML.setMMLText(getMMLTextArray(originalMML));
+		o.mabiMML.setMMLText(getMMLTextArray(mabiMML));
+		o.generateState = generateState;
+		o.generated = generated;
+		return o;
+	}
+
+	/**
+	 * スナップショットで生成した結果を反映する.
+	 *   スナップショット作成後に出力に影響する変更があった場合は反映しない.
+	 * @param snapshot  generateSnapshot で作成し, generate したもの
+	 * @return 反映した場合は true
+	 */
+	boolean applyGenerated(MMLTrack snapshot) {
+		var state = snapshot.generateState;
+		if ( !snapshot.generated || (state == null) || !state.matches(this) ) {
+			return false;
+		}
+		if (state != generateState) {
+			originalMML.setMMLText(getMMLTextArray(snapshot.originalMML));
+			mabiMML.setMMLText(getMMLTextArray(snapshot.mabiMML));
+			generateState = state;
+		}
+		generated = true;
+		return true;
+	}
+
+	private static String[] getMMLTextArray(MMLText mmlText) {
+		String[] mml = new String[ PART_COUNT ];
+		for (int i = 0; i < mml.length; i++) {
+			mml[i] = mmlText.getText(i);
+		}
+		return mml;
 	}
 
 	private String[] getMMLStrings(boolean tailFix, boolean mabiTempo) throws MMLExceptionList {
-		int count = mmlParts.size();
+		int count = parts().size();
 		String[] mml = new String[count];
 		var errList = new ArrayList<MMLExceptionList.Entry>();
 
 		for (int i = 0; i < count; i++) {
 			int startOffset = mabiTempo ? getStartOffsetforMabiMML(i) : getStartOffset(i);
 			// メロディパートのMML更新（テンポ, tickLengthにあわせる.
-			MMLEventList eventList = mmlParts.get(i);
+			MMLEventList eventList = parts().get(i);
 			boolean isPrimaryTempoPart = (i == 0) || (i == 3);
 			try {
 				if ( isPrimaryTempoPart ) {
 					// part0 の場合, 1,2のパート情報を渡す
-					List<MMLEventList> relationPart = (i == 0) ? mmlParts.subList(1, 3) : null;
+					List<MMLEventList> relationPart = (i == 0) ? parts().subList(1, 3) : null;
 					mml[i] = MMLBuilder.create(eventList, startOffset).toMMLString(true, mabiTempo, relationPart);
 				} else {
 					mml[i] = MMLBuilder.create(eventList, startOffset).toMMLString();
@@ -413,7 +653,7 @@ public final class MMLTrack implements Serializable, Cloneable {
 			}
 		}
 		// for mabi MML, メロディ～和音2 までがカラの時にはメロディパートもカラにする.
-		if ( mabiTempo && mmlParts.get(0).getMMLNoteEventList().isEmpty() && mml[1].equals("") && mml[2].equals("") ) {
+		if ( mabiTempo && parts().get(0).getMMLNoteEventList().isEmpty() && mml[1].equals("") && mml[2].equals("") ) {
 			mml[0] = "";
 		}
 		for (int i = 0; i < count; i++) {
@@ -424,7 +664,7 @@ public final class MMLTrack implements Serializable, Cloneable {
 				mml[i] = new MMLStringOptimizer(mml[i]).toString();
 			}
 		}
-		if ((mmlParts.get(3).getTickLength() == 0)) {
+		if ((parts().get(3).getTickLength() == 0)) {
 			mml[3] = "";
 		}
 
@@ -434,16 +674,16 @@ public final class MMLTrack implements Serializable, Cloneable {
 	private List<List<MMLEventList>> makeRelationPart() {
 		List<List<MMLEventList>> list = new ArrayList<>();
 		List<MMLEventList> list1 = new ArrayList<>();
-		list1.add(mmlParts.get(1));
-		list1.add(mmlParts.get(2));
+		list1.add(parts().get(1));
+		list1.add(parts().get(2));
 
 		List<MMLEventList> list2 = new ArrayList<>();
-		list2.add(mmlParts.get(2));
-		list2.add(mmlParts.get(0));
+		list2.add(parts().get(2));
+		list2.add(parts().get(0));
 
 		List<MMLEventList> list3 = new ArrayList<>();
-		list3.add(mmlParts.get(0));
-		list3.add(mmlParts.get(1));
+		list3.add(parts().get(0));
+		list3.add(parts().get(1));
 
 		list.add(list1);
 		list.add(list2);
@@ -459,7 +699,7 @@ public final class MMLTrack implements Serializable, Cloneable {
 	 * @throws MMLExceptionList 
 	 */
 	public String[] getGenericMMLStrings(boolean allowTempoChord) throws MMLExceptionList {
-		int count = mmlParts.size();
+		int count = parts().size();
 		String[] mml = new String[count];
 		LinkedList<MMLTempoEvent> localTempoList = new LinkedList<>(globalTempoList);
 		List<List<MMLEventList>> relationParts = makeRelationPart();
@@ -467,7 +707,7 @@ public final class MMLTrack implements Serializable, Cloneable {
 
 		for (int i = 0; i < count; i++) {
 			// メロディパートのMML更新（テンポ, tickLengthにあわせる.
-			MMLEventList eventList = mmlParts.get(i);
+			MMLEventList eventList = parts().get(i);
 			if (i == 3) {
 				localTempoList = new LinkedList<>(globalTempoList);
 			}
@@ -484,7 +724,7 @@ public final class MMLTrack implements Serializable, Cloneable {
 		}
 
 		// for mabi MML, メロディ～和音2 までがカラの時にはメロディパートもカラにする.
-		if ( mmlParts.get(0).getMMLNoteEventList().isEmpty() && mml[1].equals("") && mml[2].equals("") ) {
+		if ( parts().get(0).getMMLNoteEventList().isEmpty() && mml[1].equals("") && mml[2].equals("") ) {
 			mml[0] = "";
 		}
 		return mml;
@@ -501,7 +741,7 @@ public final class MMLTrack implements Serializable, Cloneable {
 		for (int i = 0; i < mml.length; i++) {
 			mml[i] = mabiMMLOptimizeFunc.apply(new MMLStringOptimizer(mml[i]).setDisableNopt(disableNopt));
 		}
-		if ((mmlParts.get(3).getTickLength() == 0)) {
+		if ((parts().get(3).getTickLength() == 0)) {
 			mml[3] = "";
 		}
 
@@ -540,7 +780,7 @@ public final class MMLTrack implements Serializable, Cloneable {
 	 */
 	public double getPlayTime() {
 		int totalTick = (int)getMaxTickLength();
-		double playTime = MMLTempoConverter.getTimeOnTickOffset(globalTempoList, totalTick);
+		double playTime = getTempoMap().getTimeOnTickOffset(totalTick);
 		return playTime/1000.0;
 	}	
 
@@ -550,10 +790,10 @@ public final class MMLTrack implements Serializable, Cloneable {
 	 * @return 時間（秒）
 	 */
 	public double getMabinogiTime() {
-		double[] partTime = new double[mmlParts.size()];
+		double[] partTime = new double[parts().size()];
 
-		int melodyTick = (int)mmlParts.get(0).getTickLength();
-		partTime[0] = MMLTempoConverter.getTimeOnTickOffset(globalTempoList, melodyTick);
+		int melodyTick = (int)parts().get(0).getTickLength();
+		partTime[0] = getTempoMap().getTimeOnTickOffset(melodyTick);
 
 		ArrayList<MMLTempoEvent> globalTailTempo = new ArrayList<>();
 		MMLTempoEvent lastTempoEvent = new MMLTempoEvent(120, 0);
@@ -561,10 +801,11 @@ public final class MMLTrack implements Serializable, Cloneable {
 			lastTempoEvent.setTempo(globalTempoList.get(globalTempoList.size()-1).getTempo());
 		}
 		globalTailTempo.add(new MMLTempoEvent(lastTempoEvent.getTempo(), 0));
+		TempoMap tailTempoMap = new TempoMap(globalTailTempo);
 
 		for (int i = 1; i < partTime.length; i++) {
-			int tick = (int)mmlParts.get(i).getTickLength();
-			partTime[i] = MMLTempoConverter.getTimeOnTickOffset(globalTailTempo, tick);
+			int tick = (int)parts().get(i).getTickLength();
+			partTime[i] = tailTempoMap.getTimeOnTickOffset(tick);
 		}
 
 		double maxTime = 0;
@@ -583,11 +824,11 @@ public final class MMLTrack implements Serializable, Cloneable {
 			return false;
 		}
 		MMLTrack mmlTrack = (MMLTrack) obj;
-		if (this.mmlParts.size() != mmlTrack.mmlParts.size()) {
+		if (this.parts().size() != mmlTrack.parts().size()) {
 			return false;
 		}
 
-		return Arrays.equals(this.mmlParts.toArray(), mmlTrack.mmlParts.toArray());
+		return this.parts().equals(mmlTrack.parts());
 	}
 
 	public boolean isVisible() {
@@ -610,10 +851,13 @@ public final class MMLTrack implements Serializable, Cloneable {
 	 * @param song     歌部をシフトするかどうか
 	 */
 	public void updateStartOffsetNoteEvents(int delta, boolean inst, boolean song) {
-		int size = mmlParts.size();
+		if (delta == 0) {
+			return;
+		}
+		int size = parts().size();
 		for (int i = 0; i < size; i++) {
 			if ( (inst && (i >= 0) && (i <= 2)) || (song && (i == 3)) ) {
-				var part = mmlParts.get(i).getMMLNoteEventList();
+				var part = parts().get(i).getMMLNoteEventList();
 				part.forEach(note -> note.setTickOffset(note.getTickOffset() + delta));
 				// マイナスになったら消す
 				part.removeIf(t -> t.getTickOffset() < 0);
@@ -646,7 +890,7 @@ public final class MMLTrack implements Serializable, Cloneable {
 
 	public MMLTrack setStartDelta(int delta) {
 		int newStartOffset = commonStartOffset + delta;
-		if ((newStartOffset >= 0) && (checkStartOffset(newStartOffset, mmlParts.subList(0, 3)))) {
+		if ((newStartOffset >= 0) && (checkStartOffset(newStartOffset, parts().subList(0, 3)))) {
 			// ノートの移動を行わない
 			startDelta = delta;
 		} else {
@@ -657,7 +901,7 @@ public final class MMLTrack implements Serializable, Cloneable {
 
 	public MMLTrack setStartSongDelta(int delta) {
 		int newStartOffset = commonStartOffset + delta;
-		if ((newStartOffset >= 0) && (checkStartOffset(newStartOffset, mmlParts.subList(3, 4)))) {
+		if ((newStartOffset >= 0) && (checkStartOffset(newStartOffset, parts().subList(3, 4)))) {
 			// ノートの移動を行わない
 			startSongDelta = delta;
 		} else {
@@ -721,8 +965,8 @@ public final class MMLTrack implements Serializable, Cloneable {
 	}
 
 	public boolean isFantasyTrack() {
-		boolean b1 = !mmlParts.get(0).isEmpty() || !mmlParts.get(1).isEmpty() || !mmlParts.get(2).isEmpty();
-		boolean b2 = !mmlParts.get(3).isEmpty();
+		boolean b1 = !parts().get(0).isEmpty() || !parts().get(1).isEmpty() || !parts().get(2).isEmpty();
+		boolean b2 = !parts().get(3).isEmpty();
 		return b1 && b2;
 	}
 
@@ -40,35 +40,23 @@ public final class Measure {
 	}
 
 	public static int nextMeasure(MMLScore score, int tick, boolean next) {
-		var measure = new Measure(score, tick);
+		var measureIndex = score.getMeasureIndex();
 		if (next) {
-			tick += measure.getMeasureTick();
+			tick += measureIndex.getMeasureTickOnTick(tick);
 		} else {
-			tick -= measure.getBeatTick();
+			tick -= measureIndex.getBeatTick(tick);
 		}
-		tick = new Measure(score, tick).measuredTick();
-		return tick;
+		return measureIndex.measureToTick(measureIndex.tickToMeasure(tick));
 	}
 
 	public Measure(MMLScore score, int tick) {
-		var timeSignatureList = score.getTimeSignatureList();
-		int numTime = score.getTimeCountOnly();
-		int beatTick = score.getBeatTick();
-		int m = 0;
-		int baseTick = 0;
-
-		for (TimeSignature t : timeSignatureList) {
-			if (t.getTickOffset() <= tick) {
-				baseTick = t.getTickOffset();
-				m = t.getMeasureOffset();
-				beatTick = t.getBaseTick();
-				numTime = t.getNumTime();
-			} else {
-				break;
-			}
-		}
+		var measureIndex = score.getMeasureIndex();
+		int index = measureIndex.indexOnTick(tick);
+		int baseTick = measureIndex.getSegmentTick(index);
+		int numTime = measureIndex.getSegmentNumTime(index);
+		int beatTick = measureIndex.getSegmentBeatTick(index);
 
-		this.measure = m + ((tick - baseTick) / (beatTick * numTime));
+		this.measure = measureIndex.getSegmentMeasure(index) + ((tick - baseTick) / (beatTick * numTime));
 		int barR = (tick - baseTick) % (beatTick * numTime);
 		this.beat = barR / beatTick;
 		this.tick = barR % beatTick;
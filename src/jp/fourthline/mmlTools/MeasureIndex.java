@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 拍子記号リストから作成する, tickと小節の変換表.
+ *   拍子ごとの区間について開始小節と開始tickを前計算しておき, 変換は二分探索で行う.
+ *   作成後に拍子記号を変更しても反映されないため, MMLScore側で変更時に破棄する.
+ */
+public final class MeasureIndex {
+	/** 区間の開始小節 (昇順) */
+	private final int[] measure;
+	/** 区間の開始tick (昇順) */
+	private final int[] tick;
+	/** 区間の拍子の分子 */
+	private final int[] numTime;
+	/** 区間の1拍のtick */
+	private final int[] beatTick;
+
+	public MeasureIndex(MMLScore score) {
+		this(score.getTimeCountOnly(), score.getBeatTick(), score.getTimeSignatureList());
+	}
+
+	MeasureIndex(int initialNumTime, int initialBeatTick, List<TimeSignature> timeSignatureList) {
+		var list = new ArrayList<>(timeSignatureList);
+		list.sort(Comparator.comparingInt(TimeSignature::getMeasureOffset));
+
+		// 同一小節の拍子記号は後のものを有効とする.
+		int size = 1;
+		int[] m = new int[list.size() + 1];
+		int[] n = new int[list.size() + 1];
+		int[] b = new int[list.size() + 1];
+		n[0] = initialNumTime;
+		b[0] = initialBeatTick;
+		for (TimeSignature ts : list) {
+			int offset = Math.max(0, ts.getMeasureOffset());
+			int index = (m[size-1] == offset) ? size-1 : size++;
+			m[index] = offset;
+			n[index] = ts.getNumTime();
+			b[index] = ts.getBaseTick();
+		}
+
+		measure = new int[size];
+		tick = new int[size];
+		numTime = new int[size];
+		beatTick = new int[size];
+		for (int i = 0; i < size; i++) {
+			measure[i] = m[i];
+			numTime[i] = n[i];
+			beatTick[i] = b[i];
+			if (i > 0) {
+				tick[i] = tick[i-1] + (measure[i] - measure[i-1]) * getMeasureTick(i-1);
+			}
+		}
+	}
+
+	public int size() {
+		return measure.length;
+	}
+
+	private int getMeasureTick(int index) {
+		return numTime[index] * beatTick[index];
+	}
+
+	/**
+	 * 値以下で最後の要素のindex. 先頭区間は必ず0から始まるので, 負値のときも0を返す.
+	 */
+	private static int floorIndex(int[] array, int value) {
+		int low = 1;
+		int high = array.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (array[mid] <= value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low - 1;
+	}
+
+	/**
+	 * tickを含む区間のindex.
+	 */
+	int indexOnTick(int tickOffset) {
+		return floorIndex(tick, tickOffset);
+	}
+
+	/**
+	 * 小節を含む区間のindex.
+	 */
+	int indexOnMeasure(int measureNumber) {
+		return floorIndex(measure, measureNumber);
+	}
+
+	/**
+	 * tickを小節番号へ変換する.
+	 * @param tickOffset
+	 * @return
+	 */
+	public int tickToMeasure(int tickOffset) {
+		int index = indexOnTick(tickOffset);
+		return measure[index] + (tickOffset - tick[index]) / getMeasureTick(index);
+	}
+
+	/**
+	 * 小節番号から小節先頭のtickへ変換する.
+	 * @param measureNumber
+	 * @return
+	 */
+	public int measureToTick(int measureNumber) {
+		int index = indexOnMeasure(measureNumber);
+		return tick[index] + (measureNumber - measure[index]) * getMeasureTick(index);
+	}
+
+	/**
+	 * tickを含む区間の拍子の分子.
+	 */
+	public int getNumTime(int tickOffset) {
+		return numTime[indexOnTick(tickOffset)];
+	}
+
+	/**
+	 * tickを含む区間の1拍のtick.
+	 */
+	public int getBeatTick(int tickOffset) {
+		return beatTick[indexOnTick(tickOffset)];
+	}
+
+	/**
+	 * tickを含む小節の長さ (tick).
+	 */
+	public int getMeasureTickOnTick(int tickOffset) {
+		return getMeasureTick(indexOnTick(tickOffset));
+	}
+
+	/**
+	 * 小節の長さ (tick).
+	 * @param measureNumber
+	 * @return
+	 */
+	public int getMeasureTickOnMeasure(int measureNumber) {
+		return getMeasureTick(indexOnMeasure(measureNumber));
+	}
+
+	/**
+	 * 区間の開始tick.
+	 */
+	int getSegmentTick(int index) {
+		return tick[index];
+	}
+
+	/**
+	 * 区間の開始小節.
+	 */
+	int getSegmentMeasure(int index) {
+		return measure[index];
+	}
+
+	/**
+	 * 区間の拍子の分子.
+	 */
+	int getSegmentNumTime(int index) {
+		return numTime[index];
+	}
+
+	/**
+	 * 区間の1拍のtick.
+	 */
+	int getSegmentBeatTick(int index) {
+		return beatTick[index];
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools;
+
+import java.util.Arrays;
+import java.util.List;
+
+import jp.fourthline.mmlTools.core.MMLTickTable;
+
+/**
+ * テンポリストから作成する, tickオフセットと時間の変換表.
+ *   各テンポイベント位置までの時間を前計算しておき, 変換は二分探索で行う.
+ *   作成後に元のテンポリストを変更しても反映されない. 変更の有無は {@link #matches(List)} で確認する.
+ */
+public final class TempoMap {
+	/** テンポイベントのtickオフセット (昇順) */
+	private int[] tick;
+	/** テンポイベント以降のテンポ */
+	private int[] tempo;
+	/** 時間計算の基準となるtickオフセット (テンポが変化した位置) */
+	private int[] baseTick;
+	/** baseTick までの時間 (ms * TPQN) */
+	private double[] baseTime;
+	/** テンポイベント位置の時間 (ms) */
+	private double[] time;
+	private int size = 0;
+
+	private int currentTempo = MMLTempoEvent.INITIAL_TEMPO;
+	private int currentTick = 0;
+	private double totalTime = 0;
+
+	public TempoMap(List<MMLTempoEvent> tempoList) {
+		this(tempoList.size());
+		for (MMLTempoEvent tempoEvent : tempoList) {
+			add(tempoEvent.getTickOffset(), tempoEvent.getTempo());
+		}
+	}
+
+	private TempoMap(int capacity) {
+		tick = new int[capacity];
+		tempo = new int[capacity];
+		baseTick = new int[capacity];
+		baseTime = new double[capacity];
+		time = new double[capacity];
+	}
+
+	/**
+	 * 末尾にテンポイベントを追加しながら作成する空の変換表. (MMLTempoConverter用)
+	 */
+	static TempoMap empty(int capacity) {
+		return new TempoMap(capacity);
+	}
+
+	/**
+	 * 末尾にテンポイベントを追加する. tickオフセットは追加済みのものと同じか大きいこと.
+	 *   同じtickオフセットのイベントを後から追加しても, 追加済みのイベント位置の時間は変わらない.
+	 */
+	void add(int tempoTick, int newTempo) {
+		if (size == tick.length) {
+			int capacity = Math.max(8, size * 2);
+			tick = Arrays.copyOf(tick, capacity);
+			tempo = Arrays.copyOf(tempo, capacity);
+			baseTick = Arrays.copyOf(baseTick, capacity);
+			baseTime = Arrays.copyOf(baseTime, capacity);
+			time = Arrays.copyOf(time, capacity);
+		}
+		if (currentTempo != newTempo) {
+			totalTime += (tempoTick - currentTick) * 60000.0 / currentTempo;
+			currentTick = tempoTick;
+		}
+		currentTempo = newTempo;
+
+		int i = size++;
+		tick[i] = tempoTick;
+		tempo[i] = currentTempo;
+		baseTick[i] = currentTick;
+		baseTime[i] = totalTime;
+		time[i] = getTimeOnTickOffset(tempoTick);
+	}
+
+	/**
+	 * テンポリストと同じ内容から作成したものかどうか.
+	 *   テンポイベントは直接変更されることがあるので, キャッシュした変換表の有効性の確認に使う.
+	 */
+	public boolean matches(List<MMLTempoEvent> tempoList) {
+		if (tempoList.size() != size) {
+			return false;
+		}
+		int i = 0;
+		for (MMLTempoEvent tempoEvent : tempoList) {
+			if ( (tempoEvent.getTickOffset() != tick[i]) || (tempoEvent.getTempo() != tempo[i]) ) {
+				return false;
+			}
+			i++;
+		}
+		return true;
+	}
+
+	/**
+	 * キャッシュした変換表がテンポリストと一致すればそれを返し, 一致しなければ作り直す.
+	 * @param cache  キャッシュした変換表 (null可)
+	 */
+	public static TempoMap of(TempoMap cache, List<MMLTempoEvent> tempoList) {
+		return ((cache != null) && cache.matches(tempoList)) ? cache : new TempoMap(tempoList);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * tickオフセット以前で最後のテンポイベントのindex. ない場合は -1.
+	 */
+	private int indexOnTick(long tickOffset) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (tick[mid] <= tickOffset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low - 1;
+	}
+
+	/**
+	 * 指定したtickオフセット位置のテンポを返します.
+	 */
+	public int getTempoOnTick(long tickOffset) {
+		int index = indexOnTick(tickOffset);
+		return (index < 0) ? MMLTempoEvent.INITIAL_TEMPO : tempo[index];
+	}
+
+	/**
+	 * 指定したtickオフセット位置の先頭からの時間を返します.
+	 * @param tickOffset
+	 * @return 先頭からの時間（ms）
+	 */
+	public double getTimeOnTickOffset(int tickOffset) {
+		int index = indexOnTick(tickOffset);
+		double totalTime = 0;
+		int currentTick = 0;
+		int currentTempo = MMLTempoEvent.INITIAL_TEMPO;
+		if (index >= 0) {
+			totalTime = baseTime[index];
+			currentTick = baseTick[index];
+			currentTempo = tempo[index];
+		}
+		totalTime += (tickOffset - currentTick) * 60000.0 / currentTempo;
+		return totalTime / MMLTickTable.TPQN;
+	}
+
+	/**
+	 * 指定した時間からtickオフセットを返します.
+	 * @param time 先頭からの時間（ms）
+	 * @return tickオフセット
+	 */
+	public double getTickOffsetOnTime(double time) {
+		// time より前にあるテンポイベントの数.
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (this.time[mid] < time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		int index = low - 1;
+
+		int currentTempo = MMLTempoEvent.INITIAL_TEMPO;
+		double pointTime = 0;
+		double currentTick = 0;
+		if (index >= 0) {
+			currentTempo = tempo[index];
+			pointTime = this.time[index];
+			currentTick = tick[index];
+		}
+		currentTick += (time - pointTime) * MMLTickTable.TPQN * currentTempo / 60 / 1000;
+		return currentTick;
+	}
+}
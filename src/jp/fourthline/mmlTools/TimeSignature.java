@@ -62,10 +62,12 @@ public final class TimeSignature extends MMLEvent {
 	 * @param score
 	 */
 	static void recalcTimeSignatureList(MMLScore score) {
+		score.invalidateMeasureIndex();
 		var list = score.getTimeSignatureList();
 		list.sort(Comparator.comparingInt(t -> t.getMeasureOffset()));
+		var measureIndex = score.getMeasureIndex();
 		for (TimeSignature ts : list) {
-			int tick = measureToCalcTick(score, ts.getMeasureOffset());
+			int tick = measureIndex.measureToTick(ts.getMeasureOffset());
 			ts.setViewTickOffset(tick);
 		}
 	}
@@ -77,48 +79,11 @@ public final class TimeSignature extends MMLEvent {
 	 * @return
 	 */
 	public static int tickToMeasure(MMLScore score, int tick) {
-		var timeSignatureIterator = score.getTimeSignatureList().iterator();
-		int numTime = score.getTimeCountOnly();
-		int beatTick = score.getBeatTick();
-		int m = 0;
-
-		TimeSignature timeSignature = timeSignatureIterator.hasNext() ? timeSignatureIterator.next() : null;
-		while (beatTick <= tick) {
-			if ( (timeSignature != null) && (m >= timeSignature.getMeasureOffset()) ) {
-				numTime = timeSignature.getNumTime();
-				beatTick = timeSignature.getBaseTick();
-				timeSignature = timeSignatureIterator.hasNext() ? timeSignatureIterator.next() : null;
-			}
-			int measureTick = numTime * beatTick;
-			if (measureTick <= tick) {
-				m++;
-				tick -= measureTick;
-			} else {
-				tick -= beatTick;
-			}
-		}
-		return m;
+		return Math.max(0, score.getMeasureIndex().tickToMeasure(tick));
 	}
 
 	public static int measureToTick(MMLScore score, int measure) {
-		var timeSignatureList = score.getTimeSignatureList();
-		int numTime = score.getTimeCountOnly();
-		int beatTick = score.getBeatTick();
-		int m = 0;
-		int baseTick = 0;
-
-		for (TimeSignature t : timeSignatureList) {
-			if (t.getMeasureOffset() <= measure) {
-				baseTick = t.getTickOffset();
-				m = t.getMeasureOffset();
-				beatTick = t.getBaseTick();
-				numTime = t.getNumTime();
-			} else {
-				break;
-			}
-		}
-
-		return baseTick + (measure - m) * (numTime * beatTick);
+		return score.getMeasureIndex().measureToTick(measure);
 	}
 
 	static int measureToCalcTick(MMLScore score, int measure) {
@@ -19,34 +19,87 @@ public final class MMLTickTable {
 	private final Map<String, Integer> tickTable = new LinkedHashMap<>(1024);
 
 	/**
-	 * For tick -> MML text
+	 * For MML length -> tick (index: length*2 + dot)
 	 */
-	private final IntMap<MMLPatern> tickInvTable;
+	private final int[] tickArray = new int[(MAX_LENGTH+1)*2];
+
+	private static final int MAX_LENGTH = 64;
+
+	/**
+	 * For tick -> MML text (最初に参照されたときに読み込む)
+	 */
+	private volatile IntMap<MMLPatern> tickInvTable;
+
+	/**
+	 * ビルド時に生成する逆引きテーブル (バイナリ形式)
+	 */
+	static final String INV_TABLE_RESOURCE = "tickInvTable.bin";
+	private static final int INV_TABLE_MAGIC = 0x4D545431; // "MTT1"
 
 	public static MMLTickTable createTickTable() {
-		InputStream preTable = null;
 		String preLoadFile = System.getProperty("mabiicco.ticktable");
 		if (preLoadFile != null) {
-			preTable = MMLTickTable.class.getResourceAsStream(preLoadFile);
+			InputStream preTable = MMLTickTable.class.getResourceAsStream(preLoadFile);
+			if (preTable != null) {
+				return new MMLTickTable(preTable);
+			}
 		}
-		return new MMLTickTable(preTable);
+		return new MMLTickTable();
+	}
+
+	/**
+	 * 逆引きテーブルは最初の参照時に, リソースから読み込むか生成する.
+	 */
+	private MMLTickTable() {
+		generateTickTable();
 	}
 
 	MMLTickTable(InputStream inputStream) {
-		NanoTime time = NanoTime.start();
 		generateTickTable();
 		tickInvTable = (inputStream == null) ? generateInvTable() : readFromInputStreamInvTable(inputStream);
-		System.out.println("MMLTickTable " + time.ms() + "ms");
 	}
 
 	IntMap<MMLPatern> getInvTable() {
-		return this.tickInvTable;
+		var table = tickInvTable;
+		if (table == null) {
+			synchronized (this) {
+				table = tickInvTable;
+				if (table == null) {
+					tickInvTable = table = loadInvTable();
+				}
+			}
+		}
+		return table;
+	}
+
+	private IntMap<MMLPatern> loadInvTable() {
+		try (InputStream inputStream = MMLTickTable.class.getResourceAsStream(INV_TABLE_RESOURCE)) {
+			if (inputStream != null) {
+				return readFromInputStreamBinaryInvTable(inputStream);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return generateInvTable();
 	}
 
 	public Map<String, Integer> getTable() {
 		return this.tickTable;
 	}
 
+	/**
+	 * 数値で指定した音長のtickを取得する.
+	 * @param l    音長
+	 * @param dot  付点
+	 * @return 対応する音長がない場合は -1
+	 */
+	public int getTick(int l, boolean dot) {
+		if ( (l <= 0) || (l > MAX_LENGTH) ) {
+			return -1;
+		}
+		return tickArray[l*2 + (dot ? 1 : 0)];
+	}
+
 	private void add(int l, boolean dot) {
 		int tick = TPQN*4 / l;
 		if (dot) {
@@ -54,10 +107,11 @@ public final class MMLTickTable {
 		}
 		String s = l+(dot?".":"");
 		tickTable.put(s, tick);
+		tickArray[l*2 + (dot ? 1 : 0)] = tick;
 	}
 
 	private void generateTickTable() {
-		for (int i = 1; i <= 64; i++) {
+		for (int i = 1; i <= MAX_LENGTH; i++) {
 			add(i, true);
 			add(i, false);
 		}
@@ -125,8 +179,9 @@ public final class MMLTickTable {
 	void writeToOutputStreamInvTable(OutputStream outputStream, boolean alt) {
 		PrintStream stream = new PrintStream(outputStream, false, StandardCharsets.UTF_8);
 		stream.println("# Generated Text --- ");
-		stream.println("# registered key: " + tickInvTable.validCount());
+		stream.println("# registered key: " + getInvTable().validCount());
 
+		var tickInvTable = getInvTable();
 		int max = tickInvTable.max();
 		for (int i = 1; i <= max; i++) {
 			if (tickInvTable.containsKey(i)) {
@@ -164,6 +219,81 @@ public final class MMLTickTable {
 		return new IntMap<>(table);
 	}
 
+	/**
+	 * 逆引きテーブルをバイナリ形式で出力する.
+	 *   音長は tickTable のキーのindex (1byte) で表す.
+	 * <pre>
+	 * magic(int), keyCount(int), size(int),
+	 * { primaryCount(byte), key(byte) * primaryCount, altCount(short), { count(byte), key(byte) * count } * altCount } * size
+	 * </pre>
+	 * primaryCount が 0 のtickは未定義.
+	 */
+	void writeToOutputStreamBinaryInvTable(OutputStream outputStream) throws IOException {
+		var keyIndex = new HashMap<String, Integer>();
+		for (String key : tickTable.keySet()) {
+			keyIndex.put(key, keyIndex.size());
+		}
+
+		var tickInvTable = getInvTable();
+		DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(outputStream));
+		stream.writeInt(INV_TABLE_MAGIC);
+		stream.writeInt(keyIndex.size());
+		stream.writeInt(tickInvTable.max());
+		for (int i = 0; i < tickInvTable.max(); i++) {
+			var patern = tickInvTable.get(i);
+			if (patern == null) {
+				stream.writeByte(0);
+				continue;
+			}
+			writePattern(stream, patern.primary, keyIndex);
+			stream.writeShort(patern.alt.size());
+			for (var alt : patern.alt) {
+				writePattern(stream, alt, keyIndex);
+			}
+		}
+		stream.flush();
+	}
+
+	private static void writePattern(DataOutputStream stream, List<String> pattern, Map<String, Integer> keyIndex) throws IOException {
+		stream.writeByte(pattern.size());
+		for (String s : pattern) {
+			stream.writeByte(keyIndex.get(s));
+		}
+	}
+
+	IntMap<MMLPatern> readFromInputStreamBinaryInvTable(InputStream inputStream) throws IOException {
+		String[] keys = tickTable.keySet().toArray(new String[0]);
+		DataInputStream stream = new DataInputStream(new BufferedInputStream(inputStream));
+		if ((stream.readInt() != INV_TABLE_MAGIC) || (stream.readInt() != keys.length)) {
+			throw new IOException("invalid tick table");
+		}
+		int size = stream.readInt();
+		var array = new MMLPatern[size];
+		for (int i = 0; i < size; i++) {
+			var primary = readPattern(stream, keys);
+			if (primary != null) {
+				var patern = new MMLPatern(primary);
+				for (int count = stream.readUnsignedShort(); count > 0; count--) {
+					patern.alt.add(readPattern(stream, keys));
+				}
+				array[i] = patern;
+			}
+		}
+		return new IntMap<>(array);
+	}
+
+	private static List<String> readPattern(DataInputStream stream, String[] keys) throws IOException {
+		int count = stream.readUnsignedByte();
+		if (count == 0) {
+			return null;
+		}
+		String[] pattern = new String[count];
+		for (int i = 0; i < count; i++) {
+			pattern[i] = keys[stream.readUnsignedByte()];
+		}
+		return List.of(pattern);
+	}
+
 	public final static class IntMap<T> {
 		private final T[] array;
 
@@ -177,6 +307,10 @@ public final class MMLTickTable {
 			array = (T[]) list.toArray();
 		}
 
+		IntMap(T[] array) {
+			this.array = array;
+		}
+
 		public int max() {
 			return array.length;
 		}
@@ -204,8 +338,18 @@ public final class MMLTickTable {
 		writeToOutputStreamInvTable(System.out, true);
 	}
 
-	public static void main(String[] args) {
+	/**
+	 * 引数なし: 逆引きテーブルを表示する.
+	 * -bin file: バイナリ形式の逆引きテーブルを出力する (ビルド時に使用).
+	 */
+	public static void main(String[] args) throws IOException {
 		MMLTickTable tickTable = new MMLTickTable(null);
-		tickTable.printTickList();
+		if ((args.length == 2) && args[0].equals("-bin")) {
+			try (var outputStream = new FileOutputStream(args[1])) {
+				tickTable.writeToOutputStreamBinaryInvTable(outputStream);
+			}
+		} else {
+			tickTable.printTickList();
+		}
 	}
 }
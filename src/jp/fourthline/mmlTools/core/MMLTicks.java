@@ -34,6 +34,22 @@ public final class MMLTicks {
 		return tickTable.getTable().get(str);
 	}
 
+	/**
+	 * 数値で指定した音長のtickを取得する. 文字列を生成しない.
+	 * @param length  音長
+	 * @param dot     付点
+	 * @return tick
+	 * @throws MMLException
+	 */
+	public static int getTick(int length, boolean dot) throws MMLException {
+		int tick = tickTable.getTick(length, dot);
+		if (tick < 0) {
+			// 範囲外は文字列で処理する.
+			return getTick(length + (dot ? "." : ""));
+		}
+		return tick;
+	}
+
 	public static Optional<List<List<String>>> getAlt(int tick) {
 		var t = tickTable.getInvTable().get(tick);
 		return t == null ? Optional.empty() : Optional.of(t.alt);
@@ -47,6 +47,137 @@ public final class MMLTokenizer implements Iterator<String> {
 		endIndex = 0;
 	}
 
+	// カーソル形式の解析結果
+	private char tokenKind;
+	private int accidental;
+	private int number;
+	private int dots;
+	private boolean regular;
+
+	/**
+	 * 次のトークンに進む. {@link #next()} と異なり, トークンの文字列を生成しない.
+	 * トークンの内容は {@link #tokenKind()}, {@link #tokenNumber()} などで取得する.
+	 * @return 次のトークンがない場合は false
+	 */
+	public boolean advance() {
+		if (!hasNext()) {
+			return false;
+		}
+		startIndex = endIndex;
+		endIndex = searchToken(endIndex+1);
+		parseToken();
+		return true;
+	}
+
+	/**
+	 * トークンを "命令 [臨時記号] [数値] [付点]" として解析する.
+	 */
+	private void parseToken() {
+		char ch = mml_charArray[startIndex];
+		tokenKind = Character.toLowerCase(ch);
+		accidental = 0;
+		number = -1;
+		dots = 0;
+		int index = startIndex + 1;
+		if ( isNote(ch) && (index < endIndex) ) {
+			accidental = accidental(mml_charArray[index]);
+			if (accidental != 0) {
+				index++;
+			}
+		}
+		// 数値は ASCII の数字のみ. 全角数字などは規則外となり, 文字列で処理する.
+		int digitStart = index;
+		int value = 0;
+		while ( (index < endIndex) && (mml_charArray[index] >= '0') && (mml_charArray[index] <= '9') && (value < MAX_NUMBER) ) {
+			value = value * 10 + (mml_charArray[index++] - '0');
+		}
+		if (index > digitStart) {
+			number = value;
+		}
+		while ( (index < endIndex) && (mml_charArray[index] == '.') ) {
+			dots++;
+			index++;
+		}
+		// 先頭0の数値など, 文字列と数値が1対1にならないものは規則外とする.
+		boolean leadingZero = (index - dots - digitStart > 1) && (mml_charArray[digitStart] == '0');
+		regular = (index == endIndex) && !leadingZero;
+	}
+
+	private static final int MAX_NUMBER = 100000;
+
+	private static int accidental(char ch) {
+		return switch (ch) {
+		case '+', '#' -> 1;
+		case '-' -> -1;
+		default -> 0;
+		};
+	}
+
+	/**
+	 * @return 現在のトークンの種類 (先頭文字の小文字).
+	 */
+	public char tokenKind() {
+		return tokenKind;
+	}
+
+	/**
+	 * @return 現在のトークンの臨時記号 (+1, -1, なしの場合は0).
+	 */
+	public int tokenAccidental() {
+		return accidental;
+	}
+
+	/**
+	 * @return 現在のトークンの数値. 数値がない場合は -1.
+	 */
+	public int tokenNumber() {
+		return number;
+	}
+
+	/**
+	 * @return 現在のトークンの付点の数.
+	 */
+	public int tokenDots() {
+		return dots;
+	}
+
+	/**
+	 * トークンが "命令 [臨時記号] [数値] [付点]" の形式どおりかどうか.
+	 * 規則外のトークンは {@link #token()} の文字列で処理する.
+	 */
+	public boolean isRegularToken() {
+		return regular;
+	}
+
+	/**
+	 * @return 現在のトークンの文字列.
+	 */
+	public String token() {
+		return mml_src.substring(startIndex, endIndex);
+	}
+
+	private static final String[][] noteNameTable = new String[128][];
+	static {
+		for (char ch : noteString.toCharArray()) {
+			noteNameTable[ch] = new String[] { ch+"", ch+"+", ch+"-", ch+"#" };
+		}
+	}
+
+	/**
+	 * 現在のノートトークンのノート名 (臨時記号を含む). {@link #noteName(String)} と同じ文字列を返す.
+	 */
+	public String noteName() {
+		char ch = mml_charArray[startIndex];
+		if ( (accidental == 0) || (startIndex + 1 >= endIndex) ) {
+			return noteNameTable[ch][0];
+		}
+		return switch (mml_charArray[startIndex+1]) {
+		case '+' -> noteNameTable[ch][1];
+		case '-' -> noteNameTable[ch][2];
+		default  -> noteNameTable[ch][3];
+		};
+	}
+
 	public int getStart() {
 		return startIndex;
 	}
@@ -37,6 +37,10 @@ public final class MelodyParser {
 	private int noteNumber = R_NOTE;
 	private String gt;
 
+	// mml_L に対するtick (未計算は -1)
+	private int lTick = -1;
+	private int lDotTick = -1;
+
 	public MelodyParser(String mml) {
 		this(mml, "4", 120);
 	}
@@ -222,6 +226,7 @@ public final class MelodyParser {
 			case 'l': 
 			case 'L':
 				mml_L = note.substring(1);
+				lTick = lDotTick = -1;
 				break;
 			case 't':
 			case 'T':
@@ -310,6 +315,85 @@ public final class MelodyParser {
 		return mmlGT(gt);
 	}
 
+	private int lTick() throws MMLException {
+		if (lTick < 0) {
+			lTick = mmlGT(mml_L);
+		}
+		return lTick;
+	}
+
+	private int lDotTick() throws MMLException {
+		if (lDotTick < 0) {
+			lDotTick = mmlGT(mml_L+".");
+		}
+		return lDotTick;
+	}
+
+	/**
+	 * {@link #noteGT(String)} のカーソル版. トークンの文字列を生成せずに解析する.
+	 * 規則外のトークンは文字列で処理するため, 結果は {@link #noteGT(String)} と同じになる.
+	 * ただし {@link #getGt()} は更新しない.
+	 * @param tokenizer 解析対象のトークン位置にある MMLTokenizer
+	 * @return tick
+	 * @throws MMLException
+	 * @throws ParserWarn3ML
+	 */
+	public int noteGT(MMLTokenizer tokenizer) throws MMLException, ParserWarn3ML {
+		if (!tokenizer.isRegularToken()) {
+			return noteGT(tokenizer.token());
+		}
+
+		char kind = tokenizer.tokenKind();
+		int number = tokenizer.tokenNumber();
+		int dots = tokenizer.tokenDots();
+		switch (kind) {
+		case '<':
+			if (mml_oct > 0) {
+				mml_oct--;
+			}
+			return 0;
+		case '>':
+			if (mml_oct < 8) {
+				mml_oct++;
+			}
+			return 0;
+		case 'o':
+			if ( (number >= 0) && (dots == 0) ) {
+				mml_oct = number;
+				return 0;
+			}
+			return noteGT(tokenizer.token());
+		case 'n':
+			if ( (number < 0) || (dots > 0) || (tokenizer.tokenAccidental() != 0) ) {
+				return noteGT(tokenizer.token());
+			}
+			this.playingNote = kind;
+			noteNumber = number;
+			noteMinMax( noteNumber );
+			return lTick();
+		default:
+			if (!MMLTokenizer.isNote(kind)) {
+				return noteGT(tokenizer.token());
+			}
+			break;
+		}
+
+		this.playingNote = kind;
+		noteNumber = mml_oct * 12 + noteIndex(kind, ' ') + tokenizer.tokenAccidental();
+		if (kind != 'r') {
+			noteMinMax( noteNumber );
+		} else {
+			noteNumber = R_NOTE;
+		}
+
+		if (number >= 0) {
+			return MMLTicks.getTick(number, dots > 0);
+		} else if (dots > 0) {
+			return lDotTick();
+		}
+		return lTick();
+	}
+
 	protected void reset() {
 		mml_length = 0;
 		warnIndex.removeAll(warnIndex);
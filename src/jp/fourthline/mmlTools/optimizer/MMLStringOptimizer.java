@@ -6,8 +6,11 @@ package jp.fourthline.mmlTools.optimizer;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import jp.fourthline.mmlTools.MMLEventList;
 import jp.fourthline.mmlTools.core.MMLTokenizer;
@@ -30,24 +33,34 @@ public final class MMLStringOptimizer {
 	 */
 	private static int optLevel = 1;
 
+	/**
+	 * 最適化のバージョン. 最適化の出力が変わる変更をした場合は更新する.
+	 *   保存したキャッシュファイルのバージョンと異なる場合は, ファイルを使用しない.
+	 */
+	public static final int OPTIMIZER_VERSION = 1;
+
 	/**
 	 * キャッシュ
 	 *   undo, redoでも使えるようにstaticとする.
 	 */
-	private static final Map<String, String> mmlCache = Collections.synchronizedMap(new CacheMap<>(256));
+	private static final OptimizerCache mmlCache = new OptimizerCache(8L << 20, 16, OPTIMIZER_VERSION);
 
-	private static final List<Map<?, ?>> cacheList = new ArrayList<>();
+	private static final List<Runnable> cacheList = new ArrayList<>();
 
 	public static void addCacheList(Map<?, ?> map) {
-		cacheList.add(map);
+		cacheList.add(map::clear);
 	}
 
 	public static void clearAllCache() {
-		cacheList.forEach(t -> t.clear());
+		cacheList.forEach(Runnable::run);
+	}
+
+	public static OptimizerCache getCache() {
+		return mmlCache;
 	}
 
 	static {
-		addCacheList(mmlCache);
+		cacheList.add(mmlCache::clear);
 	}
 
 
@@ -63,6 +76,10 @@ public final class MMLStringOptimizer {
 		optLevel = level;
 	}
 
+	public static int getOptimizeLevel() {
+		return optLevel;
+	}
+
 	private final String originalMML;
 
 	private boolean disableNopt = false;
@@ -87,18 +104,14 @@ public final class MMLStringOptimizer {
 	}
 
 	private String cachedOptimize(int gen, boolean disableNopt) {
-		String key = gen + ":" + disableNopt + ":" + originalMML;
+		var key = OptimizerCache.key(gen, disableNopt, originalMML);
 		String str = mmlCache.get(key);
 		if (str != null) {
 			return str;
 		}
 
-		if (gen == GEN2) {
-			String mml1 = optimizeGen2();
-			str = (new MMLEventList(mml1).equals(new MMLEventList(originalMML))) ? mml1 : optimize(disableNopt);
-		} else if (gen == GEN3) {
-			String mml1 = optimizeGen3();
-			str = (new MMLEventList(mml1).equals(new MMLEventList(originalMML))) ? mml1 : optimize(disableNopt);
+		if ((gen == GEN2) || (gen == GEN3)) {
+			str = verifiedOptimize(gen, disableNopt);
 		} else {
 			str = optimize(disableNopt);
 		}
@@ -107,6 +120,52 @@ public final class MMLStringOptimizer {
 		return str;
 	}
 
+	/**
+	 * Gen2/Gen3 と Normal を並列に実行して, Gen2/Gen3の出力を再Parseして検査する.
+	 *   検査OKの場合は Normal を中断し, 検査NGの場合は Normal の結果を使用する.
+	 *   検査用の originalMML のParse結果は, 呼び出しをまたいでキャッシュする.
+	 */
+	private String verifiedOptimize(int gen, boolean disableNopt) {
+		var cancel = new AtomicBoolean(false);
+		var normalTask = ForkJoinTask.adapt(() -> optimize(normalOptimizerList(disableNopt), cancel)).fork();
+		var originalTask = ForkJoinTask.adapt(() -> parseOriginal(originalMML)).fork();
+		String mml1 = (gen == GEN2) ? optimizeGen2() : optimizeGen3();
+		var eventList = new MMLEventList(mml1);
+		if (eventList.equals(originalTask.join())) {
+			cancel.set(true);
+			normalTask.cancel(false);
+			return mml1;
+		}
+		return normalTask.join();
+	}
+
+	/**
+	 * 検査用の originalMML のParse結果のキャッシュ. 参照のみで変更しないこと.
+	 *   最適化レベルや disableNopt の切り替え, 最適化結果のキャッシュから追い出された場合の再検査で使う.
+	 */
+	private static final Map<String, MMLEventList> parsedCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, MMLEventList> eldest) {
+			return size() > PARSED_CACHE_SIZE;
+		}
+	});
+	private static final int PARSED_CACHE_SIZE = 64;
+
+	static {
+		addCacheList(parsedCache);
+	}
+
+	static MMLEventList parseOriginal(String mml) {
+		var eventList = parsedCache.get(mml);
+		if (eventList == null) {
+			eventList = new MMLEventList(mml);
+			parsedCache.put(mml, eventList);
+		}
+		return eventList;
+	}
+
 	/**
 	 * MML最適化 Gen2
 	 */
@@ -144,20 +203,38 @@ public final class MMLStringOptimizer {
 	 * MML最適化 Normal
 	 */
 	public String optimize(boolean opt) {
-		return optimize(!opt ? new Optimizer[] {
-				new OxLxOptimizer(),
+		return optimize(normalOptimizerList(opt));
+	}
+
+	private static Optimizer[] normalOptimizerList(boolean opt) {
+		return !opt ? new Optimizer[] {
+				new OxLxLatticeOptimizer(),
 				new BpCmOptimizer(),
 				new NxOptimizer()
 		} : new Optimizer[] {
-				new OxLxOptimizer(),
+				new OxLxLatticeOptimizer(),
 				new BpCmOptimizer()
-		});
+		};
 	}
 
 	private String optimize(Optimizer[] optimizerList) {
+		return optimize(optimizerList, null);
+	}
+
+	/**
+	 * @param cancel  trueになったら中断する (null可)
+	 * @return 中断した場合は null
+	 */
+	private String optimize(Optimizer[] optimizerList, AtomicBoolean cancel) {
 		String mml = originalMML;
 		for (Optimizer optimizer : optimizerList) {
-			new MMLTokenizer(mml).forEachRemaining(optimizer::nextToken);
+			var tokenizer = new MMLTokenizer(mml);
+			while (tokenizer.advance()) {
+				if ((cancel != null) && cancel.get()) {
+					return null;
+				}
+				optimizer.nextToken(tokenizer);
+			}
 			mml = optimizer.getMinString();
 		}
 
@@ -172,10 +249,14 @@ public final class MMLStringOptimizer {
 	public interface Optimizer {
 		void nextToken(String token);
 		String getMinString();
-	}
 
-	static Map<String, String> getCache() {
-		return mmlCache;
+		/**
+		 * カーソル形式のトークン入力. 文字列を必要としないOptimizerはoverrideして使う.
+		 * @param tokenizer  {@link MMLTokenizer#advance()} で解析位置を進めたもの
+		 */
+		default void nextToken(MMLTokenizer tokenizer) {
+			nextToken(tokenizer.token());
+		}
 	}
 
 	public static void main(String[] args) {
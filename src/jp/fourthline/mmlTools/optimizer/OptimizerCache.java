@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools.optimizer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MML最適化結果のキャッシュ.
+ *   キーは (gen, disableNopt, 元MML) の128bitハッシュとし, 元MMLの文字列は保持しない.
+ *   セグメントごとにロックし, 各セグメントは文字列のバイト数で上限を管理する (LRU).
+ *   ファイルにはファイル形式と最適化のバージョンを書き込み, どちらかが異なるファイルは読み込まない.
+ */
+public final class OptimizerCache {
+	private static final int FILE_MAGIC = 0x4D4F4331; // "MOC1"
+	private static final int FILE_FORMAT_VERSION = 1;
+
+	/** 128bitのキー. */
+	record Key(long hi, long lo) {}
+
+	private final Segment[] segments;
+	private final long segmentBudget;
+	/** 最適化のバージョン. 保存したファイルのバージョンと異なる場合は読み込まない. */
+	private final int optimizerVersion;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	/**
+	 * @param maxBytes   保持する最適化結果のバイト数上限 (全セグメント合計)
+	 * @param stripes    セグメント数
+	 */
+	public OptimizerCache(long maxBytes, int stripes) {
+		this(maxBytes, stripes, 0);
+	}
+
+	/**
+	 * @param maxBytes   保持する最適化結果のバイト数上限 (全セグメント合計)
+	 * @param stripes    セグメント数
+	 * @param optimizerVersion  最適化のバージョン (出力が変わる変更をした場合に更新する)
+	 */
+	public OptimizerCache(long maxBytes, int stripes, int optimizerVersion) {
+		if ((maxBytes <= 0) || (stripes <= 0)) {
+			throw new IllegalArgumentException("maxBytes="+maxBytes+", stripes="+stripes);
+		}
+		this.segments = new Segment[stripes];
+		for (int i = 0; i < stripes; i++) {
+			segments[i] = new Segment();
+		}
+		this.segmentBudget = Math.max(1, maxBytes / stripes);
+		this.optimizerVersion = optimizerVersion;
+	}
+
+	private final class Segment {
+		private final LinkedHashMap<Key, String> map = new LinkedHashMap<>(16, 0.75f, true);
+		private long bytes = 0;
+
+		private synchronized String get(Key key) {
+			return map.get(key);
+		}
+
+		private synchronized void put(Key key, String value) {
+			String old = map.put(key, value);
+			if (old != null) {
+				bytes -= sizeOf(old);
+			}
+			bytes += sizeOf(value);
+
+			// 最後に追加したものは残す.
+			Iterator<Map.Entry<Key, String>> it = map.entrySet().iterator();
+			while ((bytes > segmentBudget) && (map.size() > 1)) {
+				var eldest = it.next();
+				bytes -= sizeOf(eldest.getValue());
+				it.remove();
+				evictionCount.increment();
+			}
+		}
+
+		private synchronized void clear() {
+			map.clear();
+			bytes = 0;
+		}
+
+		private synchronized int size() {
+			return map.size();
+		}
+
+		private synchronized long bytes() {
+			return bytes;
+		}
+
+		private synchronized List<Map.Entry<Key, String>> entries() {
+			return map.entrySet().stream().map(t -> Map.entry(t.getKey(), t.getValue())).toList();
+		}
+	}
+
+	private static long sizeOf(String value) {
+		return 2L * value.length();
+	}
+
+	private Segment segmentOf(Key key) {
+		return segments[(int) ((key.lo() >>> 1) % segments.length)];
+	}
+
+	/**
+	 * キャッシュのキーを作成する.
+	 */
+	static Key key(int gen, boolean disableNopt, String mml) {
+		try {
+			var digest = MessageDigest.getInstance("MD5");
+			digest.update((byte) gen);
+			digest.update((byte) (disableNopt ? 1 : 0));
+			digest.update(mml.getBytes(StandardCharsets.UTF_8));
+			var buf = ByteBuffer.wrap(digest.digest());
+			return new Key(buf.getLong(), buf.getLong());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public String get(int gen, boolean disableNopt, String mml) {
+		return get(key(gen, disableNopt, mml));
+	}
+
+	String get(Key key) {
+		String value = segmentOf(key).get(key);
+		if (value != null) {
+			hitCount.increment();
+		} else {
+			missCount.increment();
+		}
+		return value;
+	}
+
+	public void put(int gen, boolean disableNopt, String mml, String value) {
+		put(key(gen, disableNopt, mml), value);
+	}
+
+	void put(Key key, String value) {
+		segmentOf(key).put(key, value);
+	}
+
+	public void clear() {
+		for (var segment : segments) {
+			segment.clear();
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (var segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	public long getBytes() {
+		long bytes = 0;
+		for (var segment : segments) {
+			bytes += segment.bytes();
+		}
+		return bytes;
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "OptimizerCache[size=" + size() + ", bytes=" + getBytes()
+				+ ", hit=" + getHitCount() + ", miss=" + getMissCount() + ", eviction=" + getEvictionCount() + "]";
+	}
+
+	/**
+	 * キャッシュの内容をファイルに保存する.
+	 */
+	public void save(File file) throws IOException {
+		try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(FILE_MAGIC);
+			out.writeInt(FILE_FORMAT_VERSION);
+			out.writeInt(optimizerVersion);
+			for (var segment : segments) {
+				for (var entry : segment.entries()) {
+					out.writeLong(entry.getKey().hi());
+					out.writeLong(entry.getKey().lo());
+					byte[] b = entry.getValue().getBytes(StandardCharsets.UTF_8);
+					out.writeInt(b.length);
+					out.write(b);
+				}
+			}
+		}
+	}
+
+	/**
+	 * ファイルからキャッシュの内容を読み込む. 形式またはバージョンが異なる場合は何もしない.
+	 *   内容が壊れている場合は IOException とし, 読み込み途中のエントリも追加しない.
+	 * @return 読み込んだエントリ数
+	 */
+	public int load(File file) throws IOException {
+		var keys = new ArrayList<Key>();
+		var values = new ArrayList<String>();
+		try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if ( (in.readInt() != FILE_MAGIC) || (in.readInt() != FILE_FORMAT_VERSION) || (in.readInt() != optimizerVersion) ) {
+				return 0;
+			}
+			long remaining = file.length() - 12;
+			while (true) {
+				long hi;
+				try {
+					hi = in.readLong();
+				} catch (EOFException e) {
+					break;
+				}
+				long lo = in.readLong();
+				int len = in.readInt();
+				remaining -= 20;
+				if ( (len < 0) || (len > remaining) ) {
+					throw new IOException("invalid cache entry length: " + len);
+				}
+				remaining -= len;
+				byte[] b = new byte[len];
+				in.readFully(b);
+				keys.add(new Key(hi, lo));
+				values.add(new String(b, StandardCharsets.UTF_8));
+			}
+		}
+		for (int i = 0; i < keys.size(); i++) {
+			put(keys.get(i), values.get(i));
+		}
+		return keys.size();
+	}
+}
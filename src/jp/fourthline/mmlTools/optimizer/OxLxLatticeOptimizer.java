@@ -0,0 +1,513 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools.optimizer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jp.fourthline.mmlTools.MMLBuilder;
+import jp.fourthline.mmlTools.core.MMLTokenizer;
+
+
+/**
+ * Ox, Lxを使用した最適化 ({@link OxLxOptimizer} と同じ探索を省アロケーションで行う).
+ * <pre>
+ * - Lの文字列は int のコードにして, 状態をコードのindexで保持する.
+ * - 生成中の文字列は StringBuilder をコピーせず, 末尾から親をたどるノードで共有する.
+ * - 同じ長さの候補は OxLxOptimizer (HashMap) の走査順と同じ順序で選ぶため, 出力は OxLxOptimizer と同一になる.
+ * </pre>
+ */
+public final class OxLxLatticeOptimizer implements MMLStringOptimizer.Optimizer {
+
+	/**
+	 * 生成中文字列のノード. 親ノードの文字列に text を追加したものを表す.
+	 */
+	private static final class Node {
+		private final Node parent;
+		private final String text;
+		private final int length;
+
+		private Node(Node parent, String text) {
+			this.parent = parent;
+			this.text = text;
+			this.length = ((parent != null) ? parent.length : 0) + text.length();
+		}
+
+		private Node append(String s) {
+			return s.isEmpty() ? this : new Node(this, s);
+		}
+
+		/**
+		 * 末尾から insertBack 文字の位置に挿入する.
+		 */
+		private Node insert(String s, int insertBack) {
+			if (insertBack <= 0) {
+				return append(s);
+			}
+			int len = text.length();
+			if (len >= insertBack) {
+				return parentOrRoot().append(text.substring(0, len - insertBack)).append(s).append(text.substring(len - insertBack));
+			}
+			if (parent == null) {
+				throw new StringIndexOutOfBoundsException(-insertBack);
+			}
+			return parent.insert(s, insertBack - len).append(text);
+		}
+
+		/**
+		 * 末尾の count 文字を削除する.
+		 */
+		private Node truncate(int count) {
+			Node node = this;
+			while (count > 0) {
+				int len = node.text.length();
+				if (len > count) {
+					return node.parentOrRoot().append(node.text.substring(0, len - count));
+				}
+				count -= len;
+				node = node.parentOrRoot();
+			}
+			return node;
+		}
+
+		private boolean endsWith(String suffix) {
+			int i = suffix.length();
+			if (length < i) {
+				return false;
+			}
+			for (Node node = this; i > 0; node = node.parent) {
+				String t = node.text;
+				for (int j = t.length() - 1; (j >= 0) && (i > 0); j--) {
+					if (t.charAt(j) != suffix.charAt(--i)) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		private Node parentOrRoot() {
+			return (parent != null) ? parent : ROOT;
+		}
+
+		@Override
+		public String toString() {
+			char[] buf = new char[length];
+			int pos = length;
+			for (Node node = this; node != null; node = node.parent) {
+				int len = node.text.length();
+				pos -= len;
+				node.text.getChars(0, len, buf, pos);
+			}
+			return new String(buf);
+		}
+	}
+
+	private static final Node ROOT = new Node(null, "");
+
+	/**
+	 * Lの文字列とコード.
+	 */
+	private static final class LenCode {
+		private final int code;
+		private final String name;
+		private final String lName;
+		private final int hash;
+
+		private LenCode(int code, String name) {
+			this.code = code;
+			this.name = name;
+			this.lName = "l" + name;
+			int h = name.hashCode();
+			this.hash = h ^ (h >>> 16);
+		}
+
+		/** HashMap上のbucket位置 */
+		private int bucket(int capacity) {
+			return hash & (capacity - 1);
+		}
+	}
+
+	private static final Map<String, LenCode> lenCodeMap = new ConcurrentHashMap<>();
+	private static final AtomicInteger lenCodeCount = new AtomicInteger();
+
+	private static LenCode lenCode(String name) {
+		return lenCodeMap.computeIfAbsent(name, t -> new LenCode(lenCodeCount.getAndIncrement(), t));
+	}
+
+	private static final int MAX_NUMBER_LEN = 64;
+	private static final LenCode[] numberLenCodes = new LenCode[(MAX_NUMBER_LEN+1)*2];
+
+	private static LenCode lenCode(int number, boolean dot) {
+		if (number > MAX_NUMBER_LEN) {
+			return lenCode(number + (dot ? "." : ""));
+		}
+		int index = number*2 + (dot ? 1 : 0);
+		LenCode len = numberLenCodes[index];
+		if (len == null) {
+			len = numberLenCodes[index] = lenCode(number + (dot ? "." : ""));
+		}
+		return len;
+	}
+
+	/** HashMapの初期容量 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** コードごとの状態 (null は候補なし) */
+	private Node[] nodes = new Node[32];
+	private LenCode[] keys = new LenCode[32];
+	private int[] seq = new int[32];
+
+	/** 候補のあるコードの一覧 */
+	private int[] active = new int[32];
+	private int activeCount = 0;
+
+	/** OxLxOptimizer の HashMap の走査順を再現するための容量と追加順 */
+	private int capacity = INITIAL_CAPACITY;
+	private int seqCount = 0;
+
+	/** 最短の候補のコード. 候補を更新するときに合わせて更新する. */
+	private int minCode = -1;
+
+	public OxLxLatticeOptimizer() {
+		put(lenCode("4"), ROOT);
+	}
+
+	private void ensureCode(int code) {
+		if (code >= nodes.length) {
+			int size = Math.max(code + 1, nodes.length << 1);
+			nodes = Arrays.copyOf(nodes, size);
+			keys = Arrays.copyOf(keys, size);
+			seq = Arrays.copyOf(seq, size);
+		}
+	}
+
+	private void put(LenCode key, Node node) {
+		int code = key.code;
+		ensureCode(code);
+		if (nodes[code] == null) {
+			keys[code] = key;
+			seq[code] = seqCount++;
+			if (activeCount == active.length) {
+				active = Arrays.copyOf(active, activeCount << 1);
+			}
+			active[activeCount++] = code;
+			if (activeCount > capacity * 3 / 4) {
+				// 走査順が変わるので, 最短の候補を選び直す.
+				capacity <<= 1;
+				nodes[code] = node;
+				rescanMin();
+				return;
+			}
+		}
+		nodes[code] = node;
+		updateMin(code);
+	}
+
+	private Node get(LenCode key) {
+		return (key.code < nodes.length) ? nodes[key.code] : null;
+	}
+
+	private void remove(int index) {
+		nodes[active[index]] = null;
+		active[index] = active[--activeCount];
+	}
+
+	private void updateMinLength(LenCode key, Node node) {
+		Node now = get(key);
+		if ( (now == null) || (node.length < now.length) ) {
+			put(key, node);
+		}
+	}
+
+	/**
+	 * 走査順で code1 が code2 より前にあるかどうか.
+	 */
+	private boolean isBefore(int code1, int code2) {
+		int b1 = keys[code1].bucket(capacity);
+		int b2 = keys[code2].bucket(capacity);
+		return (b1 < b2) || ((b1 == b2) && (seq[code1] < seq[code2]));
+	}
+
+	/**
+	 * 更新した候補が最短であれば, 最短の候補とする.
+	 *   候補の長さの順序は, すべての候補に同じ文字列を追加しても変わらない.
+	 *   cleanMap で最短の候補は削除されない.
+	 */
+	private void updateMin(int code) {
+		int min = minCode;
+		if ( (min < 0) || (nodes[code].length < nodes[min].length) ||
+				((nodes[code].length == nodes[min].length) && isBefore(code, min)) ) {
+			minCode = code;
+		}
+	}
+
+	private void rescanMin() {
+		minCode = -1;
+		for (int i = 0; i < activeCount; i++) {
+			updateMin(active[i]);
+		}
+	}
+
+	@Override
+	public String getMinString() {
+		return (minCode < 0) ? "" : nodes[minCode].toString();
+	}
+
+	private void printMap() {
+		if (MMLStringOptimizer.getDebug()) {
+			System.out.println(" --- ");
+			for (int i = 0; i < activeCount; i++) {
+				int code = active[i];
+				System.out.println(keys[code].name + ": " + nodes[code].toString());
+			}
+		}
+	}
+
+	/**
+	 * すべてに文字列を無条件追加
+	 */
+	private void addString(String s, int insertBack) {
+		for (int i = 0; i < activeCount; i++) {
+			int code = active[i];
+			nodes[code] = nodes[code].insert(s, insertBack);
+		}
+	}
+
+	/**
+	 * 新しい候補を, 一時HashMap (容量16) の走査順で反映する.
+	 */
+	private void updateMinLength(LenCode[] newKeys, Node[] newNodes, int count) {
+		for (int i = 1; i < count; i++) {
+			for (int j = i; (j > 0) && (newKeys[j].bucket(INITIAL_CAPACITY) < newKeys[j-1].bucket(INITIAL_CAPACITY)); j--) {
+				LenCode k = newKeys[j]; newKeys[j] = newKeys[j-1]; newKeys[j-1] = k;
+				Node n = newNodes[j]; newNodes[j] = newNodes[j-1]; newNodes[j-1] = n;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			updateMinLength(newKeys[i], newNodes[i]);
+		}
+	}
+
+	private final LenCode[] newKeys = new LenCode[3];
+	private final Node[] newNodes = new Node[3];
+
+	private void addNoteText(String noteName, LenCode len, int insertBack) {
+		Node minNode = nodes[minCode];
+		String dotName = len.name;
+		boolean hasNew = false;
+
+		// 保有する候補を更新. 追加する文字列が候補ごとに異なるので, 最短の候補も選び直す.
+		minCode = -1;
+		for (int i = 0; i < activeCount; i++) {
+			int code = active[i];
+			if (code == len.code) {
+				nodes[code] = nodes[code].append(noteName);
+			} else {
+				hasNew = true;
+				String key = keys[code].name;
+				boolean isDot = (dotName.length() == key.length() + 1) && dotName.endsWith(".") && dotName.startsWith(key);
+				nodes[code] = nodes[code].append(isDot ? noteName + "." : noteName + dotName);
+			}
+			updateMin(code);
+		}
+
+		// 新規の候補で更新.
+		if (hasNew) {
+			int count = 0;
+			newKeys[count] = len;
+			newNodes[count++] = minNode.insert(len.lName, insertBack).append(noteName);
+			if (dotName.endsWith(".")) {
+				LenCode len2 = lenCode(dotName.substring(0, dotName.length()-1));
+				newKeys[count] = len2;
+				newNodes[count++] = minNode.insert(len2.lName, insertBack).append(noteName + ".");
+			}
+			updateMinLength(newKeys, newNodes, count);
+		}
+
+		FlexDotPattern.updateFlexDot(this, noteName, len);
+	}
+
+	private static final class FlexDotPattern {
+		private static final FlexDotPattern[] flexList = {
+				new FlexDotPattern(64),
+				new FlexDotPattern(32),
+				new FlexDotPattern(16),
+				new FlexDotPattern(8),
+				new FlexDotPattern(4)
+		};
+
+		private final LenCode lCur;
+		private final LenCode lNext;
+		private final LenCode lPrev;
+		private final LenCode lPrevDot;
+		private FlexDotPattern(int l) {
+			this.lCur = lenCode((l/2) + ".");
+			this.lNext = lenCode(Integer.toString(l));
+			this.lPrev = lenCode(Integer.toString(l/4));
+			this.lPrevDot = lenCode(lPrev.name + ".");
+		}
+
+		private void updatePattern(OxLxLatticeOptimizer optimizer, String noteName) {
+			Node node = optimizer.get(lNext);
+			if (node == null) {
+				return;
+			}
+			String cName = noteName;
+			if (!noteName.equalsIgnoreCase("r")) {
+				cName = "&" + noteName;
+			}
+
+			String eStr = noteName + lPrev.name + cName + lCur.name;
+			if (node.endsWith(eStr)) {
+				Node prev = node.truncate(eStr.length());
+				var newKeys = optimizer.newKeys;
+				var newNodes = optimizer.newNodes;
+				newKeys[0] = lNext;
+				newNodes[0] = prev.append(noteName + cName + lPrevDot.name);
+				newKeys[1] = lPrevDot;
+				newNodes[1] = prev.append(noteName + "l" + lPrevDot.name + cName);
+				newKeys[2] = lPrev;
+				newNodes[2] = prev.append(noteName + "l" + lPrev.name + cName + ".");
+				optimizer.updateMinLength(newKeys, newNodes, 3);
+			}
+		}
+
+		private static void updateFlexDot(OxLxLatticeOptimizer optimizer, String noteName, LenCode len) {
+			for (FlexDotPattern t : flexList) {
+				if (len == t.lCur) {
+					t.updatePattern(optimizer, noteName);
+					break;
+				}
+			}
+		}
+	}
+
+	private void cleanMap() {
+		int minLength = nodes[minCode].length;
+		for (int i = activeCount - 1; i >= 0; i--) {
+			int code = active[i];
+			if (nodes[code].length > minLength + keys[code].name.length() + 1) {
+				remove(i);
+			}
+		}
+	}
+
+	private String section = "4";
+	private LenCode sectionLen = null;
+	private LenCode sectionDotLen = null;
+	private int octave = MMLBuilder.INIT_OCT;
+	private int octD = 0;
+
+	private int tokenStack = 0;
+
+	private void doPattern(String noteName, LenCode len, int insertBack) {
+		insertOxPattern(insertBack);
+		addNoteText(noteName, len, insertBack);
+	}
+
+	private LenCode resolveLen(String lenString) {
+		if (lenString.equals("")) {
+			return sectionLen(false);
+		} else if (lenString.equals(".")) {
+			return sectionLen(true);
+		}
+		return lenCode(lenString);
+	}
+
+	private LenCode sectionLen(boolean dot) {
+		if (sectionLen == null) {
+			sectionLen = lenCode(this.section);
+			sectionDotLen = lenCode(this.section + ".");
+		}
+		return dot ? sectionDotLen : sectionLen;
+	}
+
+	private void insertOxPattern(int insertBack) {
+		if (this.octD != 0) {
+			int nextOct = this.octave + this.octD;
+			addString(OxLxOptimizer.getOctaveString(this.octave, nextOct), insertBack);
+
+			this.octave = nextOct;
+			this.octD = 0;
+		}
+	}
+
+	private boolean doToken(char firstC, String lenString) {
+		if (firstC == 'o') {
+			octD = Integer.parseInt(lenString) - octave;
+		} else if (firstC == '>') {
+			octD++;
+		} else if (firstC == '<') {
+			octD--;
+		} else if (firstC == 'l') {
+			this.section = lenString;
+			this.sectionLen = null;
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public void nextToken(String token) {
+		char firstC = Character.toLowerCase( token.charAt(0) );
+		String[] s = MMLTokenizer.noteNames(token);
+
+		if (MMLTokenizer.isNote(firstC)) {
+			doPattern(s[0], resolveLen(s[1]), tokenStack);
+			tokenStack = 0;
+			cleanMap();
+		} else {
+			boolean patternDone = doToken(firstC, s[1]);
+			if (!patternDone) {
+				addString(token, 0);
+			}
+			if (firstC == '&') {
+				// '&' 以外は順番どおり.
+				tokenStack += token.length();
+			}
+		}
+
+		printMap();
+	}
+
+	/**
+	 * ノート, オクターブ, タイのトークンは文字列を生成せずに処理する.
+	 */
+	@Override
+	public void nextToken(MMLTokenizer tokenizer) {
+		char firstC = tokenizer.tokenKind();
+		int number = tokenizer.tokenNumber();
+		int dots = tokenizer.tokenDots();
+		if (!tokenizer.isRegularToken() || (dots > 1)) {
+			nextToken(tokenizer.token());
+			return;
+		}
+
+		if (MMLTokenizer.isNote(firstC)) {
+			LenCode len = (number >= 0) ? lenCode(number, dots > 0) : sectionLen(dots > 0);
+			doPattern(tokenizer.noteName(), len, tokenStack);
+			tokenStack = 0;
+			cleanMap();
+		} else if (firstC == '>') {
+			octD++;
+		} else if (firstC == '<') {
+			octD--;
+		} else if ( (firstC == 'o') && (number >= 0) && (dots == 0) ) {
+			octD = number - octave;
+		} else if ( (firstC == '&') && (number < 0) && (dots == 0) ) {
+			addString("&", 0);
+			tokenStack++;
+		} else {
+			nextToken(tokenizer.token());
+			return;
+		}
+
+		printMap();
+	}
+}
@@ -10,6 +10,7 @@ import java.util.Collection;
 import java.util.Map;
 
 import jp.fourthline.mmlTools.MMLScore;
+import jp.fourthline.mmlTools.MMLScoreBinarySerializer;
 import jp.fourthline.mmlTools.MMLScoreSerializer;
 
 /**
@@ -34,6 +35,8 @@ public interface IMMLFileParser {
 			fileParser = new MidiFile().preparse(file);
 		} else if (suffix.endsWith(".txt")) {
 			fileParser = new TxtFile();
+		} else if (suffix.endsWith(".mmb")) {
+			fileParser = new MMLScoreBinarySerializer(new MMLScore());
 		} else {
 			fileParser = new MMLScoreSerializer(new MMLScore());
 		}
@@ -58,20 +58,30 @@ public final class MMLEventParser implements Iterator<MMLEvent> {
 	private int tuningFirstTick = 0;
 	private int tuningTiedCount = 0;
 
+	/**
+	 * 命令の数値を取得する. 規則外のトークンのみ文字列を生成して Integer.parseInt で処理する.
+	 * @throws NumberFormatException
+	 */
+	private int parseNumber() throws NumberFormatException {
+		if ( tokenizer.isRegularToken() && (tokenizer.tokenNumber() >= 0) && (tokenizer.tokenDots() == 0) ) {
+			return tokenizer.tokenNumber();
+		}
+		return Integer.parseInt( tokenizer.token().substring(1) );
+	}
+
 	/**
 	 * @return すべてMMLパースが終っているときは、nullを返す.
 	 */
 	private MMLEvent parseNextEvent() {
-		while (tokenizer.hasNext()) {
-			String token = tokenizer.next();
-			char firstC = token.charAt(0);
+		while (tokenizer.advance()) {
+			char firstC = tokenizer.tokenKind();
 			if ( firstC == '&' ) {
 				hasTie = true;
 				continue;
 			}
-			if ( (firstC == 'v') || (firstC == 'V') ) {
+			if ( firstC == 'v' ) {
 				try {
-					int nextVolume = Integer.parseInt( token.substring(1) );
+					int nextVolume = parseNumber();
 					if ( (nextVolume >= 0) && (nextVolume <= MMLNoteEvent.MAX_VOL) ) {
 						volume = nextVolume;
 					}
@@ -80,9 +90,9 @@ public final class MMLEventParser implements Iterator<MMLEvent> {
 					System.err.println(e.getMessage());
 				}
 			}
-			if ( (firstC == 't') || (firstC == 'T') ) {
+			if ( firstC == 't' ) {
 				try {
-					int tempo = Integer.parseInt( token.substring(1) );
+					int tempo = parseNumber();
 					nextItem = new MMLTempoEvent(tempo, totalTick, totalTick == startOffset);
 				} catch (IllegalArgumentException e) {
 					continue;
@@ -91,7 +101,7 @@ public final class MMLEventParser implements Iterator<MMLEvent> {
 				return nextItem;
 			}
 			try {
-				int tick = parser.noteGT(token);
+				int tick = parser.noteGT(tokenizer);
 				if (MMLTokenizer.isNote(firstC)) {
 					/* tie でかつ、同じノートであれば、前のNoteEventにTickを加算する */
 					if ( (hasTie) && (prevNoteEvent != null) && (prevNoteEvent.getNote() == parser.getNoteNumber())) {
@@ -106,7 +116,7 @@ public final class MMLEventParser implements Iterator<MMLEvent> {
 							}
 						}
 						prevNoteEvent.setTick(prevTick + tick);
-						prevNoteEvent.getIndexOfMMLString()[1] = tokenizer.getIndex()[1];
+						prevNoteEvent.getIndexOfMMLString()[1] = tokenizer.getEnd();
 					} else if (parser.getNoteNumber() >= -1) {
 						nextItem = prevNoteEvent;
 						prevNoteEvent = new MMLNoteEvent(parser.getNoteNumber(), tick, totalTick, volume);
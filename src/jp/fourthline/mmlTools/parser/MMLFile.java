@@ -96,7 +96,8 @@ public final class MMLFile extends AbstractMMLParser {
 			for (int i = 0; i < track.getTrackCount(); i++) {
 				text[i] = mmlParts.pop();
 			}
-			InstType instType = MabiDLS.getInstance().getInstByProgram(program).getType();
+			var inst = MabiDLS.getInstance().getInstByProgram(program);
+			InstType instType = (inst != null) ? inst.getType() : InstType.NONE;
 			MMLTrack mmlTrack;
 			if ( (instType == InstType.VOICE) || (instType == InstType.CHORUS) ) {
 				// 歌パート
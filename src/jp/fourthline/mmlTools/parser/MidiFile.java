@@ -4,13 +4,13 @@
 
 package jp.fourthline.mmlTools.parser;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -18,9 +18,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.PriorityQueue;
 import java.util.ResourceBundle;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
 
-import javax.sound.midi.*;
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.ShortMessage;
 
 import jp.fourthline.mabiicco.MabiIccoProperties;
 import jp.fourthline.mabiicco.midi.InstClass;
@@ -54,6 +58,12 @@ public final class MidiFile extends AbstractMMLParser {
 	private static final String PATCH_NAME = "mid_instPatch";
 	private static final int MIDI_CHANNEL = 16;
 
+	/** ドラムトラックをDLSのドラム音源へ割り当てるかどうかの判定を行うためのFunction */
+	private static BooleanSupplier useDLSDrumFunction = () -> MabiIccoProperties.getInstance().soundEnv.get().useDLS();
+	public static void setUseDLSDrumFunction(BooleanSupplier f) {
+		useDLSDrumFunction = f;
+	}
+
 	// Parse Option
 	public static final String PARSE_TRACK_NAME = "parse.midi.trackName";
 	public static final String PARSE_BEAT = "parse.midi.beat";
@@ -139,16 +149,15 @@ public final class MidiFile extends AbstractMMLParser {
 	 */
 	public MidiFile preparse(File file) {
 		try {
-			MidiFileFormat format = MidiSystem.getMidiFileFormat(file);
-			int formatType = format.getType();
+			SMFReader reader = new SMFReader(Files.readAllBytes(file.toPath()));
+			int formatType = reader.getFormat();
 			System.out.println("type: " + formatType);
-			var tracks = MidiSystem.getSequence(file).getTracks();
 			if (formatType == 0) {
-				trackSelectMap = preparseChannel(tracks[0]);
+				trackSelectMap = preparseChannel(reader);
 			} else if (formatType == 1) {
 				trackSelectMap = new LinkedHashMap<>();
-				for (int i = 0; i < tracks.length; i++) {
-					var trackSelect = preparseTrack(tracks[i], i);
+				for (int i = 0; i < reader.getTrackCount(); i++) {
+					var trackSelect = preparseTrack(reader, i);
 					if (trackSelect != null) {
 						trackSelectMap.put(i, trackSelect);
 					}
@@ -166,18 +175,18 @@ public final class MidiFile extends AbstractMMLParser {
 
 	/**
 	 * type0向け
-	 * @param track
+	 * @param reader
 	 * @return
+	 * @throws InvalidMidiDataException
 	 */
-	private Map<Integer, TrackSelect> preparseChannel(Track track) {
-		int size = track.size();
-		boolean[] channel = new boolean[16];
-		Arrays.fill(channel, false);
-		for (int i = 0; i < size; i++) {
-			var event = track.get(i).getMessage();
-			if ( (event instanceof ShortMessage sm) && (sm.getCommand() == ShortMessage.NOTE_ON) ) {
-				channel[sm.getChannel()] = true;
-			}
+	private Map<Integer, TrackSelect> preparseChannel(SMFReader reader) throws InvalidMidiDataException {
+		boolean[] channel = new boolean[MIDI_CHANNEL];
+		if (reader.getTrackCount() > 0) {
+			reader.readTrack(0, (tick, command, ch, data1, data2) -> {
+				if (command == ShortMessage.NOTE_ON) {
+					channel[ch] = true;
+				}
+			});
 		}
 
 		Map<Integer, TrackSelect> map = new LinkedHashMap<>();
@@ -191,34 +200,35 @@ public final class MidiFile extends AbstractMMLParser {
 
 	/**
 	 * type1向け
-	 * @param track
+	 * @param reader
+	 * @param index
 	 * @return
+	 * @throws InvalidMidiDataException
 	 */
-	private TrackSelect preparseTrack(Track track, int index) {
-		String name = new TrackInfo(index).name;    // format1 track[] のindexからトラック名をつくる. @link parseFormat1Track
-		int size = track.size();
-		boolean nameParsed = false;
-		boolean noteParsed = false;
-		for (int i = 0; i < size; i++) {
-			var event = track.get(i).getMessage();
-			if (event instanceof MetaMessage m) {
-				if (m.getType() == 3) {
-					if (m.getData().length > 0) {
-						name = new String(m.getData());
-						nameParsed = true;
-					}
-				}
-			} else if ( (event instanceof ShortMessage sm) && (sm.getCommand() == ShortMessage.NOTE_ON) ){
-				if (!noteParsed) {
+	private TrackSelect preparseTrack(SMFReader reader, int index) throws InvalidMidiDataException {
+		var preparser = new SMFReader.EventHandler() {
+			private String name = new TrackInfo(index).name;    // format1 track[] のindexからトラック名をつくる. @link parseFormat1Track
+			private boolean nameParsed = false;
+			private boolean noteParsed = false;
+
+			@Override
+			public void shortMessage(long tick, int command, int channel, int data1, int data2) {
+				if (command == ShortMessage.NOTE_ON) {
 					noteParsed = true;
 				}
 			}
-			if (nameParsed && noteParsed) {
-				break;
+
+			@Override
+			public void metaMessage(long tick, int type, byte[] data) {
+				if ( (type == 3) && (data.length > 0) && !(nameParsed && noteParsed) ) {
+					name = new String(data);
+					nameParsed = true;
+				}
 			}
-		}
+		};
+		reader.readTrack(index, preparser);
 
-		return noteParsed ? new TrackSelect(name) : null;
+		return preparser.noteParsed ? new TrackSelect(preparser.name) : null;
 	}
 
 	@Override
@@ -230,25 +240,19 @@ public final class MidiFile extends AbstractMMLParser {
 	public MMLScore parse(InputStream istream) throws MMLParseException {
 		updateOptions();
 		try {
-			BufferedInputStream bin = new BufferedInputStream(istream);
-			MidiFileFormat format = MidiSystem.getMidiFileFormat(bin);
-			int formatType = format.getType();
+			SMFReader reader = new SMFReader(istream.readAllBytes());
+			istream.close();
+			int formatType = reader.getFormat();
 			System.out.println("type: " + formatType);
 
-			bin.reset();
-			Sequence seq = MidiSystem.getSequence(bin);
-			resolution = seq.getResolution();
-			System.out.println(seq.getTracks().length);
+			resolution = reader.getResolution();
+			System.out.println(reader.getTrackCount());
 			System.out.println("resolution: "+resolution);
-			System.out.println(seq.getDivisionType());
-			System.out.println(seq.getMicrosecondLength());
-			System.out.println(seq.getTickLength());
-			bin.close();
 
 			if (formatType == 0) {
-				parseFormat0Track(seq.getTracks()[0]);
+				parseFormat0Track(reader);
 			} else if (formatType == 1) {
-				parseFormat1Track(seq.getTracks());
+				parseFormat1Track(reader);
 			} else {
 				throw new MMLParseException("not support format <" + formatType + ">");
 			}
@@ -264,8 +268,6 @@ public final class MidiFile extends AbstractMMLParser {
 		}
 	}
 
-	private final HashMap<Integer, MMLNoteEvent> activeNoteMap = new HashMap<>();
-	private final ArrayList<MMLNoteEvent> curNoteList = new ArrayList<>();
 	private final ArrayList<MMLTempoEvent> tempoList = new ArrayList<>();
 
 	private static final class TrackInfo {
@@ -280,7 +282,7 @@ public final class MidiFile extends AbstractMMLParser {
 			track.setTrackName(name);
 			track.setPanpot(panpot);
 			var trackProgram = program;
-			if ((program == InstClass.DRUM) && (MabiIccoProperties.getInstance().soundEnv.get().useDLS())) {
+			if ((program == InstClass.DRUM) && (useDLSDrumFunction.getAsBoolean())) {
 				InstClass[] insts = MabiDLS.getInstance().getAvailableInstByInstType(List.of(InstType.DRUMS));
 				if (insts.length > 0) {
 					trackProgram = insts[0].getProgram();
@@ -299,175 +301,323 @@ public final class MidiFile extends AbstractMMLParser {
 		}
 	}
 
-	private List<MidiEvent> convMidiEventList(Track track) {
-		ArrayList<MidiEvent> midiEventList = new ArrayList<>(track.size());
-		for (int i = 0; i < track.size(); i++) {
-			midiEventList.add(track.get(i));
-		}
-		return midiEventList;
-	}
+	/**
+	 * メタイベント. スコアへの反映はトラック順に逐次行うため, 読み込み時は記録だけしておく.
+	 */
+	private record MetaEvent(long tick, int type, byte[] data) {}
 
 	/**
-	 * format0 のトラックを読み取る
-	 * @param track
-	 * @throws MMLParseException
+	 * 1トラック (format0では1チャンネル) 分のイベントを読み取り, MMLへ変換する.
+	 *   ノートの読み取りからMMLの最適化までは, スコアに触れないので他のトラックと並列に行える.
 	 */
-	private void parseFormat0Track(Track track) throws MMLParseException {
-		var midiEventList = convMidiEventList(track);
-		List<List<MidiEvent>> chList = new ArrayList<>();
-		for (int i = 0; i < MIDI_CHANNEL; i++) {
-			chList.add(new ArrayList<>());
+	private final class TrackConverter implements SMFReader.EventHandler {
+		private final TrackInfo trackInfo;
+		private final HashMap<Integer, MMLNoteEvent> activeNoteMap = new HashMap<>();
+		private final ArrayList<MMLNoteEvent> curNoteList = new ArrayList<>();
+		private final List<MetaEvent> metaList = new ArrayList<>();
+
+		/** 変換結果: トラックごとの3パートのMMLと, その元になったMMLEventList */
+		private final List<String[]> mmlList = new ArrayList<>();
+		private final List<List<MMLEventList>> partList = new ArrayList<>();
+		private InvalidMidiDataException exception = null;
+		private MMLExceptionList mmlException = null;
+
+		private TrackConverter(TrackInfo trackInfo) {
+			this.trackInfo = trackInfo;
 		}
 
-		TrackInfo trackInfo = new TrackInfo(0);
-		for (MidiEvent event : midiEventList) {
-			MidiMessage msg = event.getMessage();
-			long tick = convTick( event.getTick() );
-			if (tick >= MMLEvent.MAX_TICK) continue;
-			if (msg instanceof MetaMessage) {
-				parseMetaMessage((MetaMessage)msg, tick, trackInfo);
-			} else if (msg instanceof ShortMessage shortmsg) {
-				int channel = shortmsg.getChannel();
-				chList.get(channel).add(event);
-			} else if (msg instanceof SysexMessage) {
-				System.out.println("Sysex");
-			} else {
-				throw new MMLParseException("Unknown MIDI message.");
+		@Override
+		public void shortMessage(long tick, int command, int channel, int data1, int data2) {
+			tick = convTick(tick);
+			if (tick >= MMLEvent.MAX_TICK) return;
+			parseShortMessage(tick, command, channel, data1, data2);
+		}
+
+		@Override
+		public void metaMessage(long tick, int type, byte[] data) {
+			tick = convTick(tick);
+			if (tick >= MMLEvent.MAX_TICK) return;
+			metaList.add(new MetaEvent(tick, type, data));
+		}
+
+		@Override
+		public void sysexMessage(long tick) {
+			if (convTick(tick) >= MMLEvent.MAX_TICK) return;
+			System.out.println("Sysex");
+		}
+
+		/**
+		 * トラックチャンクを読み取って変換する. 例外は記録しておき, 逐次処理側で送出する.
+		 */
+		private void readAndConvert(SMFReader reader, int index) {
+			try {
+				reader.readTrack(index, this);
+				convert();
+			} catch (InvalidMidiDataException e) {
+				exception = e;
 			}
 		}
 
-		// チャンネルごとの情報を読み取る
-		for (int i = 0; i < MIDI_CHANNEL; i++) {
-			// 読み込む対象のトラックかどうかを判定する.
-			if (trackSelectMap != null) {
-				var select = trackSelectMap.get(i);
-				if ( (select != null) && (!select.isEnabled()) ) {
-					continue;
+		/**
+		 * 取り込んだノートイベントをMMLEventListに振り分けて, MMLを生成する.
+		 *   MMLを生成できなかった場合は, そこまでに生成したトラックのみとする.
+		 */
+		private void convert() {
+			ArrayList<MMLEventList> eventList = createMMLEventList(curNoteList);
+			System.out.printf(" ###### track tick: %d %d => %d\n",
+					activeNoteMap.size(),
+					curNoteList.size(),
+					eventList.size());
+			try {
+				for (int index = 0; index < eventList.size(); ) {
+					String[] mml = new String[3];
+					List<MMLEventList> list = new ArrayList<>();
+					for (int i = 0; i < mml.length; i++) {
+						if (index < eventList.size()) {
+							var currentList = eventList.get(index++);
+							list.add(currentList);
+							mml[i] = new MMLStringOptimizer(currentList.getInternalMMLString()).toString();
+						} else {
+							mml[i] = "";
+						}
+					}
+					mmlList.add(mml);
+					partList.add(list);
+					if (!parseMultiTrack) {
+						break;
+					}
 				}
+			} catch (MMLExceptionList e) {
+				mmlException = e;
 			}
+		}
 
-			activeNoteMap.clear();
-			curNoteList.clear();
-			trackInfo = new TrackInfo(i);
-			for (MidiEvent event : chList.get(i)) {
-				MidiMessage msg = event.getMessage();
-				long tick = convTick( event.getTick() );
-				if (tick >= MMLEvent.MAX_TICK) continue;
-				if (msg instanceof ShortMessage shortmsg) {
-					parseShortMessage(shortmsg, tick, trackInfo);
+		/**
+		 * 変換済みのMMLからMMLTrackをつくり, スコアへ追加する.
+		 * @throws MMLParseException
+		 * @throws InvalidMidiDataException
+		 */
+		private void addToScore() throws MMLParseException, InvalidMidiDataException {
+			if (exception != null) {
+				throw exception;
+			}
+			try {
+				for (int i = 0; i < mmlList.size(); i++) {
+					String[] mml = mmlList.get(i);
+					MMLTrack track = trackInfo.createMMLTrack();
+					track.setMML(mml[0], mml[1], mml[2], "");
+					if (trackInfo.program == InstClass.DRUM) {
+						// ドラム変換用に基準データをセットしておく.
+						track.setImportedData(MMLScoreSerializer.toStringImportedData(partList.get(i)));
+					}
+					if (score.addTrack(track) < 0) {
+						throw new MMLParseException("track over: " + track.getTrackName());
+					}
 				}
+				if (mmlException != null) {
+					throw mmlException;
+				}
+			} catch (MMLExceptionList e) {
+				e.printStackTrace();
+			}
+		}
+
+		private int convertMidiNote(int data) {
+			if (trackInfo.program != InstClass.DRUM) {
+				data -= (parseConvertOctave ? 12 : 0);
 			}
+			return data;
+		}
 
-			// MMLEventListのリストを使ってトラックを生成.
-			createMMLTrack(createMMLEventList(), trackInfo);
+		/**
+		 * ショートメッセージ
+		 * @param tick
+		 * @param command
+		 * @param channel
+		 * @param data1
+		 * @param data2
+		 */
+		private void parseShortMessage(long tick, int command, int channel, int data1, int data2) {
+			switch (command) {
+			case ShortMessage.CONTROL_CHANGE:
+				if (data1 == 10) { // panpot
+					trackInfo.panpot = data2;
+				}
+				break;
+			case ShortMessage.NOTE_ON:
+				if (data2 > 0) {
+					int note = convertMidiNote(data1);
+					int velocity = data2 / 8;
+					if (!activeNoteMap.containsKey(note)) {
+						MMLNoteEvent noteEvent = new MMLNoteEvent(note, 0, (int)tick, velocity);
+						try {
+							noteEvent.toMMLString();
+						} catch (MMLException e) {
+							// ノートが範囲外すぎるなどして, MML変換できない場合は無視.
+							break;
+						}
+						activeNoteMap.put(note, noteEvent);
+						curNoteList.add(noteEvent);
+					}
+					break;
+				}
+				// data2 == 0 は Note Off.
+			case ShortMessage.NOTE_OFF:
+				int note = convertMidiNote(data1);
+				MMLNoteEvent noteEvent = activeNoteMap.get(note);
+				if (noteEvent != null) {
+					tick -= noteEvent.getTickOffset();
+					if (tick < MMLTicks.minimumTick()) {
+						tick = MMLTicks.minimumTick();
+					}
+					noteEvent.setTick( (int)tick );
+					activeNoteMap.remove(note);
+				}
+				break;
+			case ShortMessage.PROGRAM_CHANGE:
+				System.out.printf("program change: [%d] [%d] (%d)\n", data1, data2, channel);
+				if (channel == 9) {
+					trackInfo.setProgram(InstClass.DRUM);
+				} else {
+					if (!canConvertInst) {
+						trackInfo.setProgram(data1);
+					} else if (parseConvertInst && midInstTable.containsKey(data1)) {
+						data1 = midInstTable.get(data1);
+						trackInfo.setProgram(data1);
+						System.out.println("   -> " + data1);
+					}
+				}
+				break;
+			default:
+				// ピッチベンドなどは大量にあるので, 出力しない.
+				break;
+			}
 		}
 	}
 
 	/**
-	 * format1 のトラックを読み取る
-	 * @param track
-	 * @param count
+	 * 読み込む対象のトラックかどうかを判定する.
+	 * @param index  format0はチャンネル, format1はトラックのindex
+	 * @return
+	 */
+	private boolean isSelectedTrack(int index) {
+		if (trackSelectMap != null) {
+			var select = trackSelectMap.get(index);
+			if ( (select != null) && (!select.isEnabled()) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * format0 のトラックを読み取る
+	 * @param reader
 	 * @throws MMLParseException
+	 * @throws InvalidMidiDataException
 	 */
-	private void parseFormat1Track(Track track[]) throws MMLParseException {
-		for (int i = 0; i < track.length; i++) {
-			System.out.println(" - track -");
-			System.out.println(track[i].size());
-
-			// 読み込む対象のトラックかどうかを判定する.
-			if (trackSelectMap != null) {
-				var select = trackSelectMap.get(i);
-				if ( (select != null) && (!select.isEnabled()) ) {
-					continue;
+	private void parseFormat0Track(SMFReader reader) throws MMLParseException, InvalidMidiDataException {
+		// チャンネルごとに振り分けながら読み取る
+		TrackConverter[] channelList = new TrackConverter[MIDI_CHANNEL];
+		for (int i = 0; i < MIDI_CHANNEL; i++) {
+			if (isSelectedTrack(i)) {
+				channelList[i] = new TrackConverter(new TrackInfo(i));
+			}
+		}
+		TrackConverter metaConverter = new TrackConverter(new TrackInfo(0));
+		reader.readTrack(0, new SMFReader.EventHandler() {
+			@Override
+			public void shortMessage(long tick, int command, int channel, int data1, int data2) {
+				if (channelList[channel] != null) {
+					channelList[channel].shortMessage(tick, command, channel, data1, data2);
 				}
 			}
 
-			TrackInfo trackInfo = new TrackInfo(i);
-			activeNoteMap.clear();
-			curNoteList.clear();
-
-			for (MidiEvent event : convMidiEventList(track[i])) {
-				MidiMessage msg = event.getMessage();
-				long tick = convTick( event.getTick() );
-				if (tick >= MMLEvent.MAX_TICK) continue;
-				if (msg instanceof MetaMessage) {
-					parseMetaMessage((MetaMessage)msg, tick, trackInfo);
-				} else if (msg instanceof ShortMessage) {
-					parseShortMessage((ShortMessage)msg, tick, trackInfo);
-				} else if (msg instanceof SysexMessage) {
-					System.out.println("Sysex");
-				} else {
-					throw new MMLParseException("Unknown MIDI message.");
-				}
+			@Override
+			public void metaMessage(long tick, int type, byte[] data) {
+				metaConverter.metaMessage(tick, type, data);
 			}
 
-			// MMLEventListのリストを使ってトラックを生成.
-			createMMLTrack(createMMLEventList(), trackInfo);
+			@Override
+			public void sysexMessage(long tick) {
+				metaConverter.sysexMessage(tick);
+			}
+		});
+
+		for (MetaEvent meta : metaConverter.metaList) {
+			parseMetaMessage(meta, metaConverter.trackInfo);
+		}
+
+		// チャンネルごとに並列にMMLへ変換し, チャンネル順にトラックを生成.
+		var converterList = Arrays.stream(channelList).filter(t -> t != null).toList();
+		converterList.parallelStream().forEach(t -> t.convert());
+		for (TrackConverter converter : converterList) {
+			converter.addToScore();
 		}
 	}
 
 	/**
-	 * 整列済みノートイベントからMMLTrackをつくる
-	 * @param eventList
-	 * @param trackInfo
-	 * @throws MMLParseException 
+	 * format1 のトラックを読み取る
+	 * @param reader
+	 * @throws MMLParseException
+	 * @throws InvalidMidiDataException
 	 */
-	private void createMMLTrack(ArrayList<MMLEventList> eventList, TrackInfo trackInfo) throws MMLParseException {
-		System.out.printf(" ###### track tick: %d %d => %d\n",
-				activeNoteMap.size(),
-				curNoteList.size(),
-				eventList.size());
-		try {
-			while (eventList.size() > 0) {
-				String[] mml = new String[3];
-				List<MMLEventList> list = new ArrayList<>();
-				for (int i = 0; i < mml.length; i++) {
-					if (!eventList.isEmpty()) {
-						var currentList = eventList.get(0);
-						list.add(currentList);
-						mml[i] = new MMLStringOptimizer(currentList.getInternalMMLString()).toString();
-						eventList.remove(0);
-					} else {
-						mml[i] = "";
-					}
-				}
-				MMLTrack track = trackInfo.createMMLTrack();
-				track.setMML(mml[0], mml[1], mml[2], "");
-				if (trackInfo.program == InstClass.DRUM) {
-					// ドラム変換用に基準データをセットしておく.
-					track.setImportedData(MMLScoreSerializer.toStringImportedData(list));
-				}
-				if (score.addTrack(track) < 0) {
-					throw new MMLParseException("track over: " + track.getTrackName());
-				}
-				if (!parseMultiTrack) {
-					break;
+	private void parseFormat1Track(SMFReader reader) throws MMLParseException, InvalidMidiDataException {
+		TrackConverter[] trackList = new TrackConverter[reader.getTrackCount()];
+		for (int i = 0; i < trackList.length; i++) {
+			if (isSelectedTrack(i)) {
+				trackList[i] = new TrackConverter(new TrackInfo(i));
+			}
+		}
+
+		// トラックごとに並列に読み取ってMMLへ変換する.
+		IntStream.range(0, trackList.length).parallel()
+				.filter(i -> trackList[i] != null)
+				.forEach(i -> trackList[i].readAndConvert(reader, i));
+
+		// スコアへの反映はトラック順に行う.
+		for (TrackConverter converter : trackList) {
+			if (converter != null) {
+				for (MetaEvent meta : converter.metaList) {
+					parseMetaMessage(meta, converter.trackInfo);
 				}
+				converter.addToScore();
 			}
-		} catch (MMLExceptionList e) {
-			e.printStackTrace();
 		}
 	}
 
 	/**
 	 * 取り込んだノートイベントから重複しないMMLEventListを生成する.
+	 *   ノートを開始順に走査し, 空いているリストのうちindexが最小のものへ割り当てる.
+	 *   使用中のリストは終了tickの優先度付きキューで管理する.
+	 * @param noteList 開始tick順のノートイベント
 	 * @return
 	 */
-	private ArrayList<MMLEventList> createMMLEventList() {
+	private static ArrayList<MMLEventList> createMMLEventList(List<MMLNoteEvent> noteList) {
 		ArrayList<MMLEventList> eventList = new ArrayList<>();
+		PriorityQueue<int[]> busyList = new PriorityQueue<>((a, b) -> (a[0] != b[0]) ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+		PriorityQueue<Integer> freeList = new PriorityQueue<>();
 
-		for (MMLNoteEvent noteEvent : curNoteList) {
-			for (MMLEventList e : eventList) {
-				if (!e.isOverlapNote(noteEvent)) {
-					e.addMMLNoteEvent(noteEvent);
-					noteEvent = null;
-					break;
-				}
+		for (MMLNoteEvent noteEvent : noteList) {
+			int tickOffset = noteEvent.getTickOffset();
+			while (!busyList.isEmpty() && (busyList.peek()[0] <= tickOffset)) {
+				freeList.add(busyList.poll()[1]);
 			}
-			if (noteEvent != null) {
-				MMLEventList e = new MMLEventList("");
-				e.addMMLNoteEvent(noteEvent);
-				eventList.add(e);
+
+			int index;
+			if (!freeList.isEmpty()) {
+				index = freeList.poll();
+			} else {
+				index = eventList.size();
+				eventList.add(new MMLEventList(""));
+			}
+
+			// 長さのないノートなど, 追加されないノートはリストを使用しない.
+			if ( (noteEvent.getNote() >= -1) && (noteEvent.getTick() > 0) ) {
+				eventList.get(index).addMMLNoteEvent(noteEvent);
+				busyList.add(new int[] { noteEvent.getEndTick(), index });
+			} else {
+				freeList.add(index);
 			}
 		}
 
@@ -478,13 +628,13 @@ public final class MidiFile extends AbstractMMLParser {
 
 	/**
 	 * メタメッセージ
-	 * @param msg
-	 * @param tick
+	 * @param meta
 	 * @param trackInfo
 	 */
-	private void parseMetaMessage(MetaMessage msg, long tick, TrackInfo trackInfo) {
-		int type = msg.getType();
-		byte[] data = msg.getData();
+	private void parseMetaMessage(MetaEvent meta, TrackInfo trackInfo) {
+		int type = meta.type();
+		byte[] data = meta.data();
+		long tick = meta.tick();
 		switch (type) {
 		case MMLTempoEvent.META: // テンポ
 			ByteBuffer buf = ByteBuffer.allocate(4);
@@ -548,80 +698,6 @@ public final class MidiFile extends AbstractMMLParser {
 		}
 	}
 
-	private int convertMidiNote(TrackInfo trackInfo, int data) {
-		if (trackInfo.program != InstClass.DRUM) {
-			data -= (parseConvertOctave ? 12 : 0);
-		}
-		return data;
-	}
-
-	/**
-	 * ショートメッセージ
-	 * @param msg
-	 * @param tick
-	 * @param trackInfo
-	 * @throws MMLParseException
-	 */
-	private void parseShortMessage(ShortMessage msg, long tick, TrackInfo trackInfo) throws MMLParseException {
-		int command = msg.getCommand();
-		int channel = msg.getChannel();
-		int data1 = msg.getData1();
-		int data2 = msg.getData2();
-		switch (command) {
-		case ShortMessage.CONTROL_CHANGE:
-			if (data1 == 10) { // panpot
-				trackInfo.panpot = data2;
-			}
-			break;
-		case ShortMessage.NOTE_ON:
-			if (data2 > 0) {
-				int note = convertMidiNote(trackInfo, data1);
-				int velocity = data2 / 8;
-				if (!activeNoteMap.containsKey(note)) {
-					MMLNoteEvent noteEvent = new MMLNoteEvent(note, 0, (int)tick, velocity);
-					try {
-						noteEvent.toMMLString();
-					} catch (MMLException e) {
-						// ノートが範囲外すぎるなどして, MML変換できない場合は無視.
-						break;
-					}
-					activeNoteMap.put(note, noteEvent);
-					curNoteList.add(noteEvent);
-				}
-				break;
-			}
-			// data2 == 0 は Note Off.
-		case ShortMessage.NOTE_OFF:
-			int note = convertMidiNote(trackInfo, data1);
-			MMLNoteEvent noteEvent = activeNoteMap.get(note);
-			if (noteEvent != null) {
-				tick -= noteEvent.getTickOffset();
-				if (tick < MMLTicks.minimumTick()) {
-					tick = MMLTicks.minimumTick();
-				}
-				noteEvent.setTick( (int)tick );
-				activeNoteMap.remove(note);
-			}
-			break;
-		case ShortMessage.PROGRAM_CHANGE:
-			System.out.printf("program change: [%d] [%d] (%d)\n", data1, data2, channel);
-			if (channel == 9) {
-				trackInfo.setProgram(InstClass.DRUM);
-			} else {
-				if (!canConvertInst) {
-					trackInfo.setProgram(data1);
-				} else if (parseConvertInst && midInstTable.containsKey(data1)) {
-					data1 = midInstTable.get(data1);
-					trackInfo.setProgram(data1);
-					System.out.println("   -> " + data1);
-				}
-			}
-			break;
-		default:
-			System.out.printf("short: [%x] [%d] [%d] [%d]\n", command, channel, data1, data2);
-		}
-	}
-
 	/**
 	 * Tick変換
 	 * @param tick
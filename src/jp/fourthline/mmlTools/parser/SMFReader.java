@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools.parser;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.midi.InvalidMidiDataException;
+
+/**
+ * SMF (Standard MIDI File) の逐次読み込み.
+ *   Sequence/MidiEventを生成せずに, トラックチャンクを先頭から順にデコードしてハンドラへ渡す.
+ *   各トラックチャンクは独立に読めるので, 別スレッドから同時に readTrack を呼び出してもよい.
+ */
+final class SMFReader {
+	private static final int MThd = 0x4d546864;
+	private static final int MTrk = 0x4d54726b;
+
+	/**
+	 * デコードしたイベントの受け取り先.
+	 */
+	interface EventHandler {
+		/**
+		 * チャンネルメッセージ
+		 * @param tick     SMF上のtick
+		 * @param command  上位4bit (0x80-0xE0)
+		 * @param channel
+		 * @param data1
+		 * @param data2    1バイトのメッセージでは 0
+		 */
+		void shortMessage(long tick, int command, int channel, int data1, int data2);
+
+		/**
+		 * メタイベント
+		 */
+		default void metaMessage(long tick, int type, byte[] data) {}
+
+		/**
+		 * システムエクスクルーシブ (内容は読み飛ばす)
+		 */
+		default void sysexMessage(long tick) {}
+	}
+
+	private final int format;
+	private final int resolution;
+	private final List<ByteBuffer> trackList = new ArrayList<>();
+
+	SMFReader(byte[] fileData) throws InvalidMidiDataException {
+		ByteBuffer data = ByteBuffer.wrap(fileData);
+		try {
+			if (data.getInt() != MThd) {
+				throw new InvalidMidiDataException("invalid MIDI file header");
+			}
+			int headerLength = data.getInt();
+			if (headerLength < 6) {
+				throw new InvalidMidiDataException("invalid MIDI file header length: " + headerLength);
+			}
+			int headerEnd = data.position() + headerLength;
+			format = data.getShort() & 0xffff;
+			int trackCount = data.getShort() & 0xffff;
+			int division = data.getShort();
+			// SMPTE形式のときは Sequence と同じく, フレームあたりのtickを分解能とする.
+			resolution = (division < 0) ? (division & 0xff) : division;
+			data.position(headerEnd);
+
+			while ( (trackList.size() < trackCount) && (data.remaining() >= 8) ) {
+				int type = data.getInt();
+				int length = data.getInt();
+				if ( (length < 0) || (length > data.remaining()) ) {
+					throw new InvalidMidiDataException("invalid chunk length: " + length);
+				}
+				if (type == MTrk) {
+					trackList.add(data.slice(data.position(), length));
+				}
+				data.position(data.position() + length);
+			}
+		} catch (RuntimeException e) {
+			throw new InvalidMidiDataException(e.toString());
+		}
+	}
+
+	int getFormat() {
+		return format;
+	}
+
+	int getResolution() {
+		return resolution;
+	}
+
+	int getTrackCount() {
+		return trackList.size();
+	}
+
+	/**
+	 * 指定したトラックチャンクをデコードする.
+	 * @param index
+	 * @param handler
+	 * @throws InvalidMidiDataException
+	 */
+	void readTrack(int index, EventHandler handler) throws InvalidMidiDataException {
+		ByteBuffer buf = trackList.get(index).duplicate();
+		long tick = 0;
+		int runningStatus = -1;
+		try {
+			while (buf.hasRemaining()) {
+				tick += readVariableLength(buf);
+				int status = buf.get() & 0xff;
+				if (status < 0x80) {
+					// ランニングステータス
+					if (runningStatus < 0) {
+						throw new InvalidMidiDataException("missing status byte");
+					}
+					buf.position(buf.position() - 1);
+					status = runningStatus;
+				}
+
+				if (status < 0xf0) {
+					runningStatus = status;
+					int command = status & 0xf0;
+					int data1 = buf.get() & 0x7f;
+					int data2 = ((command == 0xc0) || (command == 0xd0)) ? 0 : (buf.get() & 0x7f);
+					handler.shortMessage(tick, command, status & 0x0f, data1, data2);
+				} else if (status == 0xff) {
+					int type = buf.get() & 0xff;
+					byte[] metaData = new byte[(int) readVariableLength(buf)];
+					buf.get(metaData);
+					handler.metaMessage(tick, type, metaData);
+					if (type == 0x2f) {
+						break;
+					}
+				} else if ( (status == 0xf0) || (status == 0xf7) ) {
+					int length = (int) readVariableLength(buf);
+					buf.position(buf.position() + length);
+					handler.sysexMessage(tick);
+				} else {
+					throw new InvalidMidiDataException("invalid status byte: " + status);
+				}
+			}
+		} catch (RuntimeException e) {
+			throw new InvalidMidiDataException(e.toString());
+		}
+	}
+
+	private static long readVariableLength(ByteBuffer buf) throws InvalidMidiDataException {
+		long value = 0;
+		for (int i = 0; i < 4; i++) {
+			int b = buf.get() & 0xff;
+			value = (value << 7) | (b & 0x7f);
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new InvalidMidiDataException("invalid variable length quantity");
+	}
+}
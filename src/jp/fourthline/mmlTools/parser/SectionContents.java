@@ -1,14 +1,14 @@
 /*
- * Copyright (C) 2014 たんらる
+ * Copyright (C) 2014-2024 たんらる
  */
 
 package jp.fourthline.mmlTools.parser;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -56,18 +56,22 @@ public final class SectionContents {
 	 * @return
 	 */
 	public static List<SectionContents> makeSectionContentsByInputStream(InputStream istream, String charsetName) {
-		LinkedList<SectionContents> contentsList = new LinkedList<>();
+		ArrayList<SectionContents> contentsList = new ArrayList<>();
 		try {
-			InputStreamReader reader = new InputStreamReader(istream, charsetName);
-			new BufferedReader(reader).lines().forEach(s -> {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(istream, charsetName));
+			SectionContents section = null;
+			String s;
+			while ((s = reader.readLine()) != null) {
 				if (s.startsWith("[")) {
-					contentsList.add( new SectionContents(s) );
-				} else if (contentsList.size() > 0) {
-					SectionContents section = contentsList.getLast();
+					section = new SectionContents(s);
+					contentsList.add(section);
+				} else if (section != null) {
 					section.buffer.append(s).append('\n');
 				}
-			});
-		} catch (UnsupportedEncodingException e) {}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 
 		return contentsList;
 	}
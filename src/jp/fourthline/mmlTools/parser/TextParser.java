@@ -1,31 +1,70 @@
 /*
- * Copyright (C) 2014-2015 たんらる
+ * Copyright (C) 2014-2024 たんらる
  */
 
 package jp.fourthline.mmlTools.parser;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.function.Consumer;
-import java.util.regex.Pattern;
 
+/**
+ * "key=value" 形式の行を, キーごとの処理へ振り分けます.
+ *   '=' で終わるキーは, 行頭から最初の '=' までで1回だけ検索します.
+ *   '=' で終わらないキーは, 前方一致で検索します.
+ */
 public final class TextParser {
-	private final Pattern lineSplit = Pattern.compile("\n");
 	private final HashMap<String, Consumer<String>> map = new HashMap<>();
+	private final List<String> prefixKeys = new ArrayList<>();
+	private final List<Consumer<String>> prefixFuncs = new ArrayList<>();
 
 	public TextParser() {}
 	public TextParser pattern(String s, Consumer<String> func) {
-		map.put(s, func);
+		if (s.indexOf('=') == s.length() - 1) {
+			map.put(s, func);
+		} else {
+			prefixKeys.add(s);
+			prefixFuncs.add(func);
+		}
 		return this;
 	}
 
 	public void parse(String text) {
-		lineSplit.splitAsStream(text).forEachOrdered((lineText) -> {
-			map.keySet().forEach(key -> {
-				if (lineText.startsWith(key)) {
-					map.get(key).accept( lineText.substring(key.length()) );
-					return;
-				}
-			});
-		});
+		int index = 0;
+		int length = text.length();
+		while (index < length) {
+			int end = text.indexOf('\n', index);
+			if (end < 0) {
+				end = length;
+			}
+			parseLine(text.substring(index, end));
+			index = end + 1;
+		}
+	}
+
+	/**
+	 * 1行を解析します.
+	 * @param lineText 改行を含まない行
+	 * @return 一致するキーがあった場合は true
+	 */
+	public boolean parseLine(String lineText) {
+		int index = lineText.indexOf('=');
+		if (index >= 0) {
+			String key = lineText.substring(0, index + 1);
+			Consumer<String> func = map.get(key);
+			if (func != null) {
+				func.accept( lineText.substring(key.length()) );
+				return true;
+			}
+		}
+		for (int i = 0; i < prefixKeys.size(); i++) {
+			String key = prefixKeys.get(i);
+			if (lineText.startsWith(key)) {
+				prefixFuncs.get(i).accept( lineText.substring(key.length()) );
+				return true;
+			}
+		}
+		return false;
 	}
 }
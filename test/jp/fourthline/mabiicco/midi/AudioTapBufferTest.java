@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.midi;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public final class AudioTapBufferTest {
+
+	private static byte[] data(int start, int len) {
+		byte[] b = new byte[len];
+		for (int i = 0; i < len; i++) {
+			b[i] = (byte) (start + i);
+		}
+		return b;
+	}
+
+	@Test
+	public void test_read() {
+		var tap = new AudioTapBuffer(16);
+		tap.write(data(0, 4), 0, 4);
+		var reader1 = tap.newReader();
+		var reader2 = tap.newReader();
+		byte[] dst = new byte[16];
+
+		// 作成後に書き込んだデータのみ, 読み出し側ごとに読み出す.
+		tap.write(data(10, 8), 2, 6);
+		assertEquals(6, reader1.available());
+		assertEquals(4, reader1.read(dst, 0, 4));
+		assertArrayEquals(data(12, 4), Arrays.copyOf(dst, 4));
+		assertEquals(2, reader1.read(dst, 0, 16));
+		assertArrayEquals(data(16, 2), Arrays.copyOf(dst, 2));
+		assertEquals(0, reader1.read(dst, 0, 16));
+
+		// 折り返し.
+		tap.write(data(20, 10), 0, 10);
+		assertEquals(10, reader1.read(dst, 0, 16));
+		assertArrayEquals(data(20, 10), Arrays.copyOf(dst, 10));
+
+		// 追いつけなかった分は読み飛ばす.
+		assertEquals(16, reader2.available());
+		assertEquals(16, reader2.read(dst, 0, 16));
+		assertArrayEquals(new byte[] { 14, 15, 16, 17, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29 }, Arrays.copyOfRange(dst, 2, 16));
+	}
+
+	@Test
+	public void test_largeWrite() {
+		var tap = new AudioTapBuffer(8);
+		var reader = tap.newReader();
+		tap.write(data(0, 20), 0, 20);
+		byte[] dst = new byte[20];
+		assertEquals(8, reader.read(dst, 0, 20));
+		assertArrayEquals(data(12, 8), Arrays.copyOf(dst, 8));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_capacity() {
+		new AudioTapBuffer(12);
+	}
+
+	/**
+	 * 書き込み中に読み出しても, 読み出したデータは書き込んだ順に連続している.
+	 */
+	@Test
+	public void test_concurrent() throws InterruptedException {
+		var tap = new AudioTapBuffer(256);
+		var reader = tap.newReader();
+		Thread writer = new Thread(() -> {
+			byte[] b = new byte[100];
+			for (int i = 0; i < 20000; i++) {
+				for (int j = 0; j < b.length; j++) {
+					b[j] = (byte) (i * b.length + j);
+				}
+				tap.write(b, 0, b.length);
+			}
+		});
+		writer.start();
+
+		byte[] dst = new byte[256];
+		while (writer.isAlive()) {
+			int len = reader.read(dst, 0, dst.length);
+			for (int i = 1; i < len; i++) {
+				assertEquals((byte) (dst[i-1] + 1), dst[i]);
+			}
+		}
+		writer.join();
+	}
+}
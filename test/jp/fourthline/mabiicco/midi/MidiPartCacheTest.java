@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.midi;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Track;
+
+import org.junit.Test;
+
+import jp.fourthline.mabiicco.midi.MMLMidiTrack.OverlapMode;
+import jp.fourthline.mmlTools.MMLNoteEvent;
+import jp.fourthline.mmlTools.MMLTrack;
+
+public final class MidiPartCacheTest {
+
+	@Test
+	public void test_get() {
+		var cache = new MidiPartCache();
+		var inst = new InstClass("test,N", 0, 0, null);
+		var noteList = new MMLTrack().setMML("MML@cde;").getMMLEventAtIndex(0).getMMLNoteEventList();
+		List<MidiEvent> events = List.of(new MidiEvent(null, 0));
+
+		assertNull(cache.get(0, noteList, inst, 0, OverlapMode.ALL));
+		cache.put(0, noteList, inst, 0, OverlapMode.ALL, events);
+		assertEquals(events, cache.get(0, noteList, inst, 0, OverlapMode.ALL));
+
+		// 変換条件が異なる場合は使用しない.
+		assertNull(cache.get(1, noteList, inst, 0, OverlapMode.ALL));
+		assertNull(cache.get(0, noteList, new InstClass("test,N", 0, 0, null), 0, OverlapMode.ALL));
+		assertNull(cache.get(0, noteList, inst, 10, OverlapMode.ALL));
+		assertNull(cache.get(0, noteList, inst, 0, OverlapMode.NONE));
+
+		// ノートを変更した場合は使用しない.
+		noteList.get(1).setMute(true);
+		assertNull(cache.get(0, noteList, inst, 0, OverlapMode.ALL));
+		noteList.get(1).setMute(false);
+		assertEquals(events, cache.get(0, noteList, inst, 0, OverlapMode.ALL));
+		noteList.get(2).setTick(noteList.get(2).getTick() / 2);
+		assertNull(cache.get(0, noteList, inst, 0, OverlapMode.ALL));
+	}
+
+	@Test
+	public void test_retainAll() {
+		var cache = new MidiPartCache();
+		var inst = new InstClass("test,N", 0, 0, null);
+		var noteList = new MMLTrack().setMML("MML@c;").getMMLEventAtIndex(0).getMMLNoteEventList();
+		List<MidiEvent> events = List.of(new MidiEvent(null, 0));
+		cache.put(0, noteList, inst, 0, OverlapMode.ALL, events);
+		cache.put(4, noteList, inst, 0, OverlapMode.ALL, events);
+
+		cache.retainAll(List.of(4));
+		assertNull(cache.get(0, noteList, inst, 0, OverlapMode.ALL));
+		assertEquals(events, cache.get(4, noteList, inst, 0, OverlapMode.ALL));
+	}
+
+	/**
+	 * キャッシュするMIDIイベント列 (MMLMidiTrack.add のマージと, convertMidiPart の同時刻の NoteOn/NoteOff の順) が,
+	 * 1ノートずつ挿入していたときの変換と同じになること.
+	 */
+	@Test
+	public void test_convertOrder() throws InvalidMidiDataException {
+		var dls = MabiDLS.getInstance();
+		var inst = new InstClass("test,N", 0, 0, null);
+		var random = new Random(1);
+		for (var overlapMode : OverlapMode.values()) {
+			for (int i = 0; i < 1000; i++) {
+				var midiTrack = new MMLMidiTrack(inst, overlapMode);
+				var expectList = new ArrayList<MMLNoteEvent>();
+				int partCount = 1 + random.nextInt(4);
+				for (int part = 0; part < partCount; part++) {
+					var noteList = randomNoteList(random);
+					// 負の補正では, 0より前になるノートの切り詰めと削除が起こる.
+					int attackDelayCorrect = switch (random.nextInt(4)) {
+					case 0 -> -random.nextInt(50);
+					case 1 -> random.nextInt(20);
+					default -> 0;
+					};
+					midiTrack.setAttackDelayCorrect(attackDelayCorrect);
+					midiTrack.add(noteList);
+					for (var noteEvent : noteList) {
+						insertNote(expectList, noteEvent.clone(), inst, overlapMode, attackDelayCorrect);
+					}
+				}
+				String message = overlapMode + " #" + i;
+				assertEquals(message, expectList, midiTrack.getNoteEventList());
+
+				int startOffset = random.nextInt(2);
+				boolean withMute = random.nextBoolean();
+				var expect = insertConvert(dls, expectList, 3, inst, startOffset, withMute);
+				var actual = dls.convertMidiPart(midiTrack.getNoteEventList(), 3, inst, startOffset, withMute);
+				assertEquals(message, eventString(expect), eventString(actual));
+			}
+		}
+	}
+
+	private static List<MMLNoteEvent> randomNoteList(Random random) {
+		var noteList = new ArrayList<MMLNoteEvent>();
+		int tickOffset = random.nextInt(20);
+		int count = random.nextInt(30);
+		for (int i = 0; i < count; i++) {
+			int tick = 1 + random.nextInt(random.nextBoolean() ? 4 : 100);
+			var noteEvent = new MMLNoteEvent(40 + random.nextInt(4), tick, tickOffset, random.nextInt(16));
+			noteEvent.setMute(random.nextInt(10) == 0);
+			noteList.add(noteEvent);
+			tickOffset += (random.nextInt(6) == 0) ? 0 : random.nextInt(random.nextBoolean() ? 3 : 120);
+		}
+		return noteList;
+	}
+
+	/**
+	 * 以前の MMLMidiTrack の1ノートずつの挿入.
+	 */
+	private static void insertNote(List<MMLNoteEvent> noteEventList, MMLNoteEvent addEvent, InstClass inst, OverlapMode overlapMode, int attackDelayCorrect) {
+		int targetTick = addEvent.getTickOffset();
+		if (attackDelayCorrect != 0) {
+			targetTick += attackDelayCorrect;
+			if (targetTick < 0) {
+				int tick = addEvent.getTick() + targetTick;
+				if (tick <= 0) return;
+				targetTick = 0;
+				addEvent.setTick(tick);
+			}
+			addEvent.setTickOffset(targetTick);
+		}
+
+		int targetIndex = 0;
+		for (MMLNoteEvent noteEvent : noteEventList) {
+			if (noteEvent.getTickOffset() > targetTick) {
+				break;
+			}
+			targetIndex++;
+			if ( (noteEvent.getTickOffset() == targetTick) && (noteEvent.getNote() == addEvent.getNote()) ) {
+				break;
+			}
+		}
+
+		if (!overlapMode.isOverlap(inst, addEvent.getNote())) {
+			if (targetIndex > 0) {
+				MMLNoteEvent prevEvent = noteEventList.get(targetIndex - 1);
+				if ( (addEvent.getNote() == prevEvent.getNote()) && (prevEvent.getTickOffset() == targetTick) ) {
+					if (prevEvent.getTick() >= addEvent.getTick()) {
+						prevEvent.setTick(addEvent.getTick());
+					}
+					return;
+				}
+			}
+			if (targetIndex < noteEventList.size()) {
+				MMLNoteEvent nextEvent = noteEventList.get(targetIndex);
+				if (addEvent.getNote() == nextEvent.getNote()) {
+					int tickOverlap = addEvent.getEndTick() - nextEvent.getTickOffset();
+					if (tickOverlap > 0) {
+						addEvent.setTick(addEvent.getTick() - tickOverlap);
+					}
+				}
+			}
+		}
+		noteEventList.add(targetIndex, addEvent);
+	}
+
+	/**
+	 * 以前の変換. ノートごとに NoteOn, NoteOff を Track へ追加する (同時刻のイベントは追加順になる).
+	 *   各イベントの内容は1ノートだけの convertMidiPart から取得する.
+	 */
+	private static List<MidiEvent> insertConvert(MabiDLS dls, List<MMLNoteEvent> noteList, int channel, InstClass inst, int startOffset, boolean withMute) throws InvalidMidiDataException {
+		Track track = new Sequence(Sequence.PPQ, 96).createTrack();
+		track.add(dls.convertMidiPart(List.of(), channel, inst, startOffset, withMute).get(0));
+		for (var noteEvent : noteList) {
+			if (withMute && noteEvent.isMute()) {
+				continue;
+			}
+			var events = dls.convertMidiPart(List.of(noteEvent), channel, inst, startOffset, false);
+			track.add(events.get(1));
+			track.add(events.get(2));
+		}
+		var list = new ArrayList<MidiEvent>();
+		for (int i = 0; i < track.size(); i++) {
+			list.add(track.get(i));
+		}
+		return list;
+	}
+
+	private static String eventString(List<MidiEvent> events) {
+		var sb = new StringBuilder();
+		for (var event : events) {
+			if (event.getMessage() instanceof MetaMessage) {
+				// End of Track
+				continue;
+			}
+			sb.append(event.getTick()).append(Arrays.toString(event.getMessage().getMessage())).append(' ');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.midi;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+
+import org.junit.Test;
+
+public final class VoiceStatisticsTest {
+
+	private final AtomicInteger sendCount = new AtomicInteger();
+	private final VoiceStatistics statistics = new VoiceStatistics(32);
+	private final Receiver receiver = new ExtendMessage.ExtendReceiver(new Receiver() {
+		@Override
+		public void send(MidiMessage message, long timeStamp) {
+			sendCount.incrementAndGet();
+		}
+
+		@Override
+		public void close() {}
+	}, 32, statistics);
+
+	private void send(int command, int channel, int note, int velocity) throws InvalidMidiDataException {
+		receiver.send(new ExtendMessage(command, channel, note, velocity), -1);
+	}
+
+	@Test
+	public void test_count() throws InvalidMidiDataException {
+		AtomicInteger notifyCount = new AtomicInteger();
+		Runnable listener = () -> notifyCount.incrementAndGet();
+		statistics.addListener(listener);
+
+		send(ShortMessage.NOTE_ON, 20, 60, 100);
+		send(ShortMessage.NOTE_ON, 20, 64, 100);
+		send(ShortMessage.NOTE_ON, 3, 60, 100);
+		assertEquals(3, statistics.getActiveCount());
+		assertEquals(2, statistics.getActiveCount(20));
+		assertEquals(1, statistics.getActiveCount(3));
+		assertEquals(3, notifyCount.get());
+
+		// 発音中の同じノートは数えない.
+		send(ShortMessage.NOTE_ON, 20, 60, 100);
+		assertEquals(3, statistics.getActiveCount());
+
+		// Velocity 0 の NoteOn は NoteOff.
+		send(ShortMessage.NOTE_ON, 20, 60, 0);
+		send(ShortMessage.NOTE_OFF, 3, 60, 0);
+		send(ShortMessage.NOTE_OFF, 3, 60, 0);
+		assertEquals(1, statistics.getActiveCount());
+		assertEquals(1, statistics.getActiveCount(20));
+		assertEquals(0, statistics.getActiveCount(3));
+		assertEquals(3, statistics.getPeak());
+		assertEquals(3, statistics.getNoteOnCount());
+
+		// メッセージはすべて送る.
+		assertEquals(7, sendCount.get());
+
+		statistics.resetPeak();
+		assertEquals(1, statistics.getPeak());
+
+		statistics.removeListener(listener);
+		send(ShortMessage.NOTE_OFF, 20, 64, 0);
+		assertEquals(0, statistics.getActiveCount());
+		assertEquals(5, notifyCount.get());
+	}
+
+	@Test
+	public void test_allNotesOff() throws InvalidMidiDataException {
+		send(ShortMessage.NOTE_ON, 1, 60, 100);
+		send(ShortMessage.NOTE_ON, 2, 60, 100);
+		statistics.allNotesOff();
+		assertEquals(0, statistics.getActiveCount());
+		assertEquals(0, statistics.getActiveCount(1));
+		assertEquals(2, statistics.getPeak());
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.midi;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.Test;
+
+import jp.fourthline.mmlTools.MMLTempoEvent;
+import jp.fourthline.mmlTools.core.MMLTickTable;
+
+public final class WavoutRendererTest {
+
+	private final List<Long> timeStampList = new ArrayList<>();
+	private final List<Integer> channelList = new ArrayList<>();
+	private final Receiver receiver = new Receiver() {
+		@Override
+		public void send(MidiMessage message, long timeStamp) {
+			timeStampList.add(timeStamp);
+			channelList.add(((ShortMessage) message).getChannel());
+		}
+
+		@Override
+		public void close() {}
+	};
+
+	/**
+	 * 1秒分の音声と, そのあとに無音が続くシンセサイザ出力.
+	 */
+	private static AudioInputStream createStream() {
+		int second = (int) WavoutRenderer.FORMAT.getFrameRate() * WavoutRenderer.FORMAT.getFrameSize();
+		byte[] data = new byte[second * 4];
+		Arrays.fill(data, 0, second, (byte) 1);
+		return new AudioInputStream(new ByteArrayInputStream(data), WavoutRenderer.FORMAT, data.length / WavoutRenderer.FORMAT.getFrameSize());
+	}
+
+	@Test
+	public void test_render() throws Exception {
+		Sequence sequence = new Sequence(Sequence.PPQ, MMLTickTable.TPQN);
+		Track track = sequence.createTrack();
+		byte[] tempo = new MMLTempoEvent(60, MMLTickTable.TPQN).getMetaData();
+		track.add(new MidiEvent(new MetaMessage(MMLTempoEvent.META, tempo, tempo.length), MMLTickTable.TPQN));
+		track = sequence.createTrack();
+		track.add(new MidiEvent(new ExtendMessage(ShortMessage.PROGRAM_CHANGE, 20, 1, 0), 0));
+		track.add(new MidiEvent(new ExtendMessage(ShortMessage.NOTE_ON, 20, 60, 100), 0));
+		track.add(new MidiEvent(new ExtendMessage(ShortMessage.NOTE_OFF, 20, 60, 0), MMLTickTable.TPQN * 2));
+
+		File file = File.createTempFile("wavout_", ".wav");
+		try {
+			var renderer = new WavoutRenderer(createStream(), receiver);
+			renderer.render(sequence, file);
+
+			// NoteOn/Offのみ, テンポを反映した時刻で送る (120BPMの4分音符 + 60BPMの4分音符).
+			assertEquals(List.of(0L, 1500000L), timeStampList);
+			assertEquals(List.of(20, 20), channelList);
+
+			// シーケンス終了 (1.5秒) までは出力し, その後の無音で終了する.
+			long second = (long) WavoutRenderer.FORMAT.getFrameRate() * WavoutRenderer.FORMAT.getFrameSize();
+			long len = renderer.getLen();
+			assertTrue(len >= second * 3 / 2);
+			assertTrue(len < second * 2);
+			assertEquals(WavoutRenderer.HEADER_SIZE + len, file.length());
+
+			AudioFileFormat format = AudioSystem.getAudioFileFormat(file);
+			assertEquals(AudioFileFormat.Type.WAVE, format.getType());
+			assertEquals(len / WavoutRenderer.FORMAT.getFrameSize(), format.getFrameLength());
+			assertTrue(WavoutRenderer.FORMAT.matches(format.getFormat()));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void test_cancel() throws Exception {
+		Sequence sequence = new Sequence(Sequence.PPQ, MMLTickTable.TPQN);
+		sequence.createTrack().add(new MidiEvent(new ExtendMessage(ShortMessage.NOTE_ON, 0, 60, 100), MMLTickTable.TPQN * 8));
+
+		File file = File.createTempFile("wavout_", ".wav");
+		try {
+			var renderer = new WavoutRenderer(createStream(), receiver);
+			renderer.cancel();
+			renderer.render(sequence, file);
+			assertEquals(0, renderer.getLen());
+			assertEquals(0, AudioSystem.getAudioFileFormat(file).getFrameLength());
+		} finally {
+			file.delete();
+		}
+	}
+}
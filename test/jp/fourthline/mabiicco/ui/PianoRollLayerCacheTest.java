@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.ui;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public final class PianoRollLayerCacheTest {
+
+	private final List<Rectangle> paintList = new ArrayList<>();
+	private final PianoRollLayerCache cache = new PianoRollLayerCache((g, rect) -> {
+		paintList.add(rect);
+		g.setColor(Color.RED);
+		g.fillRect(300, 0, 10, 10);
+	});
+
+	private BufferedImage paint(Rectangle clip, Object key) {
+		BufferedImage image = new BufferedImage(1024, 512, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		cache.paint(g, clip, key, Color.WHITE);
+		g.dispose();
+		return image;
+	}
+
+	@Test
+	public void test_tile() {
+		int size = PianoRollLayerCache.TILE_SIZE;
+		BufferedImage image = paint(new Rectangle(100, 0, size, 10), "key");
+		assertEquals(List.of(new Rectangle(0, 0, size, size), new Rectangle(size, 0, size, size)), paintList);
+		assertEquals(Color.RED.getRGB(), image.getRGB(305, 5));
+		assertEquals(Color.WHITE.getRGB(), image.getRGB(295, 5));
+
+		// 同じキーでは描画済みのタイルを使う.
+		paintList.clear();
+		image = paint(new Rectangle(200, 0, 200, 10), "key");
+		assertEquals(List.of(), paintList);
+		assertEquals(Color.RED.getRGB(), image.getRGB(305, 5));
+		assertEquals(2, cache.getTileCount());
+
+		// 新しい範囲のタイルのみ描画する.
+		image = paint(new Rectangle(200, size, 100, 10), "key");
+		assertEquals(List.of(new Rectangle(0, size, size, size), new Rectangle(size, size, size, size)), paintList);
+		assertEquals(4, cache.getTileCount());
+	}
+
+	@Test
+	public void test_invalidate() {
+		paint(new Rectangle(0, 0, 10, 10), "key1");
+		assertEquals(1, paintList.size());
+
+		paint(new Rectangle(0, 0, 10, 10), "key2");
+		assertEquals(2, paintList.size());
+		assertEquals(1, cache.getTileCount());
+
+		paint(new Rectangle(0, 0, 10, 10), "key2");
+		assertEquals(2, paintList.size());
+	}
+}
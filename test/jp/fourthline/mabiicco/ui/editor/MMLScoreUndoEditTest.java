@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.ui.editor;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jp.fourthline.mabiicco.ui.IMMLManager;
+import jp.fourthline.mabiicco.ui.mml.MMLManagerStub;
+import jp.fourthline.mmlTools.MMLScore;
+import jp.fourthline.mmlTools.MMLTrack;
+
+public final class MMLScoreUndoEditTest {
+
+	private IMMLManager mmlManager = new MMLManagerStub();
+	private MMLScore score;
+
+	@Before
+	public void setup() {
+		score = mmlManager.getMMLScore();
+	}
+
+	@Test
+	public void test_undoRedo() {
+		var undoEdit = new MMLScoreUndoEdit(mmlManager);
+		score.addTrack(new MMLTrack().setMML("MML@cde,,;"));
+		undoEdit.initState();
+		assertFalse(undoEdit.canUndo());
+
+		List<byte[]> stateList = new ArrayList<>();
+		stateList.add(score.getObjectState());
+		for (int i = 0; i < 5; i++) {
+			score.getTrack(0).setMML("MML@cde" + "fga".repeat(i + 1) + ",,;");
+			undoEdit.saveState();
+			stateList.add(score.getObjectState());
+		}
+		assertTrue(undoEdit.isModified());
+
+		for (int i = stateList.size() - 2; i >= 0; i--) {
+			assertTrue(undoEdit.canUndo());
+			undoEdit.undo();
+			assertArrayEquals(stateList.get(i), score.getObjectState());
+		}
+		assertFalse(undoEdit.canUndo());
+		assertFalse(undoEdit.isModified());
+
+		undoEdit.redo();
+		undoEdit.redo();
+		assertArrayEquals(stateList.get(2), score.getObjectState());
+
+		// バックアップからの復元.
+		String backup = undoEdit.getBackupString();
+		var undoEdit2 = new MMLScoreUndoEdit(mmlManager);
+		assertTrue(undoEdit2.recover(backup));
+		undoEdit2.undo();
+		assertArrayEquals(stateList.get(1), score.getObjectState());
+		undoEdit2.redo();
+		undoEdit2.redo();
+		assertArrayEquals(stateList.get(3), score.getObjectState());
+	}
+
+	@Test
+	public void test_stateChangeListener() {
+		var undoEdit = new MMLScoreUndoEdit(mmlManager);
+		int[] count = { 0 };
+		undoEdit.setStateChangeListener(() -> count[0]++);
+		score.addTrack(new MMLTrack().setMML("MML@cde,,;"));
+		undoEdit.initState();
+		assertEquals(1, count[0]);
+
+		// 変更がない場合は通知しない.
+		undoEdit.saveState();
+		assertEquals(1, count[0]);
+
+		score.getTrack(0).setMML("MML@cdef,,;");
+		undoEdit.saveState();
+		assertEquals(2, count[0]);
+		undoEdit.undo();
+		assertEquals(3, count[0]);
+		undoEdit.redo();
+		assertEquals(4, count[0]);
+		undoEdit.revertState();
+		assertEquals(5, count[0]);
+	}
+
+	@Test
+	public void test_saveStateFlush() {
+		// 保存前に, 別スレッドで実行中のMML生成の結果を反映する.
+		List<String> flushed = new ArrayList<>();
+		var manager = new MMLManagerStub() {
+			@Override
+			public void flushGenerate() {
+				getMMLScore().getTrack(0).setMML("MML@cdef,,;");
+				flushed.add(getMMLScore().getTrack(0).getOriginalMML());
+			}
+		};
+		manager.getMMLScore().addTrack(new MMLTrack().setMML("MML@cde,,;"));
+		var undoEdit = new MMLScoreUndoEdit(manager);
+		undoEdit.initState();
+		assertEquals(1, flushed.size());
+
+		var score2 = new MMLScore();
+		score2.putObjectState(manager.getMMLScore().getObjectState());
+		assertEquals("MML@cdef,,;", score2.getTrack(0).getOriginalMML());
+	}
+
+	@Test
+	public void test_stack() {
+		var stack = new UndoStateStack(4, 1 << 20);
+		String base = "x".repeat(1000);
+		for (int i = 0; i < 6; i++) {
+			stack.push((base + i + base).getBytes(StandardCharsets.UTF_8));
+		}
+		assertEquals(4, stack.size());
+		for (int i = 5; i >= 2; i--) {
+			assertEquals(base + i + base, new String(stack.pop(), StandardCharsets.UTF_8));
+		}
+		assertTrue(stack.empty());
+
+		// 圧縮する差分.
+		stack.push(base.getBytes(StandardCharsets.UTF_8));
+		stack.push("b".getBytes(StandardCharsets.UTF_8));
+		assertEquals("b", new String(stack.pop(), StandardCharsets.UTF_8));
+		assertEquals(base, new String(stack.pop(), StandardCharsets.UTF_8));
+		assertTrue(stack.empty());
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mabiicco.ui.editor;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+
+import org.junit.Test;
+
+public final class MMLTextHighlighterTest {
+
+	private static AttributeSet createAttribute(Color foreground) {
+		var attr = new SimpleAttributeSet();
+		StyleConstants.setForeground(attr, foreground);
+		return attr;
+	}
+
+	private static final AttributeSet emptyStyle = createAttribute(Color.GRAY);
+	private static final AttributeSet normalStyle = createAttribute(Color.BLACK);
+	private static final AttributeSet tokenStyle = createAttribute(Color.BLUE);
+	private static final AttributeSet commentStyle = createAttribute(Color.GREEN);
+
+	private final DefaultStyledDocument doc = new DefaultStyledDocument();
+	private final MMLTextHighlighter highlighter = new MMLTextHighlighter(doc, emptyStyle, normalStyle, tokenStyle, commentStyle);
+
+	public MMLTextHighlighterTest() {
+		doc.addDocumentListener(new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				highlighter.update(e);
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				highlighter.update(e);
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {}
+		});
+	}
+
+	/**
+	 * 各文字のスタイルを1文字で表す. e:empty, n:normal, t:token, c:comment
+	 */
+	private static String styleString(DefaultStyledDocument doc) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < doc.getLength(); i++) {
+			Color color = StyleConstants.getForeground(doc.getCharacterElement(i).getAttributes());
+			if (color.equals(emptyStyle.getAttribute(StyleConstants.Foreground))) {
+				sb.append('e');
+			} else if (color.equals(normalStyle.getAttribute(StyleConstants.Foreground))) {
+				sb.append('n');
+			} else if (color.equals(tokenStyle.getAttribute(StyleConstants.Foreground))) {
+				sb.append('t');
+			} else {
+				sb.append('c');
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 全体を再設定した場合と同じスタイルかどうか.
+	 */
+	private void assertSameAsFull() throws BadLocationException {
+		var full = new DefaultStyledDocument();
+		full.insertString(0, doc.getText(0, doc.getLength()), null);
+		new MMLTextHighlighter(full, emptyStyle, normalStyle, tokenStyle, commentStyle).restyleAll();
+		assertEquals(styleString(full), styleString(doc));
+	}
+
+	@Test
+	public void test_style() throws BadLocationException {
+		doc.insertString(0, "t120c8 // d\n/* e */f/*/g\na*/b", null);
+		highlighter.restyleAll();
+		assertEquals("teeenee" + "ccccc" + "ccccccc" + "n" + "ccccc" + "ccc" + "n", styleString(doc));
+	}
+
+	@Test
+	public void test_incremental() throws BadLocationException {
+		doc.insertString(0, "cde\nfga\n/* bcd\nefg */\nab\ncd\nef\n", null);
+		highlighter.restyleAll();
+
+		// 変更した行のみ再設定する.
+		doc.insertString(1, "8", null);
+		assertEquals(1, highlighter.restyle());
+		assertSameAsFull();
+
+		// ブロックコメントの開始で, 以降の行の状態が変わる.
+		doc.insertString(doc.getText(0, doc.getLength()).indexOf("ab"), "/*", null);
+		assertEquals(4, highlighter.restyle());
+		assertSameAsFull();
+
+		doc.remove(doc.getText(0, doc.getLength()).indexOf("/*ab"), 2);
+		assertEquals(4, highlighter.restyle());
+		assertSameAsFull();
+
+		// 状態が変わらない行の変更では, 以降の行を再設定しない.
+		doc.insertString(doc.getText(0, doc.getLength()).indexOf("ab"), "c", null);
+		assertEquals(1, highlighter.restyle());
+		assertSameAsFull();
+
+		// 複数行の削除と挿入.
+		doc.remove(2, 10);
+		doc.insertString(5, "a\nb\n*/c\n", null);
+		highlighter.restyle();
+		assertSameAsFull();
+
+		doc.remove(0, doc.getLength());
+		highlighter.restyle();
+		assertSameAsFull();
+		doc.insertString(0, "/*\nc\n*/d", null);
+		highlighter.restyle();
+		assertSameAsFull();
+
+		// 行頭への改行を含む挿入では, 挿入後の最後の行も再設定する.
+		doc.insertString(3, "*\n*/c", null);
+		highlighter.restyle();
+		assertSameAsFull();
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import jp.fourthline.FileSelect;
+import jp.fourthline.mmlTools.BatchConverter.Format;
+
+public class BatchConverterTest extends FileSelect {
+
+	@Test
+	public final void test_convertAll() throws Exception {
+		File outDir = Files.createTempDirectory("batch").toFile();
+		File input = fileSelectF("parser/sample1.mms");
+		var converter = new BatchConverter(outDir, EnumSet.allOf(Format.class), 2);
+		List<BatchConverter.Result> resultList = converter.convertAll(List.of(input, new File(outDir, "none.mmi")));
+
+		assertEquals(2, resultList.size());
+		assertTrue(resultList.get(0).isSuccess());
+		assertFalse(resultList.get(1).isSuccess());
+
+		File mmlFile = new File(outDir, "sample1.txt");
+		File midFile = new File(outDir, "sample1.mid");
+		File mmiFile = new File(outDir, "sample1.mmi");
+		assertTrue(mmlFile.exists());
+		assertTrue(midFile.exists());
+		assertTrue(mmiFile.exists());
+
+		// 出力した.mmiを読み込んだ結果のMMLが一致すること.
+		MMLScore score = new MMLScore();
+		new MMLScoreSerializer(score).parse(new FileInputStream(mmiFile));
+		score.generateAll();
+		assertEquals(Files.readString(mmlFile.toPath()), BatchConverter.toMabiMMLText(score));
+
+		for (File f : outDir.listFiles()) {
+			f.delete();
+		}
+		outDir.delete();
+	}
+}
@@ -792,4 +792,118 @@ public class MMLEventListTest {
 		assertEquals(1, eventList.getMMLNoteEventList().size());
 		assertEquals(true, eventList.getMMLNoteEventList().get(0).isTuningNote());		
 	}
+
+	/**
+	 * 二分探索による検索が, 先頭から探索した結果と一致すること.
+	 */
+	@Test
+	public void test_searchIndex() {
+		var random = new java.util.Random(1);
+		MMLEventList eventList = new MMLEventList("");
+		for (int i = 0; i < 2000; i++) {
+			int tick = 6 * (1 + random.nextInt(16));
+			int offset = 6 * random.nextInt(4000);
+			eventList.addMMLNoteEvent(new MMLNoteEvent(40, tick, offset));
+		}
+		var noteList = eventList.getMMLNoteEventList();
+		for (int i = 1; i < noteList.size(); i++) {
+			assertTrue(noteList.get(i-1).getEndTick() <= noteList.get(i).getTickOffset());
+		}
+
+		for (int tick = 0; tick < 6 * 4100; tick += 3) {
+			MMLNoteEvent expectOn = null;
+			MMLNoteEvent expectPrev = null;
+			for (MMLNoteEvent noteEvent : noteList) {
+				if ((noteEvent.getTickOffset() <= tick) && (tick < noteEvent.getEndTick())) {
+					expectOn = noteEvent;
+				}
+				if (noteEvent.getTickOffset() < tick) {
+					expectPrev = noteEvent;
+				}
+			}
+			assertSame(expectOn, eventList.searchOnTickOffset(tick));
+			assertSame(expectPrev, eventList.searchPrevNoteOnTickOffset(tick));
+
+			var target = new MMLNoteEvent(40, 12, tick);
+			// 開始位置または終了位置が既存のノートに含まれる.
+			boolean expectOverlap = noteList.stream().anyMatch(t -> (t.getTickOffset() <= target.getTickOffset()) && (target.getTickOffset() < t.getEndTick()))
+					|| noteList.stream().anyMatch(t -> (t.getTickOffset() <= target.getEndTick()-1) && (target.getEndTick()-1 < t.getEndTick()));
+			assertEquals(expectOverlap, eventList.isOverlapNote(target));
+		}
+	}
+
+	private static int computeNoteHash(MMLEventList eventList) {
+		int hash = 0;
+		for (var note : eventList.getMMLNoteEventList()) {
+			hash += note.contentHash();
+		}
+		return hash;
+	}
+
+	/**
+	 * ノートの追加, 削除, 変更で更新したハッシュ値が, 再計算した値と一致すること.
+	 */
+	@Test
+	public void test_noteContentHash() {
+		var random = new java.util.Random(1);
+		MMLEventList eventList = new MMLEventList("cde8f16");
+		assertEquals(computeNoteHash(eventList), eventList.noteContentHash());
+		for (int i = 0; i < 1000; i++) {
+			var noteList = eventList.getMMLNoteEventList();
+			switch (random.nextInt(6)) {
+			case 0 -> eventList.addMMLNoteEvent(new MMLNoteEvent(40 + random.nextInt(20), 1 + random.nextInt(96), random.nextInt(4000)));
+			case 1 -> {
+				if (!noteList.isEmpty()) eventList.deleteMMLEvent(noteList.get(random.nextInt(noteList.size())));
+			}
+			case 2 -> {
+				if (!noteList.isEmpty()) noteList.get(random.nextInt(noteList.size())).setTick(1 + random.nextInt(96));
+			}
+			case 3 -> {
+				if (!noteList.isEmpty()) noteList.get(random.nextInt(noteList.size())).setNote(40 + random.nextInt(20));
+			}
+			case 4 -> {
+				if (!noteList.isEmpty()) noteList.get(random.nextInt(noteList.size())).setVelocity(random.nextInt(16));
+			}
+			default -> MMLEvent.insertTick(noteList, random.nextInt(4000), random.nextInt(96));
+			}
+			assertEquals(computeNoteHash(eventList), eventList.noteContentHash());
+		}
+
+		// 複製したリストは別々に更新する.
+		var cloneList = eventList.clone();
+		assertEquals(eventList.noteContentHash(), cloneList.noteContentHash());
+		assertEquals(eventList, cloneList);
+		cloneList.getMMLNoteEventList().get(0).setTickOffset(cloneList.getMMLNoteEventList().get(0).getTickOffset() + 1);
+		assertEquals(computeNoteHash(eventList), eventList.noteContentHash());
+		assertEquals(computeNoteHash(cloneList), cloneList.noteContentHash());
+		assertNotEquals(eventList, cloneList);
+
+		// 削除したノートの変更は反映しない.
+		var note = eventList.getMMLNoteEventList().get(0);
+		eventList.deleteMMLEvent(note);
+		note.setTick(note.getTick() + 1);
+		assertEquals(computeNoteHash(eventList), eventList.noteContentHash());
+
+		eventList.getMMLNoteEventList().clear();
+		assertEquals(0, eventList.noteContentHash());
+	}
+
+	/**
+	 * 他のリストが保持しているノートを追加した場合も, ハッシュ値は正しいこと.
+	 */
+	@Test
+	public void test_noteContentHash_shared() {
+		MMLEventList eventList1 = new MMLEventList("cde");
+		MMLEventList eventList2 = new MMLEventList("");
+		var note = eventList1.getMMLNoteEventList().get(1);
+		eventList2.addMMLNoteEvent(note);
+		note.setNote(note.getNote() + 1);
+		assertEquals(computeNoteHash(eventList1), eventList1.noteContentHash());
+		assertEquals(computeNoteHash(eventList2), eventList2.noteContentHash());
+
+		// 並べ替えでは変わらない.
+		eventList1.getMMLNoteEventList().sort((a, b) -> b.getTickOffset() - a.getTickOffset());
+		note.setTick(note.getTick() * 2);
+		assertEquals(computeNoteHash(eventList1), eventList1.noteContentHash());
+	}
 }
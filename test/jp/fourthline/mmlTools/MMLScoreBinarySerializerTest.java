@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import jp.fourthline.FileSelect;
+import jp.fourthline.mmlTools.parser.IMMLFileParser;
+import jp.fourthline.mmlTools.parser.MMLParseException;
+
+public class MMLScoreBinarySerializerTest extends FileSelect {
+
+	private static final String[] FILES = { "format0.mmi", "format1.mmi", "format1_ex.mmi", "format2.mmi", "format3.mmi", "format_r0.mmi", "format_r1.mmi" };
+
+	private MMLScore loadText(String name) throws Exception {
+		return new MMLScoreSerializer(new MMLScore()).parse(fileSelect(name));
+	}
+
+	@Test
+	public final void test_roundTrip() throws Exception {
+		for (String name : FILES) {
+			MMLScore score = loadText(name);
+			byte[] data = new MMLScoreBinarySerializer(score).toByteArray();
+			assertTrue(MMLScoreBinarySerializer.isBinary(data));
+			assertFalse(MMLScoreBinarySerializer.isBinary(score.getObjectState()));
+
+			MMLScore score2 = new MMLScore();
+			score2.putObjectState(data);
+			assertEquals(name, new String(score.getObjectState(), StandardCharsets.UTF_8), new String(score2.getObjectState(), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public final void test_lazyParts() throws Exception {
+		MMLScore score = loadText("format1.mmi");
+		MMLScore score2 = new MMLScoreBinarySerializer(new MMLScore()).parse(ByteBuffer.wrap(new MMLScoreBinarySerializer(score).toByteArray()));
+		assertFalse(score2.getTrackList().isEmpty());
+		for (MMLTrack track : score2.getTrackList()) {
+			assertFalse(track.isPartsLoaded());
+		}
+
+		MMLTrack track = score2.getTrack(0);
+		assertEquals(score.getTrack(0).getMMLEventList(), track.getMMLEventList());
+		assertTrue(track.isPartsLoaded());
+		assertFalse(score2.getTrack(1).isPartsLoaded());
+	}
+
+	@Test
+	public final void test_generate() throws Exception {
+		for (String name : FILES) {
+			MMLScore score = loadText(name);
+			MMLScore score2 = new MMLScoreBinarySerializer(new MMLScore()).parse(ByteBuffer.wrap(new MMLScoreBinarySerializer(score).toByteArray()));
+			score.generateAll();
+			score2.generateAll();
+			for (int i = 0; i < score.getTrackCount(); i++) {
+				assertEquals(name, score.getTrack(i).getMabiMML(), score2.getTrack(i).getMabiMML());
+			}
+		}
+	}
+
+	@Test
+	public final void test_file() throws Exception {
+		MMLScore score = loadText("format2.mmi");
+		File file = File.createTempFile("test", ".mmb");
+		try {
+			try (OutputStream out = new FileOutputStream(file)) {
+				new MMLScoreBinarySerializer(score).writeToOutputStream(out);
+			}
+			IMMLFileParser parser = IMMLFileParser.getParser(file);
+			assertTrue(parser instanceof MMLScoreBinarySerializer);
+			MMLScore score2 = ((MMLScoreBinarySerializer) parser).parse(file);
+			assertArrayEquals(score.getObjectState(), score2.getObjectState());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test(expected = MMLParseException.class)
+	public final void test_invalid() throws Exception {
+		byte[] data = new MMLScoreBinarySerializer(loadText("format1.mmi")).toByteArray();
+		new MMLScoreBinarySerializer(new MMLScore()).parse(ByteBuffer.wrap(data, 0, data.length / 2).slice());
+	}
+
+	/**
+	 * パートの範囲外は, パートの遅延デコード時ではなく読み込み時にエラーとする.
+	 */
+	@Test(expected = MMLParseException.class)
+	public final void test_invalidPart() throws Exception {
+		byte[] data = new MMLScoreBinarySerializer(loadText("format1.mmi")).toByteArray();
+		new MMLScoreBinarySerializer(new MMLScore()).parse(ByteBuffer.wrap(data, 0, data.length - 4).slice());
+	}
+}
@@ -780,4 +780,36 @@ public class MMLScoreTest extends UseLoadingDLS {
 		score.generateAll();
 		assertEquals(true, track.getFix64());
 	}
+
+	@Test
+	public void test_generateSnapshot() throws MMLExceptionList, MMLVerifyException {
+		MMLScore score = new MMLScore();
+		score.addTrack(new MMLTrack().setMML("MML@t150aaa,bbb,ccc;"));
+		score.addTrack(new MMLTrack().setMML("MML@ddd;"));
+		score.generateAll();
+
+		score.getTrack(1).getMMLEventAtIndex(0).getMMLNoteEventList().get(0).setNote(48);
+		MMLScore snapshot = score.generateSnapshot();
+		assertNotSame(score.getTrack(1).getMMLEventAtIndex(0).getMMLNoteEventList().get(0),
+				snapshot.getTrack(1).getMMLEventAtIndex(0).getMMLNoteEventList().get(0));
+		assertTrue(score.getTrack(1).isModified());
+		snapshot.generateAll();
+		assertEquals("MML@t150cdd,,;", snapshot.getTrack(1).getOriginalMML());
+		assertEquals("MML@t150ddd,,;", score.getTrack(1).getOriginalMML());
+
+		assertTrue(score.applyGenerated(snapshot));
+		assertFalse(score.getTrack(1).isModified());
+		assertEquals("MML@t150aaa,bbb,ccc;", score.getTrack(0).getOriginalMML());
+		assertEquals("MML@t150cdd,,;", score.getTrack(1).getOriginalMML());
+		assertEquals("MML@t150cdd,,;", score.getTrack(1).getMabiMML());
+
+		// 生成中に変更があったトラックには反映しない.
+		snapshot = score.generateSnapshot();
+		snapshot.getTrack(0).getMMLEventAtIndex(0).getMMLNoteEventList().get(0).setNote(50);
+		score.getTrack(1).getMMLEventAtIndex(0).getMMLNoteEventList().get(0).setNote(50);
+		snapshot.generateAll();
+		assertFalse(score.applyGenerated(snapshot));
+		assertEquals("MML@t150aaa,bbb,ccc;", score.getTrack(0).getOriginalMML());
+		assertTrue(score.getTrack(1).isModified());
+	}
 }
@@ -29,6 +29,7 @@ public class MMLTrackTest {
 		MMLTrack.setTempoAllowChordPart(false);
 		MMLBuilder.setMMLVZeroTempo(true);
 		MMLStringOptimizer.setOptimizeLevel(MMLStringOptimizer.GEN2);
+		MMLTrack.setAsyncVerify(false);
 	}
 
 	@After
@@ -36,6 +37,7 @@ public class MMLTrackTest {
 		MMLTrack.setTempoAllowChordPart(true);
 		MMLBuilder.setMMLVZeroTempo(true);
 		MMLStringOptimizer.setOptimizeLevel(MMLStringOptimizer.GEN2);
+		MMLTrack.setAsyncVerify(false);
 	}
 
 	/**
@@ -749,4 +751,55 @@ public class MMLTrackTest {
 		track.generate();
 		assertEquals(mml2, track.getMabiMML());
 	}
+
+	@Test
+	public void test_generateModified() throws MMLExceptionList, MMLVerifyException {
+		var track = new MMLTrack().setMML("MML@aaa,bbb,ccc,ddd;");
+		assertTrue(track.isModified());
+		track.generate();
+		assertFalse(track.isModified());
+		assertEquals("MML@aaa,bbb,ccc,ddd;", track.getMabiMML());
+
+		// ノートの変更
+		track.getMMLEventAtIndex(1).getMMLNoteEventList().get(0).setNote(48);
+		assertTrue(track.isModified());
+		assertEquals("MML@aaa,cbb,ccc,ddd;", track.generate().getMabiMML());
+		assertFalse(track.isModified());
+
+		// テンポの変更
+		new MMLTempoEvent(150, 48).appendToListElement(track.getGlobalTempoList());
+		assertTrue(track.isModified());
+		assertEquals("MML@a8t150v0a8v8aa,cbb,ccc,d8t150v0d8v8dd;", track.generate().getMabiMML());
+
+		// 出力オプションの変更
+		MMLBuilder.setMMLVZeroTempo(false);
+		assertTrue(track.isModified());
+		track.generate();
+		assertFalse(track.isModified());
+
+		// 全体を生成した場合と同じになる
+		var track2 = new MMLTrack().setMML(track.getOriginalMML());
+		track2.setGlobalTempoList(track.getGlobalTempoList());
+		assertEquals(track2.generate().getMabiMML(), track.getMabiMML());
+	}
+
+	@Test
+	public void test_asyncVerify() throws MMLExceptionList, MMLVerifyException {
+		MMLTrack.setAsyncVerify(true);
+		var track = new MMLTrack().setMML("MML@aaa,bbb,ccc,ddd;");
+		track.generate();
+		assertFalse(track.isModified());
+		assertEquals("MML@aaa,bbb,ccc,ddd;", track.getMabiMML());
+
+		track.getMMLEventAtIndex(1).getMMLNoteEventList().get(0).setNote(48);
+		assertEquals("MML@aaa,cbb,ccc,ddd;", track.generate().getMabiMML());
+		assertFalse(track.isModified());
+
+		// テンポを含む場合も, 検査が完了してから生成結果を反映する.
+		new MMLTempoEvent(150, 96).appendToListElement(track.getGlobalTempoList());
+		assertTrue(track.isModified());
+		track.generate();
+		assertFalse(track.isModified());
+		assertEquals(track.getMabiMML(), new MMLTrack().setMML(track.getOriginalMML()).generate().getMabiMML());
+	}
 }
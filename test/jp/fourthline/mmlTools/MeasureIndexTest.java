@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import jp.fourthline.mmlTools.core.MMLException;
+
+public class MeasureIndexTest {
+
+	/** 線形探索による小節先頭tick計算 (比較用). */
+	private static int measureToTick(MMLScore score, int measure) {
+		int measureTick = score.getMeasureTick();
+		int tick = 0;
+		for (int m = 0; m < measure; m++) {
+			for (TimeSignature ts : score.getTimeSignatureList()) {
+				if (ts.getMeasureOffset() == m) {
+					measureTick = ts.getNumTime() * ts.getBaseTick();
+				}
+			}
+			tick += measureTick;
+		}
+		return tick;
+	}
+
+	@Test
+	public void test_empty() {
+		MMLScore score = new MMLScore();
+		var index = score.getMeasureIndex();
+		assertEquals(1, index.size());
+		assertEquals(0, index.tickToMeasure(0));
+		assertEquals(0, index.tickToMeasure(383));
+		assertEquals(1, index.tickToMeasure(384));
+		assertEquals(384*10, index.measureToTick(10));
+		assertEquals(96, index.getBeatTick(1000));
+		assertEquals(4, index.getNumTime(1000));
+	}
+
+	@Test
+	public void test_timeSignature() throws MMLException {
+		MMLScore score = new MMLScore();
+		score.addTimeSignature(new TimeSignature(score, 384, 3, 4));
+		score.addTimeSignature(new TimeSignature(score, 384+288*2, 6, 8));
+		var index = score.getMeasureIndex();
+
+		assertEquals(3, index.size());
+		assertEquals(0, index.measureToTick(0));
+		assertEquals(384, index.measureToTick(1));
+		assertEquals(384+288, index.measureToTick(2));
+		assertEquals(384+288*2, index.measureToTick(3));
+		assertEquals(384+288*4, index.measureToTick(5));
+
+		assertEquals(0, index.tickToMeasure(383));
+		assertEquals(1, index.tickToMeasure(384));
+		assertEquals(2, index.tickToMeasure(384+288*2-1));
+		assertEquals(3, index.tickToMeasure(384+288*2));
+		assertEquals(48, index.getBeatTick(384+288*2));
+		assertEquals(288, index.getMeasureTickOnMeasure(4));
+	}
+
+	@Test
+	public void test_invalidate() throws MMLException {
+		MMLScore score = new MMLScore();
+		var index = score.getMeasureIndex();
+		assertSame(index, score.getMeasureIndex());
+
+		score.setBaseTime("3/4");
+		assertNotSame(index, score.getMeasureIndex());
+		assertEquals(288, score.getMeasureIndex().measureToTick(1));
+
+		var ts = new TimeSignature(score, 288*2, 2, 4);
+		score.addTimeSignature(ts);
+		assertEquals(288*2+192, score.getMeasureIndex().measureToTick(3));
+
+		score.addTicks(0, true);
+		assertEquals(3, ts.getMeasureOffset());
+		assertEquals(288*3, ts.getTickOffset());
+
+		score.removeTimeSignature(ts);
+		assertEquals(288*4, score.getMeasureIndex().measureToTick(4));
+
+		score.addTimeSignature(ts);
+		score.putObjectState(new MMLScore().getObjectState());
+		assertEquals(384*4, score.getMeasureIndex().measureToTick(4));
+	}
+
+	@Test
+	public void test_random() throws MMLException {
+		Random random = new Random(2024);
+		MMLScore score = new MMLScore();
+		for (int i = 0; i < 20; i++) {
+			int measure = random.nextInt(200);
+			int numTime = 1 + random.nextInt(8);
+			String base = TimeSignature.TIME_BASE_LIST[1 + random.nextInt(4)];
+			int tick = score.getMeasureIndex().measureToTick(measure);
+			score.addTimeSignature(new TimeSignature(score, tick, Integer.toString(numTime), base));
+		}
+
+		var index = score.getMeasureIndex();
+		for (int m = 0; m < 250; m++) {
+			int tick = measureToTick(score, m);
+			assertEquals(tick, index.measureToTick(m));
+			assertEquals(m, index.tickToMeasure(tick));
+			assertEquals(m, TimeSignature.tickToMeasure(score, tick));
+			assertEquals(tick, Measure.measuredTick(score, tick + index.getMeasureTickOnMeasure(m) - 1));
+			assertEquals(measureToTick(score, m+1), Measure.nextMeasure(score, tick, true));
+		}
+		for (TimeSignature ts : score.getTimeSignatureList()) {
+			assertEquals(measureToTick(score, ts.getMeasureOffset()), ts.getTickOffset());
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import jp.fourthline.mmlTools.core.MMLTickTable;
+
+public class TempoMapTest {
+
+	/** 線形探索による時間計算 (比較用). */
+	private static double timeOnTick(List<MMLTempoEvent> tempoList, int tickOffset) {
+		double totalTime = 0L;
+		int tempo = MMLTempoEvent.INITIAL_TEMPO;
+		int currentTick = 0;
+		for (MMLTempoEvent tempoEvent : tempoList) {
+			int currentTempoTick = tempoEvent.getTickOffset();
+			if (tickOffset < currentTempoTick) {
+				break;
+			}
+			int currentTempo = tempoEvent.getTempo();
+			if (tempo != currentTempo) {
+				totalTime += (currentTempoTick - currentTick) * 60000.0 / tempo;
+				currentTick = currentTempoTick;
+			}
+			tempo = currentTempo;
+		}
+		totalTime += (tickOffset - currentTick) * 60000.0 / tempo;
+		return totalTime / MMLTickTable.TPQN;
+	}
+
+	/** 線形探索によるtick計算 (比較用). */
+	private static double tickOnTime(List<MMLTempoEvent> tempoList, double time) {
+		int tempo = MMLTempoEvent.INITIAL_TEMPO;
+		double pointTime = 0;
+		double tick = 0;
+		for (MMLTempoEvent tempoEvent : tempoList) {
+			double tempoTime = timeOnTick(tempoList, tempoEvent.getTickOffset());
+			if (time <= tempoTime) {
+				break;
+			}
+			pointTime = tempoTime;
+			tempo = tempoEvent.getTempo();
+			tick = tempoEvent.getTickOffset();
+		}
+		tick += (time - pointTime) * MMLTickTable.TPQN * tempo / 60 / 1000;
+		return tick;
+	}
+
+	@Test
+	public void test_empty() {
+		TempoMap tempoMap = new TempoMap(new ArrayList<>());
+		assertEquals(0, tempoMap.size());
+		assertEquals(500.0, tempoMap.getTimeOnTickOffset(96), 0.0);
+		assertEquals(96.0, tempoMap.getTickOffsetOnTime(500.0), 0.0);
+		assertEquals(MMLTempoEvent.INITIAL_TEMPO, tempoMap.getTempoOnTick(1000));
+	}
+
+	@Test
+	public void test_tempo() {
+		List<MMLTempoEvent> tempoList = new ArrayList<>();
+		new MMLTempoEvent(90, 96).appendToListElement(tempoList);
+		new MMLTempoEvent(90, 192).appendToListElement(tempoList);
+		new MMLTempoEvent(240, 384).appendToListElement(tempoList);
+		TempoMap tempoMap = new TempoMap(tempoList);
+
+		assertEquals(120, tempoMap.getTempoOnTick(95));
+		assertEquals(90, tempoMap.getTempoOnTick(96));
+		assertEquals(90, tempoMap.getTempoOnTick(383));
+		assertEquals(240, tempoMap.getTempoOnTick(384));
+		assertEquals(500.0, tempoMap.getTimeOnTickOffset(96), 0.001);
+		assertEquals(500.0 + 2000.0, tempoMap.getTimeOnTickOffset(384), 0.001);
+		assertEquals(384.0, tempoMap.getTickOffsetOnTime(2500.0), 0.001);
+	}
+
+	@Test
+	public void test_compareLinear() {
+		Random random = new Random(7);
+		for (int n = 0; n < 50; n++) {
+			List<MMLTempoEvent> tempoList = new ArrayList<>();
+			int tick = random.nextInt(2) * random.nextInt(384);
+			for (int i = random.nextInt(40); i > 0; i--) {
+				new MMLTempoEvent(32 + random.nextInt(300), tick).appendToListElement(tempoList);
+				tick += 1 + random.nextInt(MMLTickTable.TPQN * 8);
+			}
+			TempoMap tempoMap = new TempoMap(tempoList);
+			List<MMLTempoEvent> linkedList = new LinkedList<>(tempoList);
+			for (int i = 0; i < 200; i++) {
+				int t = random.nextInt(tick + MMLTickTable.TPQN * 4);
+				double time = timeOnTick(tempoList, t);
+				assertEquals(Double.doubleToLongBits(time), Double.doubleToLongBits(tempoMap.getTimeOnTickOffset(t)));
+				assertEquals(Double.doubleToLongBits(tickOnTime(tempoList, time)), Double.doubleToLongBits(tempoMap.getTickOffsetOnTime(time)));
+				double time2 = random.nextDouble() * time;
+				assertEquals(Double.doubleToLongBits(tickOnTime(tempoList, time2)), Double.doubleToLongBits(tempoMap.getTickOffsetOnTime(time2)));
+				assertEquals(MMLTempoEvent.searchOnTick(linkedList, t), tempoMap.getTempoOnTick(t));
+				assertEquals(MMLTempoEvent.searchOnTick(linkedList, t), MMLTempoEvent.searchOnTick(tempoList, t));
+			}
+		}
+	}
+
+	@Test
+	public void test_cache() {
+		MMLScore score = new MMLScore();
+		List<MMLTempoEvent> tempoList = score.getTempoEventList();
+		new MMLTempoEvent(90, 96).appendToListElement(tempoList);
+		TempoMap tempoMap = score.getTempoMap();
+		assertSame(tempoMap, score.getTempoMap());
+		assertTrue(tempoMap.matches(tempoList));
+
+		// テンポイベントを直接変更した場合も作り直す.
+		tempoList.get(0).setTempo(150);
+		assertFalse(tempoMap.matches(tempoList));
+		TempoMap tempoMap2 = score.getTempoMap();
+		assertNotSame(tempoMap, tempoMap2);
+		assertEquals(150, tempoMap2.getTempoOnTick(96));
+
+		new MMLTempoEvent(200, 192).appendToListElement(tempoList);
+		assertNotSame(tempoMap2, score.getTempoMap());
+		assertEquals(200, score.getTempoMap().getTempoOnTick(192));
+	}
+}
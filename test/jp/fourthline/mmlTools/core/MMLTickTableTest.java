@@ -42,6 +42,33 @@ public final class MMLTickTableTest extends FileSelect {
 		assertEquals(outputStream2.toString(), outputStream1.toString());
 	}
 
+	@Test
+	public void test_binaryInvTable() throws IOException {
+		MMLTickTable tickTable1 = new MMLTickTable(null);
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		tickTable1.writeToOutputStreamBinaryInvTable(binary);
+
+		MMLTickTable tickTable2 = new MMLTickTable(fileSelect("tickInvTable.txt"));
+		var invTable = tickTable2.readFromInputStreamBinaryInvTable(new ByteArrayInputStream(binary.toByteArray()));
+		assertEquals(tickTable1.getInvTable().max(), invTable.max());
+		for (int i = 0; i < invTable.max(); i++) {
+			var p1 = tickTable1.getInvTable().get(i);
+			var p2 = invTable.get(i);
+			assertEquals(p1 == null, p2 == null);
+			if (p1 != null) {
+				assertEquals(p1.primary, p2.primary);
+				assertEquals(p1.alt, p2.alt);
+			}
+		}
+
+		byte[] b = binary.toByteArray();
+		b[0] = 0;
+		try {
+			tickTable2.readFromInputStreamBinaryInvTable(new ByteArrayInputStream(b));
+			fail();
+		} catch (IOException e) {}
+	}
+
 	@Test
 	public void test_create() {
 		MMLTickTable tickTable = MMLTickTable.createTickTable();
@@ -35,4 +35,48 @@ public class MMLTokenizerTest {
 		assertFalse(MMLTokenizer.isLenOnly(""));
 		assertFalse(MMLTokenizer.isLenOnly("4l1"));
 	}
+
+	@Test
+	public void test_advance() {
+		MMLTokenizer tokenizer = new MMLTokenizer("a16B+16.<o04&tu80");
+		assertTrue(tokenizer.advance());
+		assertEquals('a', tokenizer.tokenKind());
+		assertEquals(16, tokenizer.tokenNumber());
+		assertEquals(0, tokenizer.tokenDots());
+		assertTrue(tokenizer.isRegularToken());
+		assertEquals("a", tokenizer.noteName());
+
+		assertTrue(tokenizer.advance());
+		assertEquals('b', tokenizer.tokenKind());
+		assertEquals(16, tokenizer.tokenNumber());
+		assertEquals(1, tokenizer.tokenDots());
+		assertEquals("B+", tokenizer.noteName());
+		assertEquals("B+16.", tokenizer.token());
+
+		assertTrue(tokenizer.advance());
+		assertEquals('<', tokenizer.tokenKind());
+		assertEquals(-1, tokenizer.tokenNumber());
+
+		assertTrue(tokenizer.advance());
+		assertEquals('o', tokenizer.tokenKind());
+		assertFalse(tokenizer.isRegularToken());
+		assertEquals("o04", tokenizer.token());
+
+		assertTrue(tokenizer.advance());
+		assertEquals('&', tokenizer.tokenKind());
+
+		assertTrue(tokenizer.advance());
+		assertFalse(tokenizer.isRegularToken());
+		assertEquals("tu80", tokenizer.token());
+		assertFalse(tokenizer.advance());
+
+		// ASCII以外の数字は規則外とする.
+		tokenizer = new MMLTokenizer("c\uff18d8");
+		assertTrue(tokenizer.advance());
+		assertFalse(tokenizer.isRegularToken());
+		assertEquals("c\uff18", tokenizer.token());
+		assertTrue(tokenizer.advance());
+		assertTrue(tokenizer.isRegularToken());
+		assertEquals(8, tokenizer.tokenNumber());
+	}
 }
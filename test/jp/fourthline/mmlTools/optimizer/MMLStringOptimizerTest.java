@@ -18,6 +18,7 @@ import jp.fourthline.mmlTools.MMLEventList;
 import jp.fourthline.mmlTools.MMLExceptionList;
 import jp.fourthline.mmlTools.core.MMLTicks;
 import jp.fourthline.mmlTools.core.MMLException;
+import jp.fourthline.mmlTools.core.MMLTokenizer;
 
 /**
  * MML最適化のテスト.
@@ -653,8 +654,36 @@ public class MMLStringOptimizerTest {
 		MMLStringOptimizer.setOptimizeLevel(MMLStringOptimizer.GEN1);
 		assertEquals(expect1, optimizer.preciseOptimize());
 
-		assertEquals(3, MMLStringOptimizer.getCache().keySet().size());
+		assertEquals(3, MMLStringOptimizer.getCache().size());
 
 		MMLStringOptimizer.setOptimizeLevel(MMLStringOptimizer.GEN2);
 	}
+
+	@Test
+	public void test_parseOriginalCache() {
+		String mml = "c8d8e8f8g8a8b8<c8";
+		var eventList = MMLStringOptimizer.parseOriginal(mml);
+		assertEquals(new MMLEventList(mml), eventList);
+		assertSame(eventList, MMLStringOptimizer.parseOriginal(mml));
+
+		MMLStringOptimizer.clearAllCache();
+		assertNotSame(eventList, MMLStringOptimizer.parseOriginal(mml));
+	}
+
+	@Test
+	public void test_lattice() {
+		String[] inputs = {
+				"c8c8c16c16c8c8c16",
+				"c4c4c16c4c4c4c16c16c8c8c4c4c16c16c4c4c4",
+				"c16&c32.c16&c32.c16&c32.",
+				"l8c&c.<c&c.>>c4.&c8.r16.r8",
+				"o2c1o6c1o2c1v10c2.&c8r4.r32." };
+		for (String mml : inputs) {
+			var optimizer1 = new OxLxOptimizer();
+			new MMLTokenizer(mml).forEachRemaining(optimizer1::nextToken);
+			var optimizer2 = new OxLxLatticeOptimizer();
+			new MMLTokenizer(mml).forEachRemaining(optimizer2::nextToken);
+			assertEquals(optimizer1.getMinString(), optimizer2.getMinString());
+		}
+	}
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools.optimizer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Test;
+
+public class OptimizerCacheTest {
+	@Test
+	public final void test_getPut() {
+		var cache = new OptimizerCache(1 << 20, 4);
+		assertNull(cache.get(1, false, "c8d8e8"));
+		cache.put(1, false, "c8d8e8", "l8cde");
+		assertEquals("l8cde", cache.get(1, false, "c8d8e8"));
+		assertNull(cache.get(1, true, "c8d8e8"));
+		assertNull(cache.get(2, false, "c8d8e8"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+	}
+
+	@Test
+	public final void test_eviction() {
+		var cache = new OptimizerCache(1000, 1);
+		for (int i = 0; i < 100; i++) {
+			cache.put(1, false, "c" + i, "0123456789");
+		}
+		assertEquals(50, cache.size());
+		assertEquals(1000, cache.getBytes());
+		assertEquals(50, cache.getEvictionCount());
+		assertNull(cache.get(1, false, "c0"));
+		assertNotNull(cache.get(1, false, "c99"));
+	}
+
+	@Test
+	public final void test_saveLoad() throws Exception {
+		var cache = new OptimizerCache(1 << 20, 4);
+		for (int i = 0; i < 10; i++) {
+			cache.put(2, false, "c" + i, "d" + i);
+		}
+		File file = File.createTempFile("optimizerCache", ".bin");
+		file.deleteOnExit();
+		cache.save(file);
+
+		var cache2 = new OptimizerCache(1 << 20, 8);
+		assertEquals(10, cache2.load(file));
+		for (int i = 0; i < 10; i++) {
+			assertEquals("d" + i, cache2.get(2, false, "c" + i));
+		}
+	}
+
+	@Test
+	public final void test_loadVersion() throws Exception {
+		var cache = new OptimizerCache(1 << 20, 4, 1);
+		cache.put(2, false, "c", "d");
+		File file = File.createTempFile("optimizerCache", ".bin");
+		file.deleteOnExit();
+		cache.save(file);
+
+		// 最適化のバージョンが異なるファイルは読み込まない.
+		var cache2 = new OptimizerCache(1 << 20, 4, 2);
+		assertEquals(0, cache2.load(file));
+		assertNull(cache2.get(2, false, "c"));
+
+		var cache3 = new OptimizerCache(1 << 20, 4, 1);
+		assertEquals(1, cache3.load(file));
+		assertEquals("d", cache3.get(2, false, "c"));
+	}
+
+	@Test
+	public final void test_loadBroken() throws Exception {
+		var cache = new OptimizerCache(1 << 20, 4);
+		cache.put(2, false, "c", "d");
+		cache.put(2, false, "e", "f");
+		File file = File.createTempFile("optimizerCache", ".bin");
+		file.deleteOnExit();
+		cache.save(file);
+
+		// エントリの長さが壊れている.
+		try (var out = new RandomAccessFile(file, "rw")) {
+			out.seek(12 + 16);
+			out.writeInt(-1);
+		}
+		var cache2 = new OptimizerCache(1 << 20, 4);
+		assertLoadFails(cache2, file);
+		assertEquals(0, cache2.size());
+
+		try (var out = new RandomAccessFile(file, "rw")) {
+			out.seek(12 + 16);
+			out.writeInt(Integer.MAX_VALUE);
+		}
+		assertLoadFails(cache2, file);
+		assertEquals(0, cache2.size());
+
+		// 途中で切れている.
+		cache.save(file);
+		try (var out = new RandomAccessFile(file, "rw")) {
+			out.setLength(file.length() - 1);
+		}
+		assertLoadFails(cache2, file);
+		assertEquals(0, cache2.size());
+	}
+
+	private static void assertLoadFails(OptimizerCache cache, File file) {
+		try {
+			cache.load(file);
+			fail();
+		} catch (IOException e) {}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+import org.junit.Test;
+
+import jp.fourthline.FileSelect;
+
+public class SMFReaderTest extends FileSelect {
+
+	private static List<String> readTrack(SMFReader reader, int index) throws InvalidMidiDataException {
+		List<String> list = new ArrayList<>();
+		reader.readTrack(index, new SMFReader.EventHandler() {
+			@Override
+			public void shortMessage(long tick, int command, int channel, int data1, int data2) {
+				list.add(tick + ":" + command + ":" + channel + ":" + data1 + ":" + data2);
+			}
+
+			@Override
+			public void metaMessage(long tick, int type, byte[] data) {
+				list.add(tick + ":meta" + type + ":" + data.length);
+			}
+		});
+		return list;
+	}
+
+	private static List<String> readTrack(Track track) {
+		List<String> list = new ArrayList<>();
+		for (int i = 0; i < track.size(); i++) {
+			var event = track.get(i);
+			if (event.getMessage() instanceof ShortMessage sm) {
+				list.add(event.getTick() + ":" + sm.getCommand() + ":" + sm.getChannel() + ":" + sm.getData1() + ":" + sm.getData2());
+			} else if (event.getMessage() instanceof MetaMessage m) {
+				list.add(event.getTick() + ":meta" + m.getType() + ":" + m.getData().length);
+			}
+		}
+		return list;
+	}
+
+	private void checkSequence(String filename) throws Exception {
+		byte[] data = fileSelect(filename).readAllBytes();
+		SMFReader reader = new SMFReader(data);
+		Sequence seq = MidiSystem.getSequence(new ByteArrayInputStream(data));
+
+		assertEquals(MidiSystem.getMidiFileFormat(new ByteArrayInputStream(data)).getType(), reader.getFormat());
+		assertEquals(seq.getResolution(), reader.getResolution());
+		assertEquals(seq.getTracks().length, reader.getTrackCount());
+		for (int i = 0; i < reader.getTrackCount(); i++) {
+			assertEquals(readTrack(seq.getTracks()[i]), readTrack(reader, i));
+		}
+	}
+
+	@Test
+	public void testFormat1() throws Exception {
+		checkSequence("sample4.mid");
+		checkSequence("sample_drum.mid");
+	}
+
+	@Test
+	public void testFormat0() throws Exception {
+		checkSequence("sample_format0.mid");
+	}
+
+	@Test
+	public void testRunningStatus() throws Exception {
+		byte[] data = {
+				'M', 'T', 'h', 'd', 0, 0, 0, 6, 0, 0, 0, 1, 0, 96,
+				'M', 'T', 'r', 'k', 0, 0, 0, 15,
+				0x00, (byte)0x90, 60, 100,
+				0x30, 60, 0,
+				(byte)0x81, 0x00, 62, 100,
+				0x00, (byte)0xff, 0x2f, 0x00 };
+		SMFReader reader = new SMFReader(data);
+		assertEquals(List.of("0:144:0:60:100", "48:144:0:60:0", "176:144:0:62:100", "176:meta47:0"), readTrack(reader, 0));
+	}
+
+	@Test(expected=InvalidMidiDataException.class)
+	public void testInvalidHeader() throws Exception {
+		new SMFReader(new byte[] { 'R', 'I', 'F', 'F', 0, 0, 0, 0 });
+	}
+}
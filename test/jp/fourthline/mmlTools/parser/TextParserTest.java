@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2024 たんらる
+ */
+
+package jp.fourthline.mmlTools.parser;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public final class TextParserTest {
+
+	@Test
+	public void test_parse() {
+		var list = new ArrayList<String>();
+		var parser = new TextParser()
+				.pattern("name=",  t -> list.add("name:" + t))
+				.pattern("songProgram=", t -> list.add("songProgram:" + t))
+				.pattern("program=", t -> list.add("program:" + t))
+				.pattern("label", t -> list.add("label:" + t));
+
+		parser.parse("name=a=b\nprogram=1\n\nsongProgram=2\nlabel1=x\nunknown=3\nname\n");
+		assertEquals(List.of("name:a=b", "program:1", "songProgram:2", "label:1=x"), list);
+	}
+
+	@Test
+	public void test_parseLine() {
+		var list = new ArrayList<String>();
+		var parser = new TextParser()
+				.pattern("mml-track=", t -> list.add(t));
+
+		assertTrue(parser.parseLine("mml-track=MML@a,b,c;"));
+		assertFalse(parser.parseLine("mml-track"));
+		assertFalse(parser.parseLine("xmml-track=MML@;"));
+		assertEquals(List.of("MML@a,b,c;"), list);
+	}
+}